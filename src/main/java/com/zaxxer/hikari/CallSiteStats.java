@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2013 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaxxer.hikari;
+
+import javax.management.openmbean.CompositeData;
+
+/**
+ * The connection hold times of one borrowing call site, see {@link HikariPoolMXBean#getCallSiteStats()}.  Only
+ * the borrows sampled according to {@link HikariConfig#setCallSiteSampleRate(int)} are counted.
+ *
+ * @author Brett Wooldridge
+ */
+public final class CallSiteStats
+{
+   private final String callSite;
+   private final int inUse;
+   private final long count;
+   private final long medianMillis;
+   private final long p99Millis;
+   private final long maxMillis;
+
+   public CallSiteStats(String callSite, int inUse, long count, long medianMillis, long p99Millis, long maxMillis)
+   {
+      this.callSite = callSite;
+      this.inUse = inUse;
+      this.count = count;
+      this.medianMillis = medianMillis;
+      this.p99Millis = p99Millis;
+      this.maxMillis = maxMillis;
+   }
+
+   /**
+    * Reconstruct statistics from their JMX open type representation.
+    *
+    * @param data the composite data
+    * @return the call site statistics
+    */
+   public static CallSiteStats from(CompositeData data)
+   {
+      return new CallSiteStats((String) data.get("callSite"), (Integer) data.get("inUse"), (Long) data.get("count"),
+                               (Long) data.get("medianMillis"), (Long) data.get("p99Millis"), (Long) data.get("maxMillis"));
+   }
+
+   /**
+    * @return the innermost frames of the borrowing thread outside the pool, innermost first
+    */
+   public String getCallSite()
+   {
+      return callSite;
+   }
+
+   /**
+    * @return the number of sampled connections borrowed from this call site that are currently in use
+    */
+   public int getInUse()
+   {
+      return inUse;
+   }
+
+   /**
+    * @return the number of sampled connections returned, over the most recent interval
+    */
+   public long getCount()
+   {
+      return count;
+   }
+
+   /**
+    * @return the median hold time in milliseconds, over the most recent interval
+    */
+   public long getMedianMillis()
+   {
+      return medianMillis;
+   }
+
+   /**
+    * @return the 99th percentile hold time in milliseconds, over the most recent interval
+    */
+   public long getP99Millis()
+   {
+      return p99Millis;
+   }
+
+   /**
+    * @return the longest hold time in milliseconds, over the most recent interval
+    */
+   public long getMaxMillis()
+   {
+      return maxMillis;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public String toString()
+   {
+      return callSite + " (inUse=" + inUse + ", count=" + count + ", median=" + medianMillis + "ms, p99=" + p99Millis + "ms, max=" + maxMillis + "ms)";
+   }
+}
@@ -90,6 +90,18 @@ public class HikariConfig implements HikariConfigMXBean
    private boolean isIsolateInternalQueries;
    private boolean isRegisterMbeans;
    private boolean isAllowPoolSuspension;
+   private boolean isAutoSizePool;
+   private int normalPriorityMaxConnections;
+   private int lowPriorityMaxConnections;
+   private int maxConnectionCreationConcurrency;
+   private int leakDetectionSampleRate;
+   private int preparedStatementCacheSize;
+   private boolean isStatementTimingEnabled;
+   private long slowQueryThreshold;
+   private int statementStatsSize;
+   private int callSiteSampleRate;
+   private int callSiteDepth;
+   private String countersDirectory;
    private DataSource dataSource;
    private Properties dataSourceProperties;
    private ThreadFactory threadFactory;
@@ -125,6 +137,9 @@ public class HikariConfig implements HikariConfigMXBean
       idleTimeout = IDLE_TIMEOUT;
       initializationFailTimeout = 1;
       isAutoCommit = true;
+      leakDetectionSampleRate = 1;
+      maxConnectionCreationConcurrency = 1;
+      callSiteDepth = 1;
       keepaliveTime = DEFAULT_KEEPALIVE_TIME;
 
       var systemProp = System.getProperty("hikaricp.configurationFile");
@@ -230,6 +245,33 @@ public class HikariConfig implements HikariConfigMXBean
       this.leakDetectionThreshold = leakDetectionThresholdMs;
    }
 
+   /**
+    * Get the leak detection sample rate, see {@link #setLeakDetectionSampleRate(int)}.
+    *
+    * @return the leak detection sample rate
+    */
+   public int getLeakDetectionSampleRate()
+   {
+      return leakDetectionSampleRate;
+   }
+
+   /**
+    * Set the leak detection sample rate.  When leak detection is enabled, a random one in every
+    * {@code sampleRate} borrowed connections is tracked for leaks, which reduces the cost of
+    * leak detection enough that it can be left enabled in production.  The default of 1 tracks
+    * every borrowed connection.
+    *
+    * @param sampleRate the sample rate, 1 or greater
+    */
+   public void setLeakDetectionSampleRate(int sampleRate)
+   {
+      checkIfSealed();
+      if (sampleRate < 1) {
+         throw new IllegalArgumentException("leakDetectionSampleRate cannot be less than 1");
+      }
+      this.leakDetectionSampleRate = sampleRate;
+   }
+
    /** {@inheritDoc} */
    @Override
    public long getMaxLifetime()
@@ -580,6 +622,309 @@ public class HikariConfig implements HikariConfigMXBean
       this.isAllowPoolSuspension = isAllowPoolSuspension;
    }
 
+   /**
+    * Get whether the maximum pool size is tuned automatically.
+    *
+    * @return true if the maximum pool size is tuned automatically
+    */
+   public boolean isAutoSizePool()
+   {
+      return isAutoSizePool;
+   }
+
+   /**
+    * Set whether the maximum pool size is tuned automatically.  When enabled, the pool measures how long
+    * connections are held, and lowers its effective maximum size when hold times rise under load (a sign
+    * that the database is saturated), and raises it again while they stay flat.  The effective maximum is
+    * kept between {@code minimumIdle} (but at least 1) and the configured {@code maximumPoolSize}.  It does
+    * not change the configuration, so {@link #getMaximumPoolSize()} still reports the setting, and a new
+    * value set through {@link HikariConfigMXBean#setMaximumPoolSize(int)} becomes the upper bound of the
+    * effective maximum the next time it is tuned.  Auto-sizing has no effect on
+    * a fixed-size pool, where {@code minimumIdle} equals {@code maximumPoolSize}.
+    *
+    * @param isAutoSizePool true to tune the maximum pool size automatically
+    */
+   public void setAutoSizePool(boolean isAutoSizePool)
+   {
+      checkIfSealed();
+      this.isAutoSizePool = isAutoSizePool;
+   }
+
+   /**
+    * Get the maximum number of connections that {@link Priority#NORMAL} requests may hold at one time.
+    *
+    * @return the maximum number of connections, or 0 if uncapped
+    */
+   public int getNormalPriorityMaxConnections()
+   {
+      return normalPriorityMaxConnections;
+   }
+
+   /**
+    * Set the maximum number of connections that {@link Priority#NORMAL} requests (including all requests
+    * made without a priority) may hold at one time.  The remainder of the pool is in effect reserved for
+    * {@link Priority#HIGH} requests.  A value of 0, the default, means {@link Priority#NORMAL} requests
+    * are only limited by the maximum pool size.
+    *
+    * @param maxConnections the maximum number of connections, or 0 for no cap
+    */
+   public void setNormalPriorityMaxConnections(int maxConnections)
+   {
+      checkIfSealed();
+      if (maxConnections < 0) {
+         throw new IllegalArgumentException("normalPriorityMaxConnections cannot be negative");
+      }
+      this.normalPriorityMaxConnections = maxConnections;
+   }
+
+   /**
+    * Get the maximum number of connections that {@link Priority#LOW} requests may hold at one time.
+    *
+    * @return the maximum number of connections, or 0 if uncapped
+    */
+   public int getLowPriorityMaxConnections()
+   {
+      return lowPriorityMaxConnections;
+   }
+
+   /**
+    * Set the maximum number of connections that {@link Priority#LOW} requests may hold at one time.
+    * A value of 0, the default, means {@link Priority#LOW} requests are only limited by the maximum
+    * pool size.
+    *
+    * @param maxConnections the maximum number of connections, or 0 for no cap
+    */
+   public void setLowPriorityMaxConnections(int maxConnections)
+   {
+      checkIfSealed();
+      if (maxConnections < 0) {
+         throw new IllegalArgumentException("lowPriorityMaxConnections cannot be negative");
+      }
+      this.lowPriorityMaxConnections = maxConnections;
+   }
+
+   /**
+    * Get the maximum number of connections that the pool may be creating at one time.
+    *
+    * @return the maximum connection creation concurrency
+    */
+   public int getMaxConnectionCreationConcurrency()
+   {
+      return maxConnectionCreationConcurrency;
+   }
+
+   /**
+    * Set the maximum number of connections that the pool may be creating at one time.  With a value of 1,
+    * the default, connections are created one after another.  With a larger value the pool adapts the
+    * number of concurrent connection attempts between 1 and this value: it is raised while connection
+    * creation time stays flat, and halved when creation slows down or fails.  This shortens the time
+    * needed to refill the pool, for example after a database failover, without overwhelming a database
+    * that is struggling to accept connections.
+    *
+    * @param concurrency the maximum number of concurrent connection attempts, at least 1
+    */
+   public void setMaxConnectionCreationConcurrency(int concurrency)
+   {
+      checkIfSealed();
+      if (concurrency < 1) {
+         throw new IllegalArgumentException("maxConnectionCreationConcurrency cannot be less than 1");
+      }
+      this.maxConnectionCreationConcurrency = concurrency;
+   }
+
+   /**
+    * Get the maximum number of PreparedStatements cached for each connection.
+    *
+    * @return the statement cache size, or 0 if statement caching is disabled
+    */
+   public int getPreparedStatementCacheSize()
+   {
+      return preparedStatementCacheSize;
+   }
+
+   /**
+    * Set the maximum number of PreparedStatements cached for each connection.  When greater than zero, a
+    * PreparedStatement that the application closes is kept open, and a later {@code prepareStatement()} call on
+    * the same connection with the same SQL, result set type, concurrency and holdability returns it without a
+    * round trip to the database.  Before a statement is cached its parameters, batch and warnings are cleared,
+    * and the settings the application may have changed (max rows, query timeout, fetch size, max field size,
+    * escape processing and poolable) are restored to the values the driver prepared it with; a statement whose
+    * settings cannot be read or restored, or on which closeOnCompletion was enabled, is closed instead.  The
+    * least recently used statement is closed when the cache is full.  Statements prepared with generated keys
+    * or column arrays, and CallableStatements, are not cached.  The default is 0, which disables the cache;
+    * only enable it if your driver does not cache statements itself.
+    *
+    * @param cacheSize the maximum number of cached statements per connection, or 0 to disable caching
+    */
+   public void setPreparedStatementCacheSize(int cacheSize)
+   {
+      checkIfSealed();
+      if (cacheSize < 0) {
+         throw new IllegalArgumentException("preparedStatementCacheSize cannot be negative");
+      }
+      this.preparedStatementCacheSize = cacheSize;
+   }
+
+   /**
+    * Get whether statement executions and result set iterations are timed.
+    *
+    * @return true if statement timing is enabled
+    */
+   public boolean isStatementTimingEnabled()
+   {
+      return isStatementTimingEnabled;
+   }
+
+   /**
+    * Set whether statement executions and result set iterations are timed.  When enabled, the time taken by
+    * each {@code execute*()} call of a Statement, and the time from the end of a query until its ResultSet is
+    * exhausted or closed, are reported to the {@link com.zaxxer.hikari.metrics.IMetricsTracker}.  Statements are
+    * also timed while a slow query threshold or statement statistics are configured.  The default is false.
+    *
+    * @param isStatementTimingEnabled true to time statement executions
+    */
+   public void setStatementTimingEnabled(boolean isStatementTimingEnabled)
+   {
+      checkIfSealed();
+      this.isStatementTimingEnabled = isStatementTimingEnabled;
+   }
+
+   /**
+    * Get the slow query threshold, see {@link #setSlowQueryThreshold(long)}.
+    *
+    * @return the slow query threshold in milliseconds, or 0 if slow queries are not logged
+    */
+   public long getSlowQueryThreshold()
+   {
+      return slowQueryThreshold;
+   }
+
+   /**
+    * Set the slow query threshold.  When greater than zero, every statement execution that takes longer than
+    * this many milliseconds is logged at WARN level with its SQL, number of bind parameters and elapsed time.
+    * Statement executions are timed while a threshold is set, even if {@link #setStatementTimingEnabled(boolean)}
+    * is not.  The default is 0, which disables the slow query log.
+    *
+    * @param slowQueryThresholdMs the slow query threshold in milliseconds, or 0 to disable the slow query log
+    */
+   public void setSlowQueryThreshold(long slowQueryThresholdMs)
+   {
+      checkIfSealed();
+      if (slowQueryThresholdMs < 0) {
+         throw new IllegalArgumentException("slowQueryThreshold cannot be negative");
+      }
+      this.slowQueryThreshold = slowQueryThresholdMs;
+   }
+
+   /**
+    * Get the number of SQL fingerprints tracked for statement statistics, see {@link #setStatementStatsSize(int)}.
+    *
+    * @return the number of tracked fingerprints, or 0 if statement statistics are disabled
+    */
+   public int getStatementStatsSize()
+   {
+      return statementStatsSize;
+   }
+
+   /**
+    * Set the number of SQL fingerprints tracked for statement statistics.  When greater than zero, every statement
+    * execution is timed and aggregated by its fingerprint, the SQL with literals replaced by {@code ?} and IN-lists
+    * collapsed, into the execution count, total and maximum time, and result set rows read.  Only the most frequent
+    * fingerprints are kept, in a table of this size, so memory stays bounded even with ad-hoc SQL.  The table is
+    * exposed through a {@link HikariStatementStatsMXBean} when {@link #setRegisterMbeans(boolean)} is enabled.  The
+    * default is 0, which disables statement statistics.
+    *
+    * @param statementStatsSize the number of tracked fingerprints, or 0 to disable statement statistics
+    */
+   public void setStatementStatsSize(int statementStatsSize)
+   {
+      checkIfSealed();
+      if (statementStatsSize < 0) {
+         throw new IllegalArgumentException("statementStatsSize cannot be negative");
+      }
+      this.statementStatsSize = statementStatsSize;
+   }
+
+   /**
+    * Get the call site sample rate, see {@link #setCallSiteSampleRate(int)}.
+    *
+    * @return the call site sample rate, or 0 if call site attribution is disabled
+    */
+   public int getCallSiteSampleRate()
+   {
+      return callSiteSampleRate;
+   }
+
+   /**
+    * Set the rate at which borrows capture their call site, as 1-in-N.  A sampled borrow walks the stack of the
+    * borrowing thread to find the innermost frames outside the pool, and when the connection is returned its hold
+    * time is recorded against that call site.  The per call site hold times are exposed through
+    * {@link HikariPoolMXBean#getCallSiteStats()}, and the call sites holding the most connections are appended to
+    * the message of a connection timeout.  A value of 1 samples every borrow.  The default is 0, which disables
+    * call site attribution.
+    *
+    * @param callSiteSampleRate the call site sample rate, or 0 to disable call site attribution
+    */
+   public void setCallSiteSampleRate(int callSiteSampleRate)
+   {
+      checkIfSealed();
+      if (callSiteSampleRate < 0) {
+         throw new IllegalArgumentException("callSiteSampleRate cannot be negative");
+      }
+      this.callSiteSampleRate = callSiteSampleRate;
+   }
+
+   /**
+    * Get the number of stack frames that identify a call site, see {@link #setCallSiteDepth(int)}.
+    *
+    * @return the number of stack frames in a call site
+    */
+   public int getCallSiteDepth()
+   {
+      return callSiteDepth;
+   }
+
+   /**
+    * Set the number of stack frames outside the pool that identify a call site, innermost first.  A deeper call
+    * site distinguishes callers of a shared data access helper, at the cost of more distinct call sites.  The
+    * default is 1.
+    *
+    * @param callSiteDepth the number of stack frames in a call site
+    */
+   public void setCallSiteDepth(int callSiteDepth)
+   {
+      checkIfSealed();
+      if (callSiteDepth < 1) {
+         throw new IllegalArgumentException("callSiteDepth must be at least 1");
+      }
+      this.callSiteDepth = callSiteDepth;
+   }
+
+   /**
+    * Get the directory that the pool publishes its counters into, see {@link #setCountersDirectory(String)}.
+    *
+    * @return the counters directory, or null if counters are not published
+    */
+   public String getCountersDirectory()
+   {
+      return countersDirectory;
+   }
+
+   /**
+    * Set a directory that the pool publishes its live counters into, as a memory-mapped file named after the pool
+    * and the process id.  Connection counts, borrows, borrow wait time, timeouts and connection creations and
+    * failures can then be read by another process on the same host, without JMX or any call into this JVM, with
+    * {@link com.zaxxer.hikari.metrics.PoolCountersReader}, which also documents the file layout.  The file is
+    * deleted when the pool is shut down.  The default is null, which does not publish counters.
+    *
+    * @param countersDirectory an existing directory for the counters file, or null
+    */
+   public void setCountersDirectory(String countersDirectory)
+   {
+      checkIfSealed();
+      this.countersDirectory = countersDirectory;
+   }
+
    /**
     * Get the pool initialization failure timeout.  See {@code #setInitializationFailTimeout(long)}
     * for details.
@@ -28,6 +28,8 @@ import java.io.PrintWriter;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLFeatureNotSupportedException;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.zaxxer.hikari.pool.HikariPool.POOL_NORMAL;
@@ -99,6 +101,71 @@ public class HikariDataSource extends HikariConfig implements DataSource, Closea
          return fastPathPool.getConnection();
       }
 
+      return getOrStartPool().getConnection();
+   }
+
+   /**
+    * Get a connection from the pool on behalf of a request of the specified priority.  When
+    * the pool is saturated, connections are handed to waiting requests of a higher priority
+    * first.
+    *
+    * @param priority the priority of the request, not null
+    * @return a java.sql.Connection instance
+    * @throws SQLException thrown if the pool is closed or a timeout occurs trying to obtain a connection
+    * @throws NullPointerException if priority is null
+    * @see Priority
+    */
+   public Connection getConnection(final Priority priority) throws SQLException
+   {
+      Objects.requireNonNull(priority, "priority");
+      if (isClosed()) {
+         throw new SQLException("HikariDataSource " + this + " has been closed.");
+      }
+
+      if (fastPathPool != null) {
+         return fastPathPool.getConnection(priority);
+      }
+
+      return getOrStartPool().getConnection(priority);
+   }
+
+   /**
+    * Get a connection from the pool without blocking the calling thread.  The returned future
+    * is completed with a connection when one becomes available, or exceptionally with an
+    * {@link SQLException} if the pool is closed or a connection cannot be obtained within
+    * connectionTimeout milliseconds.  If no connection is immediately available, the future
+    * is completed by one of the pool's threads, so dependent stages that do blocking work
+    * should use the <code>*Async</code> CompletionStage methods.  While the pool is suspended,
+    * the borrow starts when it is resumed.  Cancelling the future gives up waiting.
+    * <p>
+    * Note that the first call to this method on a lazily started data source starts the
+    * pool on the calling thread, as {@link #getConnection()} does.
+    *
+    * @return a future completed with a java.sql.Connection instance
+    */
+   public CompletableFuture<Connection> getConnectionAsync()
+   {
+      if (isClosed()) {
+         return CompletableFuture.failedFuture(new SQLException("HikariDataSource " + this + " has been closed."));
+      }
+
+      if (fastPathPool != null) {
+         return fastPathPool.getConnectionAsync();
+      }
+
+      try {
+         return getOrStartPool().getConnectionAsync();
+      }
+      catch (SQLException | RuntimeException e) {
+         return CompletableFuture.failedFuture(e);
+      }
+   }
+
+   /**
+    * Return the pool, starting it first if this data source was constructed without a configuration.
+    */
+   private HikariPool getOrStartPool() throws SQLException
+   {
       // See http://en.wikipedia.org/wiki/Double-checked_locking#Usage_in_Java
       HikariPool result = pool;
       if (result == null) {
@@ -124,7 +191,7 @@ public class HikariDataSource extends HikariConfig implements DataSource, Closea
          }
       }
 
-      return result.getConnection();
+      return result;
    }
 
    /** {@inheritDoc} */
@@ -65,6 +65,60 @@ public interface HikariPoolMXBean
     */
    int getThreadsAwaitingConnection();
 
+   /**
+    * Get the number of connections that the pool currently allows to be created concurrently.  This value adapts
+    * between 1 and {@link HikariConfig#getMaxConnectionCreationConcurrency()} as connection creation time changes.
+    *
+    * @return the current connection creation concurrency
+    */
+   int getConnectionCreationConcurrency();
+
+   /**
+    * Get a percentile of the time taken to acquire a connection, over the most recent interval of the
+    * {@link com.zaxxer.hikari.metrics.HistogramMetricsTrackerFactory} histograms.
+    *
+    * @param percentile the percentile, between 0 and 100
+    * @return the acquisition time in nanoseconds, or -1 if the pool does not use a histogram metrics tracker
+    */
+   long getConnectionAcquireNanosAtPercentile(double percentile);
+
+   /**
+    * Get a percentile of the time connections were held by the application, over the most recent interval of the
+    * {@link com.zaxxer.hikari.metrics.HistogramMetricsTrackerFactory} histograms.
+    *
+    * @param percentile the percentile, between 0 and 100
+    * @return the usage time in milliseconds, or -1 if the pool does not use a histogram metrics tracker
+    */
+   long getConnectionUsageMillisAtPercentile(double percentile);
+
+   /**
+    * Get a percentile of the time taken to create a connection, over the most recent interval of the
+    * {@link com.zaxxer.hikari.metrics.HistogramMetricsTrackerFactory} histograms.
+    *
+    * @param percentile the percentile, between 0 and 100
+    * @return the creation time in milliseconds, or -1 if the pool does not use a histogram metrics tracker
+    */
+   long getConnectionCreationMillisAtPercentile(double percentile);
+
+   /**
+    * Get the connection hold times of each sampled borrowing call site, and the number of sampled connections each
+    * currently holds, most connections in use first.  Hold times cover the most recent interval, see
+    * {@link HikariConfig#setCallSiteSampleRate(int)}.
+    *
+    * @return the call site statistics, empty if call site attribution is disabled
+    */
+   CallSiteStats[] getCallSiteStats();
+
+   /**
+    * Get the most recent pool events, such as connection creations and failures, evictions with their reason, fill
+    * decisions, housekeeping runs, clock leaps and borrow timeouts, oldest first.  The events are kept in a fixed-size
+    * ring of {@code com.zaxxer.hikari.eventRing.size} entries (default 256), and are also logged when a connection
+    * request times out.
+    *
+    * @return the recent pool events, each formatted on one line
+    */
+   String[] dumpPoolEvents();
+
    /**
     * Evict currently idle connections from the pool, and mark active (in-use) connections for eviction when they are
     * returned to the pool.
@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2013 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaxxer.hikari;
+
+/**
+ * The javax.management MBean for the SQL statement statistics of a Hikari pool instance, registered when
+ * {@link HikariConfig#setStatementStatsSize(int)} is greater than zero.
+ *
+ * @author Brett Wooldridge
+ */
+public interface HikariStatementStatsMXBean
+{
+   /**
+    * Get the statistics of the most frequently executed SQL fingerprints, most frequent first.  Only the number
+    * of fingerprints set by {@link HikariConfig#setStatementStatsSize(int)} is tracked, so fingerprints that
+    * entered the table after others were displaced may have executed up to {@link StatementStats#getCountError()}
+    * more times than their count, and are ordered by the sum of both.
+    *
+    * @return the statement statistics
+    */
+   StatementStats[] getTopStatements();
+
+   /**
+    * Discard all collected statement statistics.
+    */
+   void resetStatementStats();
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari;
+
+/**
+ * The priority class of a connection request.  When the pool is saturated, a connection
+ * returned to the pool is handed to a waiting {@link #HIGH} request before any waiting
+ * {@link #NORMAL} request, and to a {@link #NORMAL} request before any {@link #LOW} request.
+ * The number of connections held at one time by {@link #NORMAL} and {@link #LOW} requests
+ * can be capped, see {@link HikariConfig#setNormalPriorityMaxConnections(int)} and
+ * {@link HikariConfig#setLowPriorityMaxConnections(int)}, which in effect reserves the
+ * remainder of the pool for higher priority requests.
+ */
+public enum Priority
+{
+   HIGH,
+   NORMAL,
+   LOW
+}
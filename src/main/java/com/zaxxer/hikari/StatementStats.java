@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.zaxxer.hikari;
+
+import javax.management.openmbean.CompositeData;
+
+/**
+ * The aggregated statistics of one SQL fingerprint, see {@link HikariStatementStatsMXBean}.  A fingerprint is
+ * SQL with its literals replaced by {@code ?} and its IN-lists collapsed, so that executions which differ only
+ * in their values are counted together.
+ *
+ * @author Brett Wooldridge
+ */
+public final class StatementStats
+{
+   private final String fingerprint;
+   private final long count;
+   private final long countError;
+   private final long totalTimeNanos;
+   private final long maxTimeNanos;
+   private final long rowsRead;
+
+   public StatementStats(String fingerprint, long count, long countError, long totalTimeNanos, long maxTimeNanos, long rowsRead)
+   {
+      this.fingerprint = fingerprint;
+      this.count = count;
+      this.countError = countError;
+      this.totalTimeNanos = totalTimeNanos;
+      this.maxTimeNanos = maxTimeNanos;
+      this.rowsRead = rowsRead;
+   }
+
+   /**
+    * Reconstruct statistics from their JMX open type representation.
+    *
+    * @param data the composite data
+    * @return the statement statistics
+    */
+   public static StatementStats from(CompositeData data)
+   {
+      return new StatementStats((String) data.get("fingerprint"), (Long) data.get("count"), (Long) data.get("countError"),
+                                (Long) data.get("totalTimeNanos"), (Long) data.get("maxTimeNanos"), (Long) data.get("rowsRead"));
+   }
+
+   /**
+    * @return the normalized SQL
+    */
+   public String getFingerprint()
+   {
+      return fingerprint;
+   }
+
+   /**
+    * @return the number of executions since the fingerprint last entered the table
+    */
+   public long getCount()
+   {
+      return count;
+   }
+
+   /**
+    * @return the largest possible number of executions before the fingerprint entered the table, or 0 if
+    *         {@link #getCount()} is exact
+    */
+   public long getCountError()
+   {
+      return countError;
+   }
+
+   /**
+    * @return the total execution time of the tracked executions, in nanoseconds
+    */
+   public long getTotalTimeNanos()
+   {
+      return totalTimeNanos;
+   }
+
+   /**
+    * @return the longest execution time of the tracked executions, in nanoseconds
+    */
+   public long getMaxTimeNanos()
+   {
+      return maxTimeNanos;
+   }
+
+   /**
+    * @return the number of result set rows read by the tracked executions
+    */
+   public long getRowsRead()
+   {
+      return rowsRead;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public String toString()
+   {
+      return "StatementStats{fingerprint=" + fingerprint + ", count=" + count + ", countError=" + countError
+         + ", totalTimeNanos=" + totalTimeNanos + ", maxTimeNanos=" + maxTimeNanos + ", rowsRead=" + rowsRead + '}';
+   }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An {@link IMetricsTracker} that records connection and statement timings into {@link LatencyHistogram}s, without
+ * any external metrics library.  Every measurement is also passed on to an optional delegate tracker.
+ *
+ * @author Brett Wooldridge
+ */
+public final class HistogramMetricsTracker implements IMetricsTracker
+{
+   private final IMetricsTracker delegate;
+
+   private final LatencyHistogram acquireNanos;
+   private final LatencyHistogram usageMillis;
+   private final LatencyHistogram creationMillis;
+   private final LatencyHistogram executionNanos;
+   private final LatencyHistogram iterationNanos;
+   private final LongAdder timeouts;
+   private final LongAdder statementCacheHits;
+   private final LongAdder statementCacheMisses;
+
+   HistogramMetricsTracker(final IMetricsTracker delegate, final long intervalMs)
+   {
+      this.delegate = delegate;
+      this.acquireNanos = new LatencyHistogram(intervalMs);
+      this.usageMillis = new LatencyHistogram(intervalMs);
+      this.creationMillis = new LatencyHistogram(intervalMs);
+      this.executionNanos = new LatencyHistogram(intervalMs);
+      this.iterationNanos = new LatencyHistogram(intervalMs);
+      this.timeouts = new LongAdder();
+      this.statementCacheHits = new LongAdder();
+      this.statementCacheMisses = new LongAdder();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void recordConnectionCreatedMillis(final long connectionCreatedMillis)
+   {
+      creationMillis.record(connectionCreatedMillis);
+      delegate.recordConnectionCreatedMillis(connectionCreatedMillis);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void recordConnectionAcquiredNanos(final long elapsedAcquiredNanos)
+   {
+      acquireNanos.record(elapsedAcquiredNanos);
+      delegate.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void recordConnectionUsageMillis(final long elapsedBorrowedMillis)
+   {
+      usageMillis.record(elapsedBorrowedMillis);
+      delegate.recordConnectionUsageMillis(elapsedBorrowedMillis);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void recordConnectionTimeout()
+   {
+      timeouts.increment();
+      delegate.recordConnectionTimeout();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void recordStatementCacheHit()
+   {
+      statementCacheHits.increment();
+      delegate.recordStatementCacheHit();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void recordStatementCacheMiss()
+   {
+      statementCacheMisses.increment();
+      delegate.recordStatementCacheMiss();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void recordStatementExecutionNanos(final long elapsedExecutionNanos)
+   {
+      executionNanos.record(elapsedExecutionNanos);
+      delegate.recordStatementExecutionNanos(elapsedExecutionNanos);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void recordResultSetIterationNanos(final long elapsedIterationNanos)
+   {
+      iterationNanos.record(elapsedIterationNanos);
+      delegate.recordResultSetIterationNanos(elapsedIterationNanos);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void close()
+   {
+      delegate.close();
+   }
+
+   /**
+    * Get the connection acquisition times, in nanoseconds, of the most recent complete interval.
+    *
+    * @return the interval snapshot
+    */
+   public LatencyHistogram.Snapshot getConnectionAcquireNanos()
+   {
+      return acquireNanos.getIntervalSnapshot();
+   }
+
+   /**
+    * Get the connection usage times, in milliseconds, of the most recent complete interval.
+    *
+    * @return the interval snapshot
+    */
+   public LatencyHistogram.Snapshot getConnectionUsageMillis()
+   {
+      return usageMillis.getIntervalSnapshot();
+   }
+
+   /**
+    * Get the connection creation times, in milliseconds, of the most recent complete interval.
+    *
+    * @return the interval snapshot
+    */
+   public LatencyHistogram.Snapshot getConnectionCreationMillis()
+   {
+      return creationMillis.getIntervalSnapshot();
+   }
+
+   /**
+    * Get the statement execution times, in nanoseconds, of the most recent complete interval.  Statements are
+    * only timed when statement timing or the slow query log is enabled.
+    *
+    * @return the interval snapshot
+    */
+   public LatencyHistogram.Snapshot getStatementExecutionNanos()
+   {
+      return executionNanos.getIntervalSnapshot();
+   }
+
+   /**
+    * Get the result set iteration times, in nanoseconds, of the most recent complete interval.  Result sets are
+    * only timed when statement timing or the slow query log is enabled.
+    *
+    * @return the interval snapshot
+    */
+   public LatencyHistogram.Snapshot getResultSetIterationNanos()
+   {
+      return iterationNanos.getIntervalSnapshot();
+   }
+
+   /**
+    * Get the total number of connection timeouts.
+    *
+    * @return the number of timeouts
+    */
+   public long getConnectionTimeouts()
+   {
+      return timeouts.sum();
+   }
+
+   /**
+    * Get the total number of statements served from the statement cache.
+    *
+    * @return the number of statement cache hits
+    */
+   public long getStatementCacheHits()
+   {
+      return statementCacheHits.sum();
+   }
+
+   /**
+    * Get the total number of statements that were not found in the statement cache.
+    *
+    * @return the number of statement cache misses
+    */
+   public long getStatementCacheMisses()
+   {
+      return statementCacheMisses.sum();
+   }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.metrics;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * <pre>{@code
+ * HikariConfig config = new HikariConfig();
+ * config.setMetricsTrackerFactory(new HistogramMetricsTrackerFactory());
+ * }</pre>
+ * or, to also feed another metrics library
+ * <pre>{@code
+ * config.setMetricsTrackerFactory(new HistogramMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+ * }</pre>
+ *
+ * The percentiles are available from the {@link com.zaxxer.hikari.HikariPoolMXBean} of the pool.
+ *
+ * @author Brett Wooldridge
+ */
+public class HistogramMetricsTrackerFactory implements MetricsTrackerFactory
+{
+   private final MetricsTrackerFactory delegate;
+   private final long intervalMs;
+
+   /**
+    * Default Constructor.  Percentiles are computed over one minute intervals.
+    */
+   public HistogramMetricsTrackerFactory()
+   {
+      this(null);
+   }
+
+   /**
+    * Constructor that also passes every measurement to the trackers of another factory.
+    *
+    * @param delegate the factory of the trackers to feed, or null
+    */
+   public HistogramMetricsTrackerFactory(final MetricsTrackerFactory delegate)
+   {
+      this(delegate, MINUTES.toMillis(1));
+   }
+
+   /**
+    * Constructor that also passes every measurement to the trackers of another factory.
+    *
+    * @param delegate the factory of the trackers to feed, or null
+    * @param intervalMs the interval over which percentiles are computed, in milliseconds
+    */
+   public HistogramMetricsTrackerFactory(final MetricsTrackerFactory delegate, final long intervalMs)
+   {
+      if (intervalMs < 1) {
+         throw new IllegalArgumentException("intervalMs cannot be less than 1ms");
+      }
+
+      this.delegate = delegate;
+      this.intervalMs = intervalMs;
+   }
+
+   @Override
+   public IMetricsTracker create(final String poolName, final PoolStats poolStats)
+   {
+      final var tracker = (delegate != null) ? delegate.create(poolName, poolStats) : new IMetricsTracker() {};
+      return new HistogramMetricsTracker(tracker, intervalMs);
+   }
+}
@@ -29,6 +29,32 @@ public interface IMetricsTracker extends AutoCloseable
 
    default void recordConnectionTimeout() {}
 
+   /**
+    * Record that a PreparedStatement was taken from the per-connection statement cache.
+    */
+   default void recordStatementCacheHit() {}
+
+   /**
+    * Record that a PreparedStatement was not in the per-connection statement cache, and was prepared by the driver.
+    */
+   default void recordStatementCacheMiss() {}
+
+   /**
+    * Record the time taken by one {@code execute*()} call of a Statement.  Only called while statements are timed,
+    * see {@link com.zaxxer.hikari.HikariConfig#setStatementTimingEnabled(boolean)}.
+    *
+    * @param elapsedExecutionNanos the execution time in nanoseconds
+    */
+   default void recordStatementExecutionNanos(final long elapsedExecutionNanos) {}
+
+   /**
+    * Record the time from the end of a query until its ResultSet was exhausted or closed.  Only called while
+    * statements are timed, see {@link com.zaxxer.hikari.HikariConfig#setStatementTimingEnabled(boolean)}.
+    *
+    * @param elapsedIterationNanos the iteration time in nanoseconds
+    */
+   default void recordResultSetIterationNanos(final long elapsedIterationNanos) {}
+
    @Override
    default void close() {}
 }
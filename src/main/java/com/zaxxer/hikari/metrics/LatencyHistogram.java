@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+import static com.zaxxer.hikari.util.ClockSource.elapsedMillis;
+import static com.zaxxer.hikari.util.ClockSource.plusMillis;
+
+/**
+ * A lock-free histogram of non-negative long values, with log-linear buckets in the manner of HdrHistogram:
+ * each power of two is divided into 16 linear sub-buckets, so that a recorded value is known to within
+ * about 6%.  Each bucket is a striped counter, so concurrent recording does not contend on a single
+ * location.
+ * <p>
+ * Percentiles are read from interval snapshots.  {@link #getIntervalSnapshot()} returns the values recorded
+ * during the most recent complete interval.  Intervals follow one another from the construction of the
+ * histogram, and the first recording or read after an interval has elapsed completes it, so recording reads
+ * the clock.  If no value was recorded during the most recent complete interval, its snapshot is empty.
+ *
+ * @author Brett Wooldridge
+ */
+public final class LatencyHistogram
+{
+   private static final int SUB_BUCKET_BITS = 4;
+   private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+   private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+   private final LongAdder[] buckets;
+   private final LongAccumulator max;
+   private final long intervalMs;
+
+   private volatile long intervalStart;
+   private Snapshot intervalSnapshot;
+
+   /**
+    * Construct a histogram.
+    *
+    * @param intervalMs the length of the snapshot interval in milliseconds, or zero to complete an interval on
+    *        each read
+    */
+   public LatencyHistogram(final long intervalMs)
+   {
+      this.intervalMs = intervalMs;
+      this.buckets = new LongAdder[BUCKET_COUNT];
+      for (var i = 0; i < BUCKET_COUNT; i++) {
+         buckets[i] = new LongAdder();
+      }
+      this.max = new LongAccumulator(Math::max, 0L);
+      this.intervalStart = currentTime();
+      this.intervalSnapshot = new Snapshot(new long[BUCKET_COUNT], 0L, 0L);
+   }
+
+   /**
+    * Record a value.  Negative values are recorded as zero.
+    *
+    * @param value the value to record
+    */
+   public void record(final long value)
+   {
+      record(value, currentTime());
+   }
+
+   void record(final long value, final long now)
+   {
+      if (intervalMs > 0L && elapsedMillis(intervalStart, now) >= intervalMs) {
+         rollOver(now);
+      }
+
+      final var v = Math.max(0L, value);
+      buckets[indexOf(v)].increment();
+      max.accumulate(v);
+   }
+
+   /**
+    * Get the snapshot of the most recent complete interval, first completing the current interval if it has
+    * elapsed.
+    *
+    * @return the interval snapshot
+    */
+   public Snapshot getIntervalSnapshot()
+   {
+      return getIntervalSnapshot(currentTime());
+   }
+
+   synchronized Snapshot getIntervalSnapshot(final long now)
+   {
+      rollOver(now);
+      return intervalSnapshot;
+   }
+
+   /**
+    * Complete the current interval if it has elapsed.  If more than one interval has elapsed, nothing was
+    * recorded in the most recent one, and the values of the interval that started it are discarded.
+    *
+    * @param now the current time
+    */
+   private synchronized void rollOver(final long now)
+   {
+      final var elapsedIntervals = (intervalMs > 0L) ? elapsedMillis(intervalStart, now) / intervalMs : 1L;
+      if (elapsedIntervals > 0) {
+         final var snapshot = snapshotAndReset();
+         intervalSnapshot = (elapsedIntervals == 1) ? snapshot : new Snapshot(new long[BUCKET_COUNT], 0L, 0L);
+         intervalStart = (intervalMs > 0L) ? plusMillis(intervalStart, elapsedIntervals * intervalMs) : now;
+      }
+   }
+
+   /**
+    * Take a snapshot of the values recorded since the previous snapshot, and reset the histogram.  Values
+    * recorded concurrently are counted either in this snapshot or in the next one.
+    *
+    * @return the snapshot
+    */
+   public Snapshot snapshotAndReset()
+   {
+      final var counts = new long[BUCKET_COUNT];
+      var total = 0L;
+      for (var i = 0; i < BUCKET_COUNT; i++) {
+         counts[i] = buckets[i].sumThenReset();
+         total += counts[i];
+      }
+
+      return new Snapshot(counts, total, max.getThenReset());
+   }
+
+   static int indexOf(final long value)
+   {
+      if (value < SUB_BUCKET_COUNT) {
+         return (int) value;
+      }
+
+      final var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+      final var shift = exponent - SUB_BUCKET_BITS;
+      return (shift + 1) * SUB_BUCKET_COUNT + (int) ((value >>> shift) & (SUB_BUCKET_COUNT - 1));
+   }
+
+   static long highestValueOf(final int index)
+   {
+      if (index < SUB_BUCKET_COUNT) {
+         return index;
+      }
+
+      final var shift = index / SUB_BUCKET_COUNT - 1;
+      final var lowest = (long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT) << shift;
+      return lowest + ((1L << shift) - 1);
+   }
+
+   /**
+    * An immutable view of the values recorded in one interval.
+    */
+   public static final class Snapshot
+   {
+      private final long[] counts;
+      private final long count;
+      private final long max;
+
+      private Snapshot(final long[] counts, final long count, final long max)
+      {
+         this.counts = counts;
+         this.count = count;
+         this.max = max;
+      }
+
+      /**
+       * Get the number of values recorded.
+       *
+       * @return the number of values
+       */
+      public long getCount()
+      {
+         return count;
+      }
+
+      /**
+       * Get the largest value recorded.
+       *
+       * @return the largest value, or zero if no values were recorded
+       */
+      public long getMax()
+      {
+         return max;
+      }
+
+      /**
+       * Get the value at a percentile, as the highest value of the bucket it falls in.
+       *
+       * @param percentile the percentile, between 0 and 100
+       * @return the value at the percentile, or zero if no values were recorded
+       */
+      public long getValueAtPercentile(final double percentile)
+      {
+         if (count == 0L) {
+            return 0L;
+         }
+
+         final var rank = Math.max(1L, (long) Math.ceil(Math.min(100d, Math.max(0d, percentile)) / 100d * count));
+         var seen = 0L;
+         for (var i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+               return Math.min(highestValueOf(i), max);
+            }
+         }
+
+         return max;
+      }
+   }
+}
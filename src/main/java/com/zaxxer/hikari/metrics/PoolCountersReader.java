@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.metrics;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+
+/**
+ * Reads the live counters that a pool publishes into a memory-mapped file when
+ * {@link com.zaxxer.hikari.HikariConfig#setCountersDirectory(String)} is set, so that another process on the same
+ * host can monitor pools without calling into their JVMs.
+ * <p>
+ * Each pool maps a file named {@code <poolName>-<pid>.hikari} of {@link #FILE_SIZE} bytes, deleted when the pool
+ * shuts down.  The layout is fixed: every field is a little-endian 64-bit integer at the offset given by the
+ * {@code *_OFFSET} constants, written atomically with release ordering, so a reader never sees a torn value.  The
+ * file starts with {@link #MAGIC} and {@link #VERSION}; fields are only ever added at the end, with a new version.
+ * Counters are cumulative since the pool started.  They are published every second, together with the connection and
+ * waiting thread gauges and the update time, so a stale update time indicates that the JVM has died.
+ *
+ * @author Brett Wooldridge
+ */
+public final class PoolCountersReader
+{
+   /** The first eight bytes of a counters file, "HIKARICP" in ASCII read as a little-endian long. */
+   public static final long MAGIC = 0x5043_4952_414B_4948L;
+   public static final long VERSION = 1L;
+   public static final String FILE_SUFFIX = ".hikari";
+   public static final int FILE_SIZE = 128;
+
+   public static final int MAGIC_OFFSET = 0;
+   public static final int VERSION_OFFSET = 8;
+   /** The process id of the JVM. */
+   public static final int PID_OFFSET = 16;
+   /** The time the pool started, in epoch milliseconds. */
+   public static final int START_TIME_OFFSET = 24;
+   /** The time the gauges were last refreshed, in epoch milliseconds. */
+   public static final int UPDATE_TIME_OFFSET = 32;
+   public static final int TOTAL_CONNECTIONS_OFFSET = 40;
+   public static final int IDLE_CONNECTIONS_OFFSET = 48;
+   public static final int ACTIVE_CONNECTIONS_OFFSET = 56;
+   public static final int PENDING_THREADS_OFFSET = 64;
+   public static final int MAX_CONNECTIONS_OFFSET = 72;
+   /** The number of connections handed to the application. */
+   public static final int BORROWS_OFFSET = 80;
+   /** The total time borrows waited for a connection, in nanoseconds. */
+   public static final int BORROW_WAIT_NANOS_OFFSET = 88;
+   public static final int TIMEOUTS_OFFSET = 96;
+   public static final int CREATIONS_OFFSET = 104;
+   public static final int CREATION_FAILURES_OFFSET = 112;
+
+   private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+   private final Path file;
+   private final ByteBuffer buffer;
+
+   private PoolCountersReader(final Path file, final ByteBuffer buffer)
+   {
+      this.file = file;
+      this.buffer = buffer;
+   }
+
+   /**
+    * Map a counters file for reading.
+    *
+    * @param file the counters file
+    * @return the reader
+    * @throws IOException if the file cannot be mapped, or is not a counters file of a supported version
+    */
+   public static PoolCountersReader open(final Path file) throws IOException
+   {
+      try (var channel = FileChannel.open(file)) {
+         if (channel.size() < FILE_SIZE) {
+            throw new IOException(file + " is not a pool counters file");
+         }
+
+         final var reader = new PoolCountersReader(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, FILE_SIZE));
+         if (reader.get(MAGIC_OFFSET) != MAGIC || reader.get(VERSION_OFFSET) != VERSION) {
+            throw new IOException(file + " is not a version " + VERSION + " pool counters file");
+         }
+         return reader;
+      }
+   }
+
+   /**
+    * Read a field.
+    *
+    * @param offset the offset of the field, one of the {@code *_OFFSET} constants
+    * @return the value of the field
+    */
+   public long get(final int offset)
+   {
+      return (long) LONGS.getAcquire(buffer, offset);
+   }
+
+   public Path getFile()
+   {
+      return file;
+   }
+
+   public long getPid()
+   {
+      return get(PID_OFFSET);
+   }
+
+   public long getUpdateTime()
+   {
+      return get(UPDATE_TIME_OFFSET);
+   }
+
+   public long getTotalConnections()
+   {
+      return get(TOTAL_CONNECTIONS_OFFSET);
+   }
+
+   public long getIdleConnections()
+   {
+      return get(IDLE_CONNECTIONS_OFFSET);
+   }
+
+   public long getActiveConnections()
+   {
+      return get(ACTIVE_CONNECTIONS_OFFSET);
+   }
+
+   public long getPendingThreads()
+   {
+      return get(PENDING_THREADS_OFFSET);
+   }
+
+   public long getBorrows()
+   {
+      return get(BORROWS_OFFSET);
+   }
+
+   public long getBorrowWaitNanos()
+   {
+      return get(BORROW_WAIT_NANOS_OFFSET);
+   }
+
+   public long getTimeouts()
+   {
+      return get(TIMEOUTS_OFFSET);
+   }
+
+   public long getCreations()
+   {
+      return get(CREATIONS_OFFSET);
+   }
+
+   public long getCreationFailures()
+   {
+      return get(CREATION_FAILURES_OFFSET);
+   }
+
+   @Override
+   public String toString()
+   {
+      return file.getFileName() + " (pid=" + getPid() + ", updated=" + Instant.ofEpochMilli(getUpdateTime())
+         + ", total=" + getTotalConnections() + ", active=" + getActiveConnections() + ", idle=" + getIdleConnections()
+         + ", waiting=" + getPendingThreads() + ", borrows=" + getBorrows() + ", borrowWaitNanos=" + getBorrowWaitNanos()
+         + ", timeouts=" + getTimeouts() + ", creations=" + getCreations() + ", creationFailures=" + getCreationFailures() + ")";
+   }
+
+   /**
+    * Print the counters of every pool that publishes into a directory.
+    *
+    * @param args the counters directory
+    * @throws IOException if the directory cannot be listed
+    */
+   public static void main(final String[] args) throws IOException
+   {
+      if (args.length != 1) {
+         System.err.println("Usage: java " + PoolCountersReader.class.getName() + " <countersDirectory>");
+         System.exit(1);
+      }
+
+      try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(args[0]), "*" + FILE_SUFFIX)) {
+         for (var file : files) {
+            try {
+               System.out.println(open(file));
+            }
+            catch (IOException e) {
+               System.err.println(e.getMessage());
+            }
+         }
+      }
+   }
+}
@@ -36,6 +36,7 @@ public abstract class PoolStats
    protected volatile int pendingThreads;
    protected volatile int maxConnections;
    protected volatile int minConnections;
+   protected volatile int creationConcurrency;
 
    public PoolStats(final long timeoutMs)
    {
@@ -95,6 +96,14 @@ public abstract class PoolStats
       return minConnections;
    }
 
+   public int getCreationConcurrency() {
+      if (shouldLoad()) {
+         update();
+      }
+
+      return creationConcurrency;
+   }
+
    protected abstract void update();
 
    private boolean shouldLoad()
@@ -46,6 +46,7 @@ public final class CodaHaleMetricsTracker implements IMetricsTracker
    private static final String METRIC_NAME_PENDING_CONNECTIONS = "PendingConnections";
    private static final String METRIC_NAME_MAX_CONNECTIONS = "MaxConnections";
    private static final String METRIC_NAME_MIN_CONNECTIONS = "MinConnections";
+   private static final String METRIC_NAME_CREATION_CONCURRENCY = "ConnectionCreationConcurrency";
 
    CodaHaleMetricsTracker(final String poolName, final PoolStats poolStats, final MetricRegistry registry)
    {
@@ -73,6 +74,9 @@ public final class CodaHaleMetricsTracker implements IMetricsTracker
 
       registry.register(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_MIN_CONNECTIONS),
          (Gauge<Integer>) poolStats::getMinConnections);
+
+      registry.register(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_CREATION_CONCURRENCY),
+         (Gauge<Integer>) poolStats::getCreationConcurrency);
    }
 
    /** {@inheritDoc} */
@@ -89,6 +93,7 @@ public final class CodaHaleMetricsTracker implements IMetricsTracker
       registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_PENDING_CONNECTIONS));
       registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_MAX_CONNECTIONS));
       registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_MIN_CONNECTIONS));
+      registry.remove(MetricRegistry.name(poolName, METRIC_CATEGORY, METRIC_NAME_CREATION_CONCURRENCY));
    }
 
    /** {@inheritDoc} */
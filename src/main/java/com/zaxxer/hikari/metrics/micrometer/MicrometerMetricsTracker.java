@@ -48,11 +48,20 @@ public class MicrometerMetricsTracker implements IMetricsTracker
    private static final String METRIC_NAME_PENDING_CONNECTIONS = HIKARI_METRIC_NAME_PREFIX + ".connections.pending";
    private static final String METRIC_NAME_MAX_CONNECTIONS = HIKARI_METRIC_NAME_PREFIX + ".connections.max";
    private static final String METRIC_NAME_MIN_CONNECTIONS = HIKARI_METRIC_NAME_PREFIX + ".connections.min";
+   private static final String METRIC_NAME_CREATION_CONCURRENCY = HIKARI_METRIC_NAME_PREFIX + ".connections.creation.concurrency";
+   private static final String METRIC_NAME_STATEMENT_CACHE_HITS = HIKARI_METRIC_NAME_PREFIX + ".statements.cache.hits";
+   private static final String METRIC_NAME_STATEMENT_CACHE_MISSES = HIKARI_METRIC_NAME_PREFIX + ".statements.cache.misses";
+   private static final String METRIC_NAME_STATEMENT_EXECUTION = HIKARI_METRIC_NAME_PREFIX + ".statements.execution";
+   private static final String METRIC_NAME_RESULTSET_ITERATION = HIKARI_METRIC_NAME_PREFIX + ".statements.resultset";
 
    private final Timer connectionObtainTimer;
    private final Counter connectionTimeoutCounter;
    private final Timer connectionUsage;
    private final Timer connectionCreation;
+   private final Counter statementCacheHitCounter;
+   private final Counter statementCacheMissCounter;
+   private final Timer statementExecution;
+   private final Timer resultSetIteration;
    @SuppressWarnings("FieldCanBeLocal")
    private final Gauge totalConnectionGauge;
    @SuppressWarnings("FieldCanBeLocal")
@@ -66,6 +75,8 @@ public class MicrometerMetricsTracker implements IMetricsTracker
    @SuppressWarnings("FieldCanBeLocal")
    private final Gauge minConnectionGauge;
    @SuppressWarnings("FieldCanBeLocal")
+   private final Gauge creationConcurrencyGauge;
+   @SuppressWarnings("FieldCanBeLocal")
    private final MeterRegistry meterRegistry;
    @SuppressWarnings("FieldCanBeLocal")
    private final PoolStats poolStats;
@@ -98,6 +109,26 @@ public class MicrometerMetricsTracker implements IMetricsTracker
          .tags(METRIC_CATEGORY, poolName)
          .register(meterRegistry);
 
+      this.statementCacheHitCounter = Counter.builder(METRIC_NAME_STATEMENT_CACHE_HITS)
+         .description("Prepared statement cache hit total count")
+         .tags(METRIC_CATEGORY, poolName)
+         .register(meterRegistry);
+
+      this.statementCacheMissCounter = Counter.builder(METRIC_NAME_STATEMENT_CACHE_MISSES)
+         .description("Prepared statement cache miss total count")
+         .tags(METRIC_CATEGORY, poolName)
+         .register(meterRegistry);
+
+      this.statementExecution = Timer.builder(METRIC_NAME_STATEMENT_EXECUTION)
+         .description("Statement execution time")
+         .tags(METRIC_CATEGORY, poolName)
+         .register(meterRegistry);
+
+      this.resultSetIteration = Timer.builder(METRIC_NAME_RESULTSET_ITERATION)
+         .description("Time from the end of a query until its result set is exhausted or closed")
+         .tags(METRIC_CATEGORY, poolName)
+         .register(meterRegistry);
+
       this.totalConnectionGauge = Gauge.builder(METRIC_NAME_TOTAL_CONNECTIONS, poolStats, PoolStats::getTotalConnections)
          .description("Total connections")
          .tags(METRIC_CATEGORY, poolName)
@@ -128,6 +159,11 @@ public class MicrometerMetricsTracker implements IMetricsTracker
          .tags(METRIC_CATEGORY, poolName)
          .register(meterRegistry);
 
+      this.creationConcurrencyGauge = Gauge.builder(METRIC_NAME_CREATION_CONCURRENCY, poolStats, PoolStats::getCreationConcurrency)
+         .description("Connection creation concurrency")
+         .tags(METRIC_CATEGORY, poolName)
+         .register(meterRegistry);
+
    }
 
    /** {@inheritDoc} */
@@ -156,17 +192,46 @@ public class MicrometerMetricsTracker implements IMetricsTracker
       connectionCreation.record(connectionCreatedMillis, TimeUnit.MILLISECONDS);
    }
 
+   @Override
+   public void recordStatementCacheHit()
+   {
+      statementCacheHitCounter.increment();
+   }
+
+   @Override
+   public void recordStatementCacheMiss()
+   {
+      statementCacheMissCounter.increment();
+   }
+
+   @Override
+   public void recordStatementExecutionNanos(final long elapsedExecutionNanos)
+   {
+      statementExecution.record(elapsedExecutionNanos, TimeUnit.NANOSECONDS);
+   }
+
+   @Override
+   public void recordResultSetIterationNanos(final long elapsedIterationNanos)
+   {
+      resultSetIteration.record(elapsedIterationNanos, TimeUnit.NANOSECONDS);
+   }
+
    @Override
    public void close() {
       meterRegistry.remove(connectionObtainTimer);
       meterRegistry.remove(connectionTimeoutCounter);
       meterRegistry.remove(connectionUsage);
       meterRegistry.remove(connectionCreation);
+      meterRegistry.remove(statementCacheHitCounter);
+      meterRegistry.remove(statementCacheMissCounter);
+      meterRegistry.remove(statementExecution);
+      meterRegistry.remove(resultSetIteration);
       meterRegistry.remove(totalConnectionGauge);
       meterRegistry.remove(idleConnectionGauge);
       meterRegistry.remove(activeConnectionGauge);
       meterRegistry.remove(pendingConnectionGauge);
       meterRegistry.remove(maxConnectionGauge);
       meterRegistry.remove(minConnectionGauge);
+      meterRegistry.remove(creationConcurrencyGauge);
    }
 }
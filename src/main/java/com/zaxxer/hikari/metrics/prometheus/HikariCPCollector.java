@@ -49,7 +49,9 @@ class HikariCPCollector extends Collector
          createGauge("hikaricp_max_connections", "Max connections",
             PoolStats::getMaxConnections),
          createGauge("hikaricp_min_connections", "Min connections",
-            PoolStats::getMinConnections)
+            PoolStats::getMinConnections),
+         createGauge("hikaricp_connection_creation_concurrency", "Connection creation concurrency",
+            PoolStats::getCreationConcurrency)
       );
    }
 
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.CallSiteStats;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.LatencyHistogram;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Attributes connection hold times to the call sites that borrowed the connections.  A random 1-in-N of borrows
+ * capture the innermost frames of the borrowing thread outside the pool, and the hold time of the connection is
+ * recorded into a histogram of that call site when it is returned.  The number of distinct call sites is bounded;
+ * once the limit is reached, further call sites are counted together as {@link #OTHER}.
+ *
+ * @author Brett Wooldridge
+ */
+final class CallSiteTracker
+{
+   static final String OTHER = "(other)";
+
+   private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+   private static final Set<String> POOL_CLASSES = Set.of(CallSiteTracker.class.getName(), HikariPool.class.getName(), HikariDataSource.class.getName());
+   private static final int MAX_CALL_SITES = 64;
+
+   private final int sampleRate;
+   private final int depth;
+   private final long intervalMs;
+   private final ConcurrentHashMap<String, LatencyHistogram> holdMillis;
+
+   CallSiteTracker(final int sampleRate, final int depth, final long intervalMs)
+   {
+      this.sampleRate = sampleRate;
+      this.depth = depth;
+      this.intervalMs = intervalMs;
+      this.holdMillis = new ConcurrentHashMap<>();
+   }
+
+   /**
+    * Capture the call site of the current thread, if this borrow is sampled.
+    *
+    * @return the call site, or null if this borrow is not sampled
+    */
+   String sample()
+   {
+      if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+         return null;
+      }
+
+      return STACK_WALKER.walk(s -> s.dropWhile(f -> POOL_CLASSES.contains(f.getClassName()))
+                                     .limit(depth)
+                                     .map(f -> f.getClassName() + '.' + f.getMethodName() + '(' + f.getFileName() + ':' + f.getLineNumber() + ')')
+                                     .collect(Collectors.joining(" <- ")));
+   }
+
+   /**
+    * Record the hold time of a connection borrowed from a sampled call site.
+    *
+    * @param callSite the call site
+    * @param heldMillis the hold time in milliseconds
+    */
+   void recordHold(final String callSite, final long heldMillis)
+   {
+      var histogram = holdMillis.get(callSite);
+      if (histogram == null) {
+         final var key = (holdMillis.size() < MAX_CALL_SITES) ? callSite : OTHER;
+         histogram = holdMillis.computeIfAbsent(key, k -> new LatencyHistogram(intervalMs));
+      }
+
+      histogram.record(heldMillis);
+   }
+
+   /**
+    * Get the hold time statistics of every call site, most connections in use first, then longest p99 hold time.
+    *
+    * @param inUse the entries currently in use
+    * @return the call site statistics
+    */
+   CallSiteStats[] getStats(final Collection<PoolEntry> inUse)
+   {
+      final var inUseCounts = new HashMap<String, Integer>();
+      for (var entry : inUse) {
+         final var callSite = entry.callSite;
+         if (callSite != null) {
+            inUseCounts.merge(holdMillis.containsKey(callSite) || holdMillis.size() < MAX_CALL_SITES ? callSite : OTHER, 1, Integer::sum);
+         }
+      }
+
+      final var callSites = new HashMap<String, LatencyHistogram.Snapshot>();
+      holdMillis.forEach((callSite, histogram) -> callSites.put(callSite, histogram.getIntervalSnapshot()));
+      inUseCounts.keySet().forEach(callSite -> callSites.putIfAbsent(callSite, null));
+
+      return callSites.entrySet().stream()
+         .map(e -> {
+            final var snapshot = e.getValue();
+            final int count = inUseCounts.getOrDefault(e.getKey(), 0);
+            return (snapshot == null) ? new CallSiteStats(e.getKey(), count, 0L, 0L, 0L, 0L)
+                                      : new CallSiteStats(e.getKey(), count, snapshot.getCount(), snapshot.getValueAtPercentile(50d),
+                                                          snapshot.getValueAtPercentile(99d), snapshot.getMax());
+         })
+         .sorted(Comparator.comparingInt(CallSiteStats::getInUse).thenComparingLong(CallSiteStats::getP99Millis).reversed())
+         .toArray(CallSiteStats[]::new);
+   }
+
+   /**
+    * Summarize the call sites holding the most connections, for a connection timeout message.  Only the in-use
+    * entries are counted; the histograms are left alone, so that a timeout does not roll their interval over.
+    *
+    * @param inUse the entries currently in use
+    * @param limit the maximum number of call sites to include
+    * @return the summary, or an empty string if no sampled connection is in use
+    */
+   String summarize(final Collection<PoolEntry> inUse, final int limit)
+   {
+      final var inUseCounts = new HashMap<String, Integer>();
+      for (var entry : inUse) {
+         if (entry.callSite != null) {
+            inUseCounts.merge(entry.callSite, 1, Integer::sum);
+         }
+      }
+
+      final var sb = new StringBuilder();
+      inUseCounts.entrySet().stream()
+         .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+         .limit(limit)
+         .forEach(e -> sb.append((sb.length() == 0) ? " Sampled connections in use by call site: " : "; ")
+                         .append(e.getKey()).append(" (inUse=").append(e.getValue()).append(')'));
+      return sb.toString();
+   }
+}
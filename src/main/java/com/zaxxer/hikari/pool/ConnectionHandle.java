@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.sql.Connection;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * The connection handed to the application for one borrow of a reused {@link ProxyConnection}.  A handle
+ * only holds the reused proxy and the generation of the borrow it was created for, and forwards every
+ * call to the proxy while that borrow lasts.  Once the proxy is handed to the next borrower, calls
+ * through an older handle throw "Connection is closed", and closing it again does nothing.
+ *
+ * @author Brett Wooldridge
+ */
+public abstract class ConnectionHandle implements Connection
+{
+   @SuppressWarnings("WeakerAccess")
+   protected final ProxyConnection delegate;
+
+   private final int generation;
+
+   protected ConnectionHandle(final ProxyConnection delegate, final int generation)
+   {
+      this.delegate = delegate;
+      this.generation = generation;
+   }
+
+   /**
+    * Get the proxy connection, if the borrow of this handle is still current.
+    *
+    * @return the proxy connection
+    * @throws SQLException if the proxy connection has since been handed to another borrower
+    */
+   @SuppressWarnings("WeakerAccess")
+   protected final ProxyConnection live() throws SQLException
+   {
+      if (isStale()) {
+         throw new SQLException("Connection is closed");
+      }
+      return delegate;
+   }
+
+   /**
+    * Get the proxy connection for pool internals, such as eviction.
+    *
+    * @return the proxy connection, or null if it has since been handed to another borrower
+    */
+   final ProxyConnection getProxyConnection()
+   {
+      return isStale() ? null : delegate;
+   }
+
+   final boolean isStale()
+   {
+      return generation != delegate.getGeneration();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public final String toString()
+   {
+      return this.getClass().getSimpleName() + '@' + System.identityHashCode(this) + " wrapping " + (isStale() ? "a later borrow" : delegate);
+   }
+
+   // **********************************************************************
+   //              "Overridden" java.sql.Connection Methods
+   // **********************************************************************
+
+   /** {@inheritDoc} */
+   @Override
+   public final void close() throws SQLException
+   {
+      if (!isStale()) {
+         delegate.close();
+      }
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public final boolean isClosed() throws SQLException
+   {
+      return isStale() || delegate.isClosed();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public final boolean isValid(int timeout) throws SQLException
+   {
+      return !isStale() && delegate.isValid(timeout);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public final void abort(Executor executor) throws SQLException
+   {
+      if (!isStale()) {
+         delegate.abort(executor);
+      }
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public final void setClientInfo(String name, String value) throws SQLClientInfoException
+   {
+      if (isStale()) {
+         throw new SQLClientInfoException("Connection is closed", null);
+      }
+      delegate.setClientInfo(name, value);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public final void setClientInfo(Properties properties) throws SQLClientInfoException
+   {
+      if (isStale()) {
+         throw new SQLClientInfoException("Connection is closed", null);
+      }
+      delegate.setClientInfo(properties);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public final boolean isWrapperFor(Class<?> iface) throws SQLException
+   {
+      return live().isWrapperFor(iface);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public final <T> T unwrap(Class<T> iface) throws SQLException
+   {
+      return live().unwrap(iface);
+   }
+}
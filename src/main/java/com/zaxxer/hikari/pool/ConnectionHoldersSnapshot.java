@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.zaxxer.hikari.util.ClockSource.elapsedMillis;
+
+/**
+ * A snapshot of the connections that were in use when a connection request timed out, longest held first.  It is
+ * attached to the timeout exception as a suppressed exception, so that it is printed with the stack trace of the
+ * timeout, and can be retrieved with {@link Throwable#getSuppressed()}.  It has no stack trace of its own.
+ *
+ * @author Brett Wooldridge
+ */
+public final class ConnectionHoldersSnapshot extends Exception
+{
+   private static final long serialVersionUID = 5276170416396853427L;
+
+   private final int inUse;
+   private final List<Holder> holders;
+
+   private ConnectionHoldersSnapshot(final int inUse, final List<Holder> holders)
+   {
+      super(null, null, false, false);
+      this.inUse = inUse;
+      this.holders = holders;
+   }
+
+   /**
+    * Capture the longest held of the specified in-use entries.
+    *
+    * @param inUse the entries in use
+    * @param limit the maximum number of holders to capture
+    * @param now the current time
+    * @return the snapshot
+    */
+   static ConnectionHoldersSnapshot capture(final Collection<PoolEntry> inUse, final int limit, final long now)
+   {
+      final var holders = new ArrayList<Holder>(inUse.size());
+      for (var entry : inUse) {
+         final var borrower = entry.borrower;
+         holders.add(new Holder(String.valueOf(entry.connection), elapsedMillis(entry.lastBorrowed, now),
+                                (borrower != null) ? borrower.getName() : null, entry.callSite));
+      }
+
+      holders.sort(Comparator.comparingLong(Holder::getHeldMillis).reversed());
+      return new ConnectionHoldersSnapshot(holders.size(), List.copyOf(holders.subList(0, Math.min(limit, holders.size()))));
+   }
+
+   /**
+    * @return the number of connections that were in use
+    */
+   public int getInUse()
+   {
+      return inUse;
+   }
+
+   /**
+    * @return the longest held of the connections that were in use, longest first
+    */
+   public List<Holder> getHolders()
+   {
+      return holders;
+   }
+
+   /**
+    * @return the longest time any connection had been held, in milliseconds, or -1 if none was in use
+    */
+   public long getLongestHeldMillis()
+   {
+      return holders.isEmpty() ? -1L : holders.get(0).getHeldMillis();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public String getMessage()
+   {
+      final var sb = new StringBuilder("Connections in use at timeout: ").append(inUse);
+      if (holders.size() < inUse) {
+         sb.append(", longest held ").append(holders.size());
+      }
+      holders.forEach(holder -> sb.append("\n\t").append(holder));
+      return sb.toString();
+   }
+
+   /**
+    * One connection that was in use.
+    */
+   public static final class Holder implements Serializable
+   {
+      private static final long serialVersionUID = -2918561180526711393L;
+
+      private final String connection;
+      private final long heldMillis;
+      private final String threadName;
+      private final String callSite;
+
+      Holder(final String connection, final long heldMillis, final String threadName, final String callSite)
+      {
+         this.connection = connection;
+         this.heldMillis = heldMillis;
+         this.threadName = threadName;
+         this.callSite = callSite;
+      }
+
+      /**
+       * @return the connection
+       */
+      public String getConnection()
+      {
+         return connection;
+      }
+
+      /**
+       * @return the time the connection had been held, in milliseconds
+       */
+      public long getHeldMillis()
+      {
+         return heldMillis;
+      }
+
+      /**
+       * @return the name of the thread that borrowed the connection
+       */
+      public String getThreadName()
+      {
+         return threadName;
+      }
+
+      /**
+       * @return the call site that borrowed the connection, or null if the borrow was not sampled, see
+       *         {@link com.zaxxer.hikari.HikariConfig#setCallSiteSampleRate(int)}
+       */
+      public String getCallSite()
+      {
+         return callSite;
+      }
+
+      @Override
+      public String toString()
+      {
+         return connection + ((heldMillis >= 0L) ? " held " + heldMillis + "ms" : " held") + " by thread " + threadName + ((callSite != null) ? " at " + callSite : "");
+      }
+   }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.util.function.IntConsumer;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * An additive-increase/multiplicative-decrease limit on the number of connections that are
+ * created concurrently.  After every <i>limit</i> consecutive creations that completed within
+ * twice the baseline creation time (plus a small allowance for noise) the limit is raised by
+ * one, and it is halved whenever a creation fails or takes longer than that.  The baseline
+ * tracks the fastest recent creation time, and drifts slowly upward so that a permanent change
+ * in the database is eventually accepted as the new normal.
+ *
+ * @author Brett Wooldridge
+ */
+final class CreationConcurrencyLimit
+{
+   private static final int TOLERANCE = 2;
+   private static final long NOISE_NANOS = MILLISECONDS.toNanos(1);
+
+   private final int maxLimit;
+   private final IntConsumer limitListener;
+
+   private int limit;
+   private int successes;
+   private long baselineNanos;
+
+   /**
+    * Construct a limit that starts at one.
+    *
+    * @param maxLimit the upper bound of the limit
+    * @param limitListener called (under the lock of this object) whenever the limit changes
+    */
+   CreationConcurrencyLimit(final int maxLimit, final IntConsumer limitListener)
+   {
+      this.maxLimit = Math.max(1, maxLimit);
+      this.limitListener = limitListener;
+      this.limit = 1;
+   }
+
+   /**
+    * Record a successful connection creation.
+    *
+    * @param elapsedNanos the time taken to create the connection
+    */
+   synchronized void onSuccess(final long elapsedNanos)
+   {
+      if (maxLimit == 1) {
+         return;
+      }
+
+      if (baselineNanos == 0L || elapsedNanos < baselineNanos) {
+         baselineNanos = Math.max(1L, elapsedNanos);
+      }
+      else {
+         baselineNanos += (elapsedNanos - baselineNanos) / 64;
+      }
+
+      // creation times within a millisecond of each other are considered flat, whatever the baseline
+      if (elapsedNanos > TOLERANCE * baselineNanos + NOISE_NANOS) {
+         decrease();
+      }
+      else if (++successes >= limit && limit < maxLimit) {
+         successes = 0;
+         setLimit(limit + 1);
+      }
+   }
+
+   /**
+    * Record a failed connection creation.
+    */
+   synchronized void onFailure()
+   {
+      if (maxLimit > 1) {
+         decrease();
+      }
+   }
+
+   synchronized int getLimit()
+   {
+      return limit;
+   }
+
+   private void decrease()
+   {
+      successes = 0;
+      setLimit(Math.max(1, limit / 2));
+   }
+
+   private void setLimit(final int newLimit)
+   {
+      if (newLimit != limit) {
+         limit = newLimit;
+         limitListener.accept(newLimit);
+      }
+   }
+}
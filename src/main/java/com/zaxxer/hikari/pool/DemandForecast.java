@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+import static com.zaxxer.hikari.util.ClockSource.elapsedMillis;
+
+/**
+ * A short-horizon forecast of the number of connections the pool will need, by Little's law:
+ * the expected number of connections in use is the borrow rate multiplied by the mean hold
+ * time.  The borrow rate is smoothed by a fast and a slow exponentially weighted moving
+ * average; the larger of the two is used, so that the forecast follows a ramp up quickly but
+ * decays slowly after a burst.  Headroom of the square root of the expected number of
+ * connections in use is added, as in the square-root staffing rule for queues with random
+ * arrivals.
+ * <p>
+ * Borrows and returns only increment striped counters; the averages are updated by
+ * {@link #update()}, which is expected to be called periodically from a single thread.
+ *
+ * @author Brett Wooldridge
+ */
+final class DemandForecast
+{
+   private static final double FAST_ALPHA = 0.5;
+   private static final double SLOW_ALPHA = 0.1;
+   private static final double HOLD_ALPHA = 0.2;
+
+   private final LongAdder borrows;
+   private final LongAdder returns;
+   private final LongAdder holdMillis;
+
+   private long lastUpdate;
+   private double fastRate;
+   private double slowRate;
+   private double meanHoldMillis;
+   private volatile int forecast;
+
+   DemandForecast()
+   {
+      this.borrows = new LongAdder();
+      this.returns = new LongAdder();
+      this.holdMillis = new LongAdder();
+      this.lastUpdate = currentTime();
+   }
+
+   /**
+    * Record a connection borrow.
+    */
+   void recordBorrow()
+   {
+      borrows.increment();
+   }
+
+   /**
+    * Record a connection return.
+    *
+    * @param elapsedMillis the time the connection was held by the borrower
+    */
+   void recordReturn(final long elapsedMillis)
+   {
+      holdMillis.add(Math.max(0L, elapsedMillis));
+      returns.increment();
+   }
+
+   /**
+    * Fold the borrows and returns since the previous update into the moving averages.
+    *
+    * @return the updated forecast
+    */
+   synchronized int update()
+   {
+      final var now = currentTime();
+      final var elapsedMs = elapsedMillis(lastUpdate, now);
+      if (elapsedMs <= 0L) {
+         return forecast;
+      }
+      lastUpdate = now;
+
+      final var rate = borrows.sumThenReset() * 1000d / elapsedMs;
+      fastRate += FAST_ALPHA * (rate - fastRate);
+      slowRate += SLOW_ALPHA * (rate - slowRate);
+
+      final var returned = returns.sumThenReset();
+      final var held = holdMillis.sumThenReset();
+      if (returned > 0L) {
+         final var hold = (double) held / returned;
+         meanHoldMillis = (meanHoldMillis == 0d) ? hold : meanHoldMillis + HOLD_ALPHA * (hold - meanHoldMillis);
+      }
+
+      // a connection is occupied for at least a millisecond per borrow, however short the hold
+      final var inUse = Math.max(fastRate, slowRate) * Math.max(1d, meanHoldMillis) / 1000d;
+
+      // ignore the long tail of the decaying averages once demand has gone
+      forecast = (inUse < 0.05d) ? 0 : (int) Math.ceil(inUse + Math.sqrt(inUse));
+      return forecast;
+   }
+
+   /**
+    * Get the most recent forecast of the number of connections needed.
+    *
+    * @return the forecast number of connections
+    */
+   int getForecast()
+   {
+      return forecast;
+   }
+}
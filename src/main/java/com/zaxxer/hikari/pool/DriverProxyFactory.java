@@ -0,0 +1,476 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.util.FastList;
+import javassist.CannotCompileException;
+import javassist.ClassMap;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.Modifier;
+import javassist.NotFoundException;
+import javassist.bytecode.ClassFile;
+import javassist.expr.ExprEditor;
+import javassist.expr.FieldAccess;
+import javassist.expr.MethodCall;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates, at runtime, proxy classes for the concrete classes of one driver.  The build-time proxies call
+ * their delegates through the {@code java.sql} interfaces, and with several drivers loaded those call sites
+ * become megamorphic.  The generated classes call the driver class instead, so that the JIT can devirtualize
+ * and inline through the proxy.  Methods that the abstract proxy classes implement themselves, such as
+ * {@code prepareStatement()}, {@code commit()} or {@code executeQuery()}, are copied into the generated class
+ * with their delegate calls rewritten the same way.
+ * <p>
+ * The connection proxy class is generated when the first connection of a driver class is created.  Statement
+ * and result set proxy classes are generated when the first statement or result set of each driver class is
+ * created through a generated proxy, so they are only used together with a generated connection proxy.
+ * <p>
+ * Generation needs Javassist at runtime, and the driver class must be public and visible from the class
+ * loader of HikariCP.  When either is not the case, the build-time proxies are used for that class.  A
+ * method that the driver only inherits as an interface default, or that the driver no longer holds after
+ * its proxy was closed, is called through the interface.
+ *
+ * @author Brett Wooldridge
+ */
+final class DriverProxyFactory
+{
+   private static final Logger LOGGER = LoggerFactory.getLogger(DriverProxyFactory.class);
+
+   private static final AtomicInteger CLASS_COUNTER = new AtomicInteger();
+
+   private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(void.class, PoolEntry.class, Connection.class,
+      FastList.class, ProxyLeakTask.class, boolean.class, boolean.class);
+
+   private static final ClassValue<Optional<DriverProxyFactory>> FACTORIES = new ClassValue<>() {
+      @Override
+      protected Optional<DriverProxyFactory> computeValue(final Class<?> driverClass)
+      {
+         return generate(ProxyConnection.class, Connection.class, driverClass, CONSTRUCTOR_TYPE).map(DriverProxyFactory::new);
+      }
+   };
+
+   private static final ClassValue<Optional<MethodHandle>> STATEMENTS = new ProxyClassValue(ProxyStatement.class,
+      Statement.class, MethodType.methodType(void.class, ProxyConnection.class, Statement.class));
+
+   private static final ClassValue<Optional<MethodHandle>> PREPARED_STATEMENTS = new ProxyClassValue(ProxyPreparedStatement.class,
+      PreparedStatement.class, MethodType.methodType(void.class, ProxyConnection.class, PreparedStatement.class));
+
+   private static final ClassValue<Optional<MethodHandle>> CALLABLE_STATEMENTS = new ProxyClassValue(ProxyCallableStatement.class,
+      CallableStatement.class, MethodType.methodType(void.class, ProxyConnection.class, CallableStatement.class));
+
+   private static final ClassValue<Optional<MethodHandle>> RESULT_SETS = new ProxyClassValue(ProxyResultSet.class,
+      ResultSet.class, MethodType.methodType(void.class, ProxyConnection.class, ProxyStatement.class, ResultSet.class));
+
+   private final MethodHandle constructor;
+
+   private DriverProxyFactory(final MethodHandle constructor)
+   {
+      this.constructor = constructor;
+   }
+
+   /**
+    * Get the proxy factory for a driver connection class, generating the proxy class on first use.
+    *
+    * @param driverClass the concrete class of the driver connections
+    * @return the factory, or null if no proxy class can be generated for the driver class
+    */
+   static DriverProxyFactory forClass(final Class<?> driverClass)
+   {
+      return FACTORIES.get(driverClass).orElse(null);
+   }
+
+   /**
+    * Create a proxy for the specified {@link Connection} instance, which must be of the class this
+    * factory was generated for.
+    *
+    * @see ProxyFactory#getProxyConnection(PoolEntry, Connection, FastList, ProxyLeakTask, boolean, boolean)
+    */
+   ProxyConnection getProxyConnection(final PoolEntry poolEntry, final Connection connection, final FastList<ProxyStatement> openStatements, final ProxyLeakTask leakTask, final boolean isReadOnly, final boolean isAutoCommit)
+   {
+      try {
+         return (ProxyConnection) constructor.invokeExact(poolEntry, connection, openStatements, leakTask, isReadOnly, isAutoCommit);
+      }
+      catch (RuntimeException | Error e) {
+         throw e;
+      }
+      catch (Throwable e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   // The methods below replace the ProxyFactory calls of the methods copied into generated proxy classes
+
+   static Statement getProxyStatement(final ProxyConnection connection, final Statement statement)
+   {
+      final var constructor = (statement != null) ? STATEMENTS.get(statement.getClass()).orElse(null) : null;
+      if (constructor == null) {
+         return ProxyFactory.getProxyStatement(connection, statement);
+      }
+
+      try {
+         return (ProxyStatement) constructor.invokeExact(connection, statement);
+      }
+      catch (RuntimeException | Error e) {
+         throw e;
+      }
+      catch (Throwable e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   static PreparedStatement getProxyPreparedStatement(final ProxyConnection connection, final PreparedStatement statement)
+   {
+      final var constructor = (statement != null) ? PREPARED_STATEMENTS.get(statement.getClass()).orElse(null) : null;
+      if (constructor == null) {
+         return ProxyFactory.getProxyPreparedStatement(connection, statement);
+      }
+
+      try {
+         return (ProxyPreparedStatement) constructor.invokeExact(connection, statement);
+      }
+      catch (RuntimeException | Error e) {
+         throw e;
+      }
+      catch (Throwable e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   static CallableStatement getProxyCallableStatement(final ProxyConnection connection, final CallableStatement statement)
+   {
+      final var constructor = (statement != null) ? CALLABLE_STATEMENTS.get(statement.getClass()).orElse(null) : null;
+      if (constructor == null) {
+         return ProxyFactory.getProxyCallableStatement(connection, statement);
+      }
+
+      try {
+         return (ProxyCallableStatement) constructor.invokeExact(connection, statement);
+      }
+      catch (RuntimeException | Error e) {
+         throw e;
+      }
+      catch (Throwable e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   static ResultSet getProxyResultSet(final ProxyConnection connection, final ProxyStatement statement, final ResultSet resultSet)
+   {
+      final var constructor = (resultSet != null) ? RESULT_SETS.get(resultSet.getClass()).orElse(null) : null;
+      if (constructor == null) {
+         return ProxyFactory.getProxyResultSet(connection, statement, resultSet);
+      }
+
+      try {
+         return (ProxyResultSet) constructor.invokeExact(connection, statement, resultSet);
+      }
+      catch (RuntimeException | Error e) {
+         throw e;
+      }
+      catch (Throwable e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * Generate and define a proxy class of a driver class.
+    *
+    * @param superClass the abstract proxy class to extend
+    * @param primaryInterface the JDBC interface the proxy implements
+    * @param driverClass the concrete driver class of the delegates
+    * @param constructorType the type of the constructor of the abstract proxy class
+    * @return a constructor handle returning the abstract proxy class, or empty if no class can be generated
+    */
+   private static Optional<MethodHandle> generate(final Class<?> superClass, final Class<?> primaryInterface, final Class<?> driverClass, final MethodType constructorType)
+   {
+      try {
+         if (!isAccessible(driverClass)) {
+            LOGGER.info("Driver class {} is not accessible, using interface proxies", driverClass.getName());
+            return Optional.empty();
+         }
+
+         superClass.getModule().addReads(driverClass.getModule());
+
+         final var lookup = MethodHandles.lookup();
+         final var proxyClass = lookup.defineClass(generateProxyClass(superClass, primaryInterface, driverClass));
+         final var constructor = lookup.findConstructor(proxyClass, constructorType)
+            .asType(constructorType.changeReturnType(superClass));
+
+         LOGGER.debug("Generated {} for driver class {}", proxyClass.getName(), driverClass.getName());
+         return Optional.of(constructor);
+      }
+      catch (Exception | LinkageError e) {
+         LOGGER.warn("Failed to generate a proxy for driver class {}, using interface proxies", driverClass.getName(), e);
+         return Optional.empty();
+      }
+   }
+
+   private static byte[] generateProxyClass(final Class<?> superClass, final Class<?> primaryInterface, final Class<?> driverClass) throws Exception
+   {
+      final var classPool = new ClassPool();
+      classPool.importPackage("java.sql");
+      classPool.appendClassPath(new LoaderClassPath(superClass.getClassLoader()));
+      classPool.appendClassPath(new LoaderClassPath(driverClass.getClassLoader()));
+
+      final var superCt = classPool.getCtClass(superClass.getName());
+      final var newClassName = superClass.getPackageName() + ".Hikari" + superClass.getSimpleName() + "$" + driverClass.getSimpleName() + CLASS_COUNTER.incrementAndGet();
+      final var targetCt = classPool.makeClass(newClassName, superCt);
+      targetCt.setModifiers(Modifier.setPublic(Modifier.FINAL));
+
+      // Make a set of method signatures we inherit implementation for, so we don't generate delegates for these
+      final var superSigs = new HashSet<String>();
+      for (var method : superCt.getMethods()) {
+         if ((method.getModifiers() & Modifier.FINAL) == Modifier.FINAL) {
+            superSigs.add(method.getName() + method.getSignature());
+         }
+      }
+
+      final var interfaces = getAllInterfaces(primaryInterface);
+      final var interfaceNames = new HashSet<String>();
+      interfaces.forEach(intf -> interfaceNames.add(intf.getName()));
+
+      final var driver = driverClass.getName();
+      final var methods = new HashSet<String>();
+      for (var intf : interfaces) {
+         final var intfCt = classPool.getCtClass(intf.getName());
+         targetCt.addInterface(intfCt);
+         for (var intfMethod : intfCt.getDeclaredMethods()) {
+            final var signature = intfMethod.getName() + intfMethod.getSignature();
+            if (superSigs.contains(signature) || !methods.add(signature)) {
+               continue;
+            }
+
+            final var superMethod = superCt.getMethod(intfMethod.getName(), intfMethod.getSignature());
+            if ((superMethod.getModifiers() & Modifier.ABSTRACT) != Modifier.ABSTRACT && !superMethod.getDeclaringClass().isInterface()) {
+               targetCt.addMethod(copyMethod(superMethod, throwsSqlException(intfMethod), targetCt, driverClass, interfaceNames));
+               continue;
+            }
+
+            final var method = CtNewMethod.copy(intfMethod, targetCt, null);
+            final var isVoid = method.getReturnType() == CtClass.voidType;
+            final var returns = isVoid ? "" : "return ";
+            final var interfaceCall = returns + "((" + primaryInterface.getName() + ") delegate)." + method.getName() + "($$);";
+
+            String call;
+            if (isCallableOnClass(driverClass, intf, intfMethod)) {
+               // a proxy that was closed holds a placeholder rather than the driver object
+               call = "if (delegate instanceof " + driver + ") { " + returns + "((" + driver + ") delegate)." + method.getName() + "($$); "
+                  + (isVoid ? "return; " : "") + "} " + interfaceCall;
+            }
+            else {
+               call = interfaceCall;
+            }
+
+            method.setBody(throwsSqlException(intfMethod)
+                              ? "{ try { " + call + " } catch (SQLException e) { throw checkException(e); } }"
+                              : "{ " + call + " }");
+            targetCt.addMethod(method);
+         }
+      }
+
+      targetCt.getClassFile().setMajorVersion(ClassFile.JAVA_8);
+      return targetCt.toBytecode();
+   }
+
+   /**
+    * Copy a method that the abstract proxy class implements into the generated class, rewriting its calls
+    * to the JDBC interfaces into calls to the driver class, and its creation of statement and result set
+    * proxies into the driver specialized ones.  A method that uses private members of the abstract proxy
+    * class cannot be copied, so it calls the inherited implementation instead.  Like the build-time proxies,
+    * the copy passes the SQLExceptions it throws through checkException() if the interface method declares them.
+    */
+   private static CtMethod copyMethod(final CtMethod superMethod, final boolean isChecked, final CtClass targetCt, final Class<?> driverClass, final Set<String> interfaceNames) throws CannotCompileException, NotFoundException
+   {
+      // keep the references to the abstract proxy class in the signatures of the methods the copy calls
+      final var classMap = new ClassMap();
+      classMap.fix(superMethod.getDeclaringClass());
+      classMap.fix(superMethod.getDeclaringClass().getSuperclass());
+
+      var method = CtNewMethod.copy(superMethod, targetCt, classMap);
+      final var driver = driverClass.getName();
+      final var isCopyable = new boolean[] { true };
+      method.instrument(new ExprEditor() {
+         @Override
+         public void edit(final MethodCall call) throws CannotCompileException
+         {
+            try {
+               final var callee = call.getMethod();
+               if (call.isSuper() || Modifier.isPrivate(callee.getModifiers())) {
+                  isCopyable[0] = false;
+               }
+               else if (call.getClassName().equals(ProxyFactory.class.getName()) && call.getMethodName().startsWith("getProxy")
+                  && !call.getMethodName().equals("getProxyDatabaseMetaData")) {
+                  call.replace("$_ = " + DriverProxyFactory.class.getName() + "." + call.getMethodName() + "($$);");
+               }
+               else if (interfaceNames.contains(call.getClassName()) && isCallableOnClass(driverClass, Class.forName(call.getClassName()), callee)) {
+                  if (callee.getReturnType() == CtClass.voidType) {
+                     call.replace("if ($0 instanceof " + driver + ") { ((" + driver + ") $0)." + call.getMethodName() + "($$); } else { $proceed($$); }");
+                  }
+                  else {
+                     call.replace("if ($0 instanceof " + driver + ") { $_ = ((" + driver + ") $0)." + call.getMethodName() + "($$); } else { $_ = $proceed($$); }");
+                  }
+               }
+            }
+            catch (NotFoundException | ClassNotFoundException e) {
+               isCopyable[0] = false;
+            }
+         }
+
+         @Override
+         public void edit(final FieldAccess access)
+         {
+            try {
+               if (Modifier.isPrivate(access.getField().getModifiers())) {
+                  isCopyable[0] = false;
+               }
+            }
+            catch (NotFoundException e) {
+               isCopyable[0] = false;
+            }
+         }
+      });
+
+      if (!isCopyable[0]) {
+         LOGGER.debug("{} uses private members of {}, calling the inherited method", superMethod.getLongName(), superMethod.getDeclaringClass().getName());
+         method = CtNewMethod.copy(superMethod, targetCt, null);
+         method.setBody("{ " + (method.getReturnType() != CtClass.voidType ? "return " : "") + "super." + superMethod.getName() + "($$); }");
+      }
+
+      if (isChecked) {
+         method.addCatch("{ throw checkException($e); }", targetCt.getClassPool().get(SQLException.class.getName()));
+      }
+      return method;
+   }
+
+   /**
+    * The constructors of the statement or result set proxy classes of each driver class, generated lazily.
+    */
+   private static final class ProxyClassValue extends ClassValue<Optional<MethodHandle>>
+   {
+      private final Class<?> superClass;
+      private final Class<?> primaryInterface;
+      private final MethodType constructorType;
+
+      ProxyClassValue(final Class<?> superClass, final Class<?> primaryInterface, final MethodType constructorType)
+      {
+         this.superClass = superClass;
+         this.primaryInterface = primaryInterface;
+         this.constructorType = constructorType;
+      }
+
+      @Override
+      protected Optional<MethodHandle> computeValue(final Class<?> driverClass)
+      {
+         return generate(superClass, primaryInterface, driverClass, constructorType);
+      }
+   }
+
+   /**
+    * The generated class lives in this package and class loader, so it can only name the driver class if
+    * it is public, exported to this module, and resolves to the same class from this class loader.
+    */
+   private static boolean isAccessible(final Class<?> driverClass)
+   {
+      if (!java.lang.reflect.Modifier.isPublic(driverClass.getModifiers()) || driverClass.isAnonymousClass()
+         || !driverClass.getModule().isExported(driverClass.getPackageName(), ProxyConnection.class.getModule())) {
+         return false;
+      }
+
+      try {
+         return Class.forName(driverClass.getName(), false, ProxyConnection.class.getClassLoader()) == driverClass;
+      }
+      catch (ClassNotFoundException e) {
+         return false;
+      }
+   }
+
+   /**
+    * A method can be invoked through the driver class if it is implemented by a public class in its
+    * hierarchy, rather than inherited as an interface default method.
+    */
+   private static boolean isCallableOnClass(final Class<?> driverClass, final Class<?> intf, final CtMethod intfMethod)
+   {
+      for (var method : intf.getMethods()) {
+         if (method.getName().equals(intfMethod.getName())
+            && MethodType.methodType(method.getReturnType(), method.getParameterTypes()).toMethodDescriptorString().equals(intfMethod.getSignature())) {
+            try {
+               final var declaringClass = driverClass.getMethod(method.getName(), method.getParameterTypes()).getDeclaringClass();
+               return !declaringClass.isInterface() && java.lang.reflect.Modifier.isPublic(declaringClass.getModifiers());
+            }
+            catch (NoSuchMethodException e) {
+               return false;
+            }
+         }
+      }
+
+      return false;
+   }
+
+   private static boolean throwsSqlException(final CtMethod method)
+   {
+      try {
+         for (var clazz : method.getExceptionTypes()) {
+            if (clazz.getName().equals(SQLException.class.getName())) {
+               return true;
+            }
+         }
+      }
+      catch (NotFoundException e) {
+         // fall thru
+      }
+
+      return false;
+   }
+
+   private static Set<Class<?>> getAllInterfaces(final Class<?> clazz)
+   {
+      final var interfaces = new LinkedHashSet<Class<?>>();
+      for (var intf : clazz.getInterfaces()) {
+         if (intf.getInterfaces().length > 0) {
+            interfaces.addAll(getAllInterfaces(intf));
+         }
+         interfaces.add(intf);
+      }
+
+      if (clazz.isInterface()) {
+         interfaces.add(clazz);
+      }
+
+      return interfaces;
+   }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A gradient concurrency limit for the maximum size of the pool.  The mean connection hold time
+ * of each sampling window (the "short" latency) is compared to a slow moving average of it (the
+ * "long" latency).  While the two agree the limit grows by its square root, as a queue allowance;
+ * when the short latency rises above the long one the limit is scaled down by their ratio, because
+ * adding connections to a saturated database only makes every connection slower.  The limit does
+ * not grow while the pool is using less than half of it, so that a quiet period does not leave it
+ * at its maximum when load returns.
+ * <p>
+ * The upper bound is passed to each {@link #update(int, int)}, so that a change to the configured
+ * maximum pool size takes effect on the next update; the limit grows toward a raised bound as it
+ * would after a shrink, and is cut to a lowered one at once.
+ * <p>
+ * Returns only increment striped counters; {@link #update(int, int)} is expected to be called
+ * periodically from a single thread.
+ *
+ * @author Brett Wooldridge
+ */
+final class GradientPoolSizeLimit
+{
+   private static final double TOLERANCE = 1.5;
+   private static final double LONG_ALPHA = 0.05;
+   private static final double SMOOTHING = 0.2;
+
+   private final int minLimit;
+   private final LongAdder holdNanos;
+   private final LongAdder samples;
+
+   private double limit;
+   private double longHoldNanos;
+
+   /**
+    * Construct a limit that starts at its maximum.
+    *
+    * @param minLimit the lower bound of the limit
+    * @param maxLimit the initial upper bound of the limit
+    */
+   GradientPoolSizeLimit(final int minLimit, final int maxLimit)
+   {
+      this.minLimit = Math.max(1, minLimit);
+      this.holdNanos = new LongAdder();
+      this.samples = new LongAdder();
+      this.limit = Math.max(1, maxLimit);
+   }
+
+   /**
+    * Record the time a connection was held by a borrower.
+    *
+    * @param elapsedNanos the hold time
+    */
+   void recordHold(final long elapsedNanos)
+   {
+      holdNanos.add(Math.max(0L, elapsedNanos));
+      samples.increment();
+   }
+
+   /**
+    * Fold the hold times since the previous update into the limit.
+    *
+    * @param demand the number of connections in use plus the number of waiting threads
+    * @param maxLimit the upper bound of the limit
+    * @return the updated limit
+    */
+   synchronized int update(final int demand, final int maxLimit)
+   {
+      final var upper = Math.max(1, maxLimit);
+      final var lower = Math.min(minLimit, upper);
+      limit = Math.max(lower, Math.min(upper, limit));
+
+      final var count = samples.sumThenReset();
+      final var total = holdNanos.sumThenReset();
+      if (count == 0L) {
+         return getLimit();
+      }
+
+      final var shortHoldNanos = Math.max(1d, (double) total / count);
+      longHoldNanos = (longHoldNanos == 0d) ? shortHoldNanos : longHoldNanos + LONG_ALPHA * (shortHoldNanos - longHoldNanos);
+
+      final var gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longHoldNanos / shortHoldNanos));
+      if (gradient == 1.0 && demand < limit / 2) {
+         return getLimit(); // application limited, the samples say nothing about a larger pool
+      }
+
+      final var newLimit = limit * gradient + Math.sqrt(limit);
+      limit = Math.max(lower, Math.min(upper, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+      return getLimit();
+   }
+
+   synchronized int getLimit()
+   {
+      return (int) limit;
+   }
+}
@@ -18,8 +18,11 @@ package com.zaxxer.hikari.pool;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.health.HealthCheckRegistry;
+import com.zaxxer.hikari.CallSiteStats;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.Priority;
+import com.zaxxer.hikari.metrics.HistogramMetricsTracker;
 import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
 import com.zaxxer.hikari.metrics.PoolStats;
 import com.zaxxer.hikari.metrics.dropwizard.CodahaleHealthChecker;
@@ -28,6 +31,7 @@ import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
 import com.zaxxer.hikari.util.ConcurrentBag;
 import com.zaxxer.hikari.util.ConcurrentBag.IBagStateListener;
 import com.zaxxer.hikari.util.SuspendResumeLock;
+import com.zaxxer.hikari.util.TimerWheel;
 import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -35,8 +39,12 @@ import org.slf4j.LoggerFactory;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.SQLTransientConnectionException;
+import java.util.Comparator;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static com.zaxxer.hikari.util.ClockSource.*;
@@ -44,6 +52,8 @@ import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_IN_
 import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_NOT_IN_USE;
 import static com.zaxxer.hikari.util.UtilityElf.*;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 /**
@@ -65,14 +75,33 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    private final long aliveBypassWindowMs = Long.getLong("com.zaxxer.hikari.aliveBypassWindowMs", MILLISECONDS.toMillis(500));
    private final long housekeepingPeriodMs = Long.getLong("com.zaxxer.hikari.housekeeping.periodMs", SECONDS.toMillis(30));
    private final boolean isRequestBoundariesEnabled = Boolean.getBoolean("com.zaxxer.hikari.enableRequestBoundaries");
+   private final boolean isBackgroundValidationEnabled = Boolean.getBoolean("com.zaxxer.hikari.backgroundValidation");
+   private final long validatorPeriodMs = Long.getLong("com.zaxxer.hikari.backgroundValidation.periodMs", aliveBypassWindowMs / 2);
+   private final int validatorMaxPerRun = Integer.getInteger("com.zaxxer.hikari.backgroundValidation.maxPerRun", 16);
+   final boolean isProxyReuseEnabled = Boolean.getBoolean("com.zaxxer.hikari.reuseProxies");
+   private volatile boolean isDriverProxyEnabled = Boolean.getBoolean("com.zaxxer.hikari.driverProxies");
+   private final long forecastPeriodMs = Long.getLong("com.zaxxer.hikari.demandForecast.periodMs", SECONDS.toMillis(1));
+   private final long autoSizePeriodMs = Long.getLong("com.zaxxer.hikari.autoSize.periodMs", SECONDS.toMillis(1));
+   private final long holdersSnapshotIntervalMs = Long.getLong("com.zaxxer.hikari.holdersSnapshot.intervalMs", SECONDS.toMillis(5));
+   private final long countersPeriodMs = Long.getLong("com.zaxxer.hikari.counters.periodMs", SECONDS.toMillis(1));
 
    private static final String EVICTED_CONNECTION_MESSAGE = "(connection was evicted)";
    private static final String DEAD_CONNECTION_MESSAGE = "(connection is dead)";
+   private static final int HOLDERS_SNAPSHOT_LIMIT = 10;
 
    private final PoolEntryCreator poolEntryCreator = new PoolEntryCreator();
    private final PoolEntryCreator postFillPoolEntryCreator = new PoolEntryCreator("After adding ");
    private final ThreadPoolExecutor addConnectionExecutor;
+   private final CreationConcurrencyLimit creationLimit;
+   private final AtomicInteger pendingCreations = new AtomicInteger();
+   private final DemandForecast demandForecast;
+   private final GradientPoolSizeLimit poolSizeLimit;
+   private volatile int autoSizedMaxPoolSize;
+   private final boolean isBorrowTimed;
+   private final CallSiteTracker callSiteTracker;
+   private final AtomicLong lastHoldersSnapshot;
    private final ThreadPoolExecutor closeConnectionExecutor;
+   private final ThreadPoolExecutor asyncBorrowExecutor;
 
    private final ConcurrentBag<PoolEntry> connectionBag;
 
@@ -80,7 +109,13 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    private final SuspendResumeLock suspendResumeLock;
 
    private final ScheduledExecutorService houseKeepingExecutorService;
+   private final ScheduledExecutorService timerService;
+   private final ScheduledExecutorService validatorExecutor;
    private ScheduledFuture<?> houseKeeperTask;
+   private ScheduledFuture<?> validatorTask;
+   private ScheduledFuture<?> forecastTask;
+   private ScheduledFuture<?> autoSizeTask;
+   private ScheduledFuture<?> countersTask;
 
    /**
     * Construct a HikariPool with the specified configuration.
@@ -91,10 +126,19 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    {
       super(config);
 
-      this.connectionBag = new ConcurrentBag<>(this);
+      this.connectionBag = new ConcurrentBag<>(this, new int[] {0, config.getNormalPriorityMaxConnections(), config.getLowPriorityMaxConnections()});
       this.suspendResumeLock = config.isAllowPoolSuspension() ? new SuspendResumeLock() : SuspendResumeLock.FAUX_LOCK;
+      this.demandForecast = Boolean.getBoolean("com.zaxxer.hikari.demandForecast") ? new DemandForecast() : null;
+      this.poolSizeLimit = config.isAutoSizePool() ? new GradientPoolSizeLimit(config.getMinimumIdle(), config.getMaximumPoolSize()) : null;
+      this.autoSizedMaxPoolSize = config.getMaximumPoolSize();
+      this.isBorrowTimed = demandForecast != null || poolSizeLimit != null;
+      this.callSiteTracker = (config.getCallSiteSampleRate() > 0)
+         ? new CallSiteTracker(config.getCallSiteSampleRate(), config.getCallSiteDepth(), Long.getLong("com.zaxxer.hikari.callSite.intervalMs", MINUTES.toMillis(1)))
+         : null;
+      this.lastHoldersSnapshot = new AtomicLong(plusMillis(currentTime(), -holdersSnapshotIntervalMs));
 
       this.houseKeepingExecutorService = initializeHouseKeepingExecutorService();
+      this.timerService = initializeTimerService();
 
       checkFailFast();
 
@@ -114,23 +158,47 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       final int maxPoolSize = config.getMaximumPoolSize();
       LinkedBlockingQueue<Runnable> addConnectionQueue = new LinkedBlockingQueue<>(maxPoolSize);
       this.addConnectionExecutor = createThreadPoolExecutor(addConnectionQueue, poolName + " connection adder", threadFactory, new CustomDiscardPolicy());
+      this.creationLimit = new CreationConcurrencyLimit(Math.min(maxPoolSize, config.getMaxConnectionCreationConcurrency()), this::setCreationConcurrency);
       this.closeConnectionExecutor = createThreadPoolExecutor(maxPoolSize, poolName + " connection closer", threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+      // completes asynchronous borrows, which may validate the connection; once shut down, the completing thread runs them
+      this.asyncBorrowExecutor = createThreadPoolExecutor(new LinkedBlockingQueue<>(), poolName + " async borrower", threadFactory, (task, executor) -> task.run());
+      this.asyncBorrowExecutor.setMaximumPoolSize(maxPoolSize);
+      this.asyncBorrowExecutor.setCorePoolSize(maxPoolSize);
 
-      this.leakTaskFactory = new ProxyLeakTaskFactory(config.getLeakDetectionThreshold(), houseKeepingExecutorService);
+      this.leakTaskFactory = new ProxyLeakTaskFactory(config.getLeakDetectionThreshold(), config.getLeakDetectionSampleRate(), timerService);
 
       this.houseKeeperTask = houseKeepingExecutorService.scheduleWithFixedDelay(new HouseKeeper(), 100L, housekeepingPeriodMs, MILLISECONDS);
 
+      // validation waits on the database, so it has a thread of its own rather than holding up housekeeping
+      this.validatorExecutor = isBackgroundValidationEnabled
+         ? new ScheduledThreadPoolExecutor(1, Optional.ofNullable(threadFactory).orElseGet(() -> new DefaultThreadFactory(poolName + " idle validator")), new ThreadPoolExecutor.DiscardPolicy())
+         : null;
+      if (validatorExecutor != null) {
+         final var periodMs = Math.max(1L, validatorPeriodMs);
+         this.validatorTask = validatorExecutor.scheduleWithFixedDelay(new IdleValidator(), periodMs, periodMs, MILLISECONDS);
+      }
+
+      if (demandForecast != null) {
+         this.forecastTask = houseKeepingExecutorService.scheduleWithFixedDelay(new DemandForecaster(), forecastPeriodMs, forecastPeriodMs, MILLISECONDS);
+      }
+
+      if (poolSizeLimit != null) {
+         this.autoSizeTask = houseKeepingExecutorService.scheduleWithFixedDelay(new PoolSizer(), autoSizePeriodMs, autoSizePeriodMs, MILLISECONDS);
+      }
+
+      if (mappedCounters != null) {
+         this.countersTask = houseKeepingExecutorService.scheduleWithFixedDelay(this::updateMappedCounters, 0L, countersPeriodMs, MILLISECONDS);
+      }
+
       if (Boolean.getBoolean("com.zaxxer.hikari.blockUntilFilled") && config.getInitializationFailTimeout() > 1) {
-         addConnectionExecutor.setMaximumPoolSize(Math.min(16, Runtime.getRuntime().availableProcessors()));
-         addConnectionExecutor.setCorePoolSize(Math.min(16, Runtime.getRuntime().availableProcessors()));
+         setCreationConcurrency(Math.min(16, Runtime.getRuntime().availableProcessors()));
 
          final long startTime = currentTime();
          while (elapsedMillis(startTime) < config.getInitializationFailTimeout() && getTotalConnections() < config.getMinimumIdle()) {
             quietlySleep(MILLISECONDS.toMillis(100));
          }
 
-         addConnectionExecutor.setCorePoolSize(1);
-         addConnectionExecutor.setMaximumPoolSize(1);
+         setCreationConcurrency(creationLimit.getLimit());
       }
    }
 
@@ -154,32 +222,55 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
     */
    public Connection getConnection(final long hardTimeout) throws SQLException
    {
+      return getConnection(Priority.NORMAL, hardTimeout);
+   }
+
+   /**
+    * Get a connection from the pool on behalf of a request of the specified priority, or
+    * timeout after connectionTimeout milliseconds.
+    *
+    * @param priority the priority of the request, not null
+    * @return a java.sql.Connection instance
+    * @throws SQLException thrown if a timeout occurs trying to obtain a connection
+    * @throws NullPointerException if priority is null
+    */
+   public Connection getConnection(final Priority priority) throws SQLException
+   {
+      return getConnection(priority, connectionTimeout);
+   }
+
+   /**
+    * Get a connection from the pool on behalf of a request of the specified priority, or
+    * timeout after the specified number of milliseconds.
+    *
+    * @param priority the priority of the request, not null
+    * @param hardTimeout the maximum time to wait for a connection from the pool
+    * @return a java.sql.Connection instance
+    * @throws SQLException thrown if a timeout occurs trying to obtain a connection
+    * @throws NullPointerException if priority is null
+    */
+   public Connection getConnection(final Priority priority, final long hardTimeout) throws SQLException
+   {
+      Objects.requireNonNull(priority, "priority");
       suspendResumeLock.acquire();
       final var startTime = currentTime();
+      final var callSite = (callSiteTracker != null) ? callSiteTracker.sample() : null;
 
       try {
          var timeout = hardTimeout;
          do {
-            var poolEntry = connectionBag.borrow(timeout, MILLISECONDS);
+            var poolEntry = connectionBag.borrow(timeout, MILLISECONDS, priority.ordinal());
             if (poolEntry == null) {
                break; // We timed out... break and throw exception
             }
 
             final var now = currentTime();
-            if (poolEntry.isMarkedEvicted() || (elapsedMillis(poolEntry.lastAccessed, now) > aliveBypassWindowMs && isConnectionDead(poolEntry.connection))) {
+            if (poolEntry.isMarkedEvicted() || (elapsedMillis(poolEntry.lastAlive(), now) > aliveBypassWindowMs && isConnectionDead(poolEntry.connection))) {
                closeConnection(poolEntry, poolEntry.isMarkedEvicted() ? EVICTED_CONNECTION_MESSAGE : DEAD_CONNECTION_MESSAGE);
                timeout = hardTimeout - elapsedMillis(startTime);
             }
             else {
-               metricsTracker.recordBorrowStats(poolEntry, startTime);
-               if (isRequestBoundariesEnabled) {
-                  try {
-                     poolEntry.connection.beginRequest();
-                  } catch (SQLException e) {
-                     logger.warn("beginRequest Failed for: {}, ({})", poolEntry.connection, e.getMessage());
-                  }
-               }
-               return poolEntry.createProxyConnection(leakTaskFactory.schedule(poolEntry));
+               return createProxyConnection(poolEntry, startTime, Thread.currentThread(), callSite, null);
             }
          } while (timeout > 0L);
 
@@ -195,6 +286,55 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       }
    }
 
+   /**
+    * Get a connection from the pool without blocking the calling thread, or timeout after
+    * connectionTimeout milliseconds.
+    *
+    * @return a future completed with a java.sql.Connection instance, or exceptionally with an
+    *         SQLException if a timeout occurs trying to obtain a connection
+    */
+   public CompletableFuture<Connection> getConnectionAsync()
+   {
+      return getConnectionAsync(connectionTimeout);
+   }
+
+   /**
+    * Get a connection from the pool without blocking the calling thread, or timeout after the
+    * specified number of milliseconds.  If no connection is available, the future is completed
+    * by one of the pool's threads, so dependent stages that do blocking work should use the
+    * <code>*Async</code> variants of the CompletionStage methods.  While the pool is suspended,
+    * the borrow starts when it is resumed.  Cancelling the future gives up waiting.
+    *
+    * @param hardTimeout the maximum time to wait for a connection from the pool
+    * @return a future completed with a java.sql.Connection instance, or exceptionally with an
+    *         SQLException if a timeout occurs trying to obtain a connection
+    */
+   public CompletableFuture<Connection> getConnectionAsync(final long hardTimeout)
+   {
+      return getConnectionAsync(Priority.NORMAL, hardTimeout);
+   }
+
+   /**
+    * Get a connection from the pool on behalf of a request of the specified priority without
+    * blocking the calling thread, or timeout after the specified number of milliseconds.
+    *
+    * @param priority the priority of the request, not null
+    * @param hardTimeout the maximum time to wait for a connection from the pool
+    * @return a future completed with a java.sql.Connection instance, or exceptionally with an
+    *         SQLException if a timeout occurs trying to obtain a connection
+    * @throws NullPointerException if priority is null
+    * @see #getConnectionAsync(long)
+    */
+   public CompletableFuture<Connection> getConnectionAsync(final Priority priority, final long hardTimeout)
+   {
+      Objects.requireNonNull(priority, "priority");
+      final var result = new CompletableFuture<Connection>();
+      final var callSite = (callSiteTracker != null) ? callSiteTracker.sample() : null;
+      // the connection is handed out on another thread, so leak detection has to capture the caller here
+      startBorrowAsync(result, priority, hardTimeout, Thread.currentThread(), callSite, leakTaskFactory.capture());
+      return result;
+   }
+
    /**
     * Shutdown the pool, closing all idle connections and aborting or closing
     * active connections.
@@ -217,6 +357,27 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
             houseKeeperTask = null;
          }
 
+         if (validatorTask != null) {
+            validatorTask.cancel(false);
+            validatorTask = null;
+            validatorExecutor.shutdownNow();
+         }
+
+         if (forecastTask != null) {
+            forecastTask.cancel(false);
+            forecastTask = null;
+         }
+
+         if (autoSizeTask != null) {
+            autoSizeTask.cancel(false);
+            autoSizeTask = null;
+         }
+
+         if (countersTask != null) {
+            countersTask.cancel(false);
+            countersTask = null;
+         }
+
          softEvictConnections();
 
          addConnectionExecutor.shutdown();
@@ -249,22 +410,36 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
          if (!closeConnectionExecutor.awaitTermination(10L, SECONDS)) {
             logger.warn("Timed-out waiting for close connection executor to shutdown");
          }
+
+         asyncBorrowExecutor.shutdown();
+         if (!asyncBorrowExecutor.awaitTermination(10L, SECONDS)) {
+            logger.warn("Timed-out waiting for async borrow executor to shutdown");
+         }
       }
       finally {
          logPoolState("After shutdown ");
          handleMBeans(this, false);
          metricsTracker.close();
+         if (mappedCounters != null) {
+            mappedCounters.close();
+         }
       }
    }
 
    /**
     * Evict a Connection from the pool.
     *
-    * @param connection the Connection to evict (actually a {@link ProxyConnection})
+    * @param connection the Connection to evict (actually a {@link ProxyConnection} or {@link ConnectionHandle})
     */
    public void evictConnection(Connection connection)
    {
-      var proxyConnection = (ProxyConnection) connection;
+      final var proxyConnection = (connection instanceof ConnectionHandle)
+         ? ((ConnectionHandle) connection).getProxyConnection()
+         : (ProxyConnection) connection;
+      if (proxyConnection == null) {
+         // a handle of an earlier borrow must not evict the connection of the current one
+         return;
+      }
       proxyConnection.cancelLeakTask();
 
       try {
@@ -339,6 +514,37 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    //                        HikariPoolMBean methods
    // ***********************************************************************
 
+   /** {@inheritDoc} */
+   @Override
+   public int getConnectionCreationConcurrency()
+   {
+      return creationLimit.getLimit();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public long getConnectionAcquireNanosAtPercentile(final double percentile)
+   {
+      final var tracker = getHistogramMetricsTracker();
+      return (tracker != null) ? tracker.getConnectionAcquireNanos().getValueAtPercentile(percentile) : -1L;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public long getConnectionUsageMillisAtPercentile(final double percentile)
+   {
+      final var tracker = getHistogramMetricsTracker();
+      return (tracker != null) ? tracker.getConnectionUsageMillis().getValueAtPercentile(percentile) : -1L;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public long getConnectionCreationMillisAtPercentile(final double percentile)
+   {
+      final var tracker = getHistogramMetricsTracker();
+      return (tracker != null) ? tracker.getConnectionCreationMillis().getValueAtPercentile(percentile) : -1L;
+   }
+
    /** {@inheritDoc} */
    @Override
    public int getActiveConnections()
@@ -367,6 +573,20 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       return connectionBag.getWaitingThreadCount();
    }
 
+   /** {@inheritDoc} */
+   @Override
+   public CallSiteStats[] getCallSiteStats()
+   {
+      return (callSiteTracker != null) ? callSiteTracker.getStats(connectionBag.values(STATE_IN_USE)) : new CallSiteStats[0];
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public String[] dumpPoolEvents()
+   {
+      return eventRing.dump().toArray(new String[0]);
+   }
+
    /** {@inheritDoc} */
    @Override
    public void softEvictConnections()
@@ -425,6 +645,22 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    void recycle(final PoolEntry poolEntry)
    {
       metricsTracker.recordConnectionUsage(poolEntry);
+      PoolEvents.returned(poolName, poolEntry);
+      if (isBorrowTimed) {
+         final var heldNanos = elapsedNanos(poolEntry.lastBorrowed, poolEntry.lastAccessed);
+         if (demandForecast != null) {
+            demandForecast.recordReturn(NANOSECONDS.toMillis(heldNanos));
+         }
+         if (poolSizeLimit != null) {
+            poolSizeLimit.recordHold(heldNanos);
+         }
+      }
+      if (poolEntry.callSite != null) {
+         callSiteTracker.recordHold(poolEntry.callSite, elapsedMillis(poolEntry.lastBorrowed, poolEntry.lastAccessed));
+         poolEntry.callSite = null;
+      }
+      poolEntry.borrower = null;
+
       if (poolEntry.isMarkedEvicted()) {
          closeConnection(poolEntry, EVICTED_CONNECTION_MESSAGE);
       } else {
@@ -448,6 +684,8 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    void closeConnection(final PoolEntry poolEntry, final String closureReason)
    {
       if (connectionBag.remove(poolEntry)) {
+         PoolEvents.evicted(poolName, closureReason);
+         eventRing.record(PoolEventRing.CONNECTION_EVICTED, getTotalConnections(), getIdleConnections(), 0L, closureReason);
          final var connection = poolEntry.close();
          closeConnectionExecutor.execute(() -> {
             quietlyCloseConnection(connection, closureReason);
@@ -458,6 +696,42 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       }
    }
 
+   /**
+    * Get the factory of proxies specialized to the class of the given driver connection, if enabled.
+    *
+    * @param connection the driver connection
+    * @return the factory, or null if the build-time proxies are to be used
+    */
+   DriverProxyFactory getDriverProxyFactory(final Connection connection)
+   {
+      if (isDriverProxyEnabled && connection != null) {
+         try {
+            return DriverProxyFactory.forClass(connection.getClass());
+         }
+         catch (NoClassDefFoundError e) {
+            logger.warn("{} - Javassist is not available, driver specialized proxies are disabled", poolName);
+            isDriverProxyEnabled = false;
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Get the histogram metrics tracker of this pool.
+    *
+    * @return the tracker, or null if the pool does not use one
+    */
+   HistogramMetricsTracker getHistogramMetricsTracker()
+   {
+      final var delegate = metricsTracker;
+      if (delegate instanceof MetricsTrackerDelegate && ((MetricsTrackerDelegate) delegate).tracker instanceof HistogramMetricsTracker) {
+         return (HistogramMetricsTracker) ((MetricsTrackerDelegate) delegate).tracker;
+      }
+
+      return null;
+   }
+
    @SuppressWarnings("unused")
    int[] getPoolStateCounts()
    {
@@ -469,6 +743,188 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    //                           Private methods
    // ***********************************************************************
 
+   /**
+    * Start an asynchronous borrow, or defer it until the pool is resumed if it is suspended,
+    * without waiting on the suspend/resume lock.
+    *
+    * @param result the future returned to the caller
+    * @param priority the priority of the request
+    * @param hardTimeout the maximum time to wait for a connection from the pool
+    * @param borrower the calling thread
+    * @param callSite the sampled call site of the caller, or null
+    * @param leakTask the leak task capturing the caller, not yet scheduled
+    */
+   private void startBorrowAsync(final CompletableFuture<Connection> result, final Priority priority, final long hardTimeout,
+                                 final Thread borrower, final String callSite, final ProxyLeakTask leakTask)
+   {
+      if (result.isDone()) {
+         return; // cancelled while the pool was suspended
+      }
+
+      try {
+         if (!suspendResumeLock.tryAcquire()) {
+            suspendResumeLock.whenResumed(() -> startBorrowAsync(result, priority, hardTimeout, borrower, callSite, leakTask));
+            return;
+         }
+      }
+      catch (SQLException e) {
+         result.completeExceptionally(e);
+         return;
+      }
+
+      try {
+         borrowAsync(result, priority, currentTime(), hardTimeout, borrower, callSite, leakTask);
+      }
+      catch (RuntimeException e) {
+         result.completeExceptionally(e);
+      }
+      finally {
+         suspendResumeLock.release();
+      }
+   }
+
+   /**
+    * Register an asynchronous borrow with the bag, retrying with the remaining time when the
+    * borrowed entry turns out to be evicted or dead, and complete the result future.
+    *
+    * @param result the future returned to the caller
+    * @param priority the priority of the request
+    * @param startTime the time the acquisition started
+    * @param hardTimeout the maximum time to wait for a connection from the pool
+    * @param borrower the calling thread
+    * @param callSite the sampled call site of the caller, or null
+    * @param leakTask the leak task capturing the caller, not yet scheduled
+    */
+   private void borrowAsync(final CompletableFuture<Connection> result, final Priority priority, final long startTime, final long hardTimeout,
+                            final Thread borrower, final String callSite, final ProxyLeakTask leakTask)
+   {
+      final var timeout = hardTimeout - elapsedMillis(startTime);
+      final var borrowed = connectionBag.borrowAsync(Math.max(0L, timeout), MILLISECONDS, timerService, priority.ordinal());
+      result.whenComplete((c, t) -> {
+         if (result.isCancelled()) {
+            borrowed.cancel(false);
+         }
+      });
+
+      // the entry may have to be validated, which must not hold up the thread that returned or added it
+      borrowed.whenCompleteAsync((poolEntry, t) -> {
+         if (t != null) {
+            result.completeExceptionally(t);
+            return;
+         }
+         else if (poolEntry == null) {
+            metricsTracker.recordBorrowTimeoutStats(startTime);
+            result.completeExceptionally(createTimeoutException(startTime));
+            return;
+         }
+
+         // the waiter outlives the gate check in startBorrowAsync, so the gate is passed again before the entry is
+         // handed out; otherwise a suspension could return while this borrow is still being completed
+         try {
+            if (!suspendResumeLock.tryAcquire()) {
+               connectionBag.requite(poolEntry);
+               suspendResumeLock.whenResumed(() -> startBorrowAsync(result, priority, hardTimeout, borrower, callSite, leakTask));
+               return;
+            }
+         }
+         catch (SQLException e) {
+            connectionBag.requite(poolEntry);
+            result.completeExceptionally(e);
+            return;
+         }
+
+         try {
+            completeBorrowAsync(result, poolEntry, priority, startTime, hardTimeout, borrower, callSite, leakTask);
+         }
+         catch (RuntimeException e) {
+            result.completeExceptionally(e);
+         }
+         finally {
+            suspendResumeLock.release();
+         }
+      }, asyncBorrowExecutor);
+   }
+
+   /**
+    * Validate the entry borrowed by an asynchronous borrow and complete the result future with it, or
+    * borrow again with the remaining time if it is evicted or dead.  Runs with the suspend/resume lock held.
+    *
+    * @param result the future returned to the caller
+    * @param poolEntry the borrowed entry
+    * @param priority the priority of the request
+    * @param startTime the time the acquisition started
+    * @param hardTimeout the maximum time to wait for a connection from the pool
+    * @param borrower the calling thread
+    * @param callSite the sampled call site of the caller, or null
+    * @param leakTask the leak task capturing the caller, not yet scheduled
+    */
+   private void completeBorrowAsync(final CompletableFuture<Connection> result, final PoolEntry poolEntry, final Priority priority, final long startTime,
+                                    final long hardTimeout, final Thread borrower, final String callSite, final ProxyLeakTask leakTask)
+   {
+      final var now = currentTime();
+      if (poolEntry.isMarkedEvicted() || (elapsedMillis(poolEntry.lastAlive(), now) > aliveBypassWindowMs && isConnectionDead(poolEntry.connection))) {
+         closeConnection(poolEntry, poolEntry.isMarkedEvicted() ? EVICTED_CONNECTION_MESSAGE : DEAD_CONNECTION_MESSAGE);
+         if (hardTimeout - elapsedMillis(startTime) > 0L) {
+            borrowAsync(result, priority, startTime, hardTimeout, borrower, callSite, leakTask);
+         }
+         else {
+            metricsTracker.recordBorrowTimeoutStats(startTime);
+            result.completeExceptionally(createTimeoutException(startTime));
+         }
+         return;
+      }
+
+      final var connection = createProxyConnection(poolEntry, startTime, borrower, callSite, leakTask);
+      if (!result.complete(connection)) {
+         // the caller cancelled the future, so the connection goes straight back to the pool
+         try {
+            connection.close();
+         }
+         catch (SQLException e) {
+            logger.debug("{} - Failed to return connection after the acquisition was cancelled", poolName, e);
+         }
+      }
+   }
+
+   /**
+    * Record the borrow statistics, begin the request if request boundaries are enabled, and
+    * wrap the borrowed entry in a proxy connection.
+    *
+    * @param poolEntry the borrowed entry
+    * @param startTime the time the acquisition started
+    * @param borrower the thread that requested the connection
+    * @param callSite the sampled call site of the caller, or null
+    * @param leakTask the leak task captured on the calling thread of an asynchronous borrow, or null to capture it here
+    * @return the proxy connection handed to the caller
+    */
+   private Connection createProxyConnection(final PoolEntry poolEntry, final long startTime, final Thread borrower, final String callSite,
+                                            final ProxyLeakTask leakTask)
+   {
+      // always stamped, so that a snapshot of the holders taken at a borrow timeout knows how long each has been held
+      poolEntry.lastBorrowed = currentTime();
+      metricsTracker.recordBorrowStats(poolEntry, startTime);
+      poolEntry.borrower = borrower;
+      poolEntry.callSite = callSite;
+      if (PoolEvents.isBorrowEnabled()) {
+         PoolEvents.borrowed(poolName, poolEntry, startTime, poolEntry.lastBorrowed);
+      }
+      if (mappedCounters != null) {
+         mappedCounters.recordBorrow(elapsedNanos(startTime, poolEntry.lastBorrowed));
+      }
+      if (demandForecast != null) {
+         demandForecast.recordBorrow();
+      }
+
+      if (isRequestBoundariesEnabled) {
+         try {
+            poolEntry.connection.beginRequest();
+         } catch (SQLException e) {
+            logger.warn("beginRequest Failed for: {}, ({})", poolEntry.connection, e.getMessage());
+         }
+      }
+      return poolEntry.createProxyConnection((leakTask != null) ? leakTaskFactory.schedule(poolEntry, leakTask) : leakTaskFactory.schedule(poolEntry));
+   }
+
    /**
     * Creating new poolEntry.  If maxLifetime is configured, create a future End-of-life task with 2.5% variance from
     * the maxLifetime time to ensure there is no massive die-off of Connections in the pool.
@@ -483,7 +939,7 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
             // variance up to 2.5% of the maxlifetime
             final var variance = maxLifetime > 10_000 ? ThreadLocalRandom.current().nextLong( maxLifetime / 40 ) : 0;
             final var lifetime = maxLifetime - variance;
-            poolEntry.setFutureEol(houseKeepingExecutorService.schedule(new MaxLifetimeTask(poolEntry), lifetime, MILLISECONDS));
+            poolEntry.setFutureEol(timerService.schedule(new MaxLifetimeTask(poolEntry), lifetime, MILLISECONDS));
          }
 
          final long keepaliveTime = config.getKeepaliveTime();
@@ -491,7 +947,7 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
             // variance up to 10% of the heartbeat time
             final var variance = ThreadLocalRandom.current().nextLong(keepaliveTime / 10);
             final var heartbeatTime = keepaliveTime - variance;
-            poolEntry.setKeepalive(houseKeepingExecutorService.scheduleWithFixedDelay(new KeepaliveTask(poolEntry), heartbeatTime, heartbeatTime, MILLISECONDS));
+            poolEntry.setKeepalive(timerService.scheduleWithFixedDelay(new KeepaliveTask(poolEntry), heartbeatTime, heartbeatTime, MILLISECONDS));
          }
 
          return poolEntry;
@@ -511,20 +967,53 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       return null;
    }
 
+   /**
+    * Set the number of threads used to create connections.
+    *
+    * @param concurrency the number of connection adder threads
+    */
+   private void setCreationConcurrency(final int concurrency)
+   {
+      // the core size may never exceed the maximum size, so the order of the two calls depends on the direction
+      if (concurrency > addConnectionExecutor.getMaximumPoolSize()) {
+         addConnectionExecutor.setMaximumPoolSize(concurrency);
+         addConnectionExecutor.setCorePoolSize(concurrency);
+      }
+      else {
+         addConnectionExecutor.setCorePoolSize(concurrency);
+         addConnectionExecutor.setMaximumPoolSize(concurrency);
+      }
+   }
+
+   /**
+    * Get the number of connections the pool may grow to: the configured maximum pool size, or the auto-sized limit
+    * when that is lower.
+    *
+    * @return the effective maximum pool size
+    */
+   private int getEffectiveMaxPoolSize()
+   {
+      final var maxPoolSize = config.getMaximumPoolSize();
+      return (poolSizeLimit != null) ? Math.min(maxPoolSize, autoSizedMaxPoolSize) : maxPoolSize;
+   }
+
    /**
     * Fill pool up from current idle connections (as they are perceived at the point of execution) to minimumIdle connections.
     */
    private synchronized void fillPool(final boolean isAfterAdd)
    {
       final var idle = getIdleConnections();
-      final var shouldAdd = getTotalConnections() < config.getMaximumPoolSize() && idle < config.getMinimumIdle();
+      final var total = getTotalConnections();
+      final var shouldAdd = total < getEffectiveMaxPoolSize() && idle < config.getMinimumIdle();
 
       if (shouldAdd) {
          final var countToAdd = config.getMinimumIdle() - idle;
+         eventRing.record(PoolEventRing.FILL, total, idle, countToAdd, null);
          for (int i = 0; i < countToAdd; i++)
             addConnectionExecutor.submit(isAfterAdd ? postFillPoolEntryCreator : poolEntryCreator);
       }
       else if (isAfterAdd) {
+         eventRing.record(PoolEventRing.FILL, total, idle, 0L, null);
          logger.debug("{} - Fill pool skipped, pool has sufficient level or currently being filled.", poolName);
       }
    }
@@ -647,11 +1136,33 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       }
    }
 
+   /**
+    * Create/initialize the service used for per-connection timers (max lifetime, keepalive, leak detection and
+    * asynchronous borrow timeouts).  If the <code>com.zaxxer.hikari.timerWheel</code> system property is set, a
+    * {@link TimerWheel} is created that dispatches expired timers to the Housekeeping service, otherwise the
+    * Housekeeping service itself is used.
+    *
+    * @return either a {@link TimerWheel}, or the Housekeeping service
+    */
+   private ScheduledExecutorService initializeTimerService()
+   {
+      if (Boolean.getBoolean("com.zaxxer.hikari.timerWheel")) {
+         final var threadFactory = Optional.ofNullable(config.getThreadFactory()).orElseGet(() -> new DefaultThreadFactory(poolName + " timer"));
+         return new TimerWheel(houseKeepingExecutorService, threadFactory);
+      }
+
+      return houseKeepingExecutorService;
+   }
+
    /**
     * Destroy (/shutdown) the Housekeeping service Executor, if it was the one that we created.
     */
    private void destroyHouseKeepingExecutorService()
    {
+      if (timerService != houseKeepingExecutorService) {
+         timerService.shutdownNow();
+      }
+
       if (config.getScheduledExecutor() == null) {
          houseKeepingExecutorService.shutdownNow();
       }
@@ -673,6 +1184,7 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
             this.activeConnections = HikariPool.this.getActiveConnections();
             this.maxConnections = config.getMaximumPoolSize();
             this.minConnections = config.getMinimumIdle();
+            this.creationConcurrency = creationLimit.getLimit();
          }
       };
    }
@@ -684,7 +1196,9 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
     * SQL State from that exception as our own and additionally set that exception as the "next" SQLException inside
     * our exception.
     *
-    * As a side effect, log the timeout failure at DEBUG, and record the timeout failure in the metrics tracker.
+    * As a side effect, log the timeout failure at DEBUG, and record the timeout failure in the metrics tracker.  The
+    * connection holders, summarized by call site and captured in a snapshot, are only examined for one timeout every
+    * {@code holdersSnapshotIntervalMs}; that timeout also logs the recent pool events at WARN.
     *
     * @param startTime the start time (timestamp) of the acquisition attempt
     * @return a SQLException to be thrown from {@link #getConnection()}
@@ -693,6 +1207,13 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
    {
       logPoolState("Timeout failure ");
       metricsTracker.recordConnectionTimeout();
+      eventRing.record(PoolEventRing.BORROW_TIMEOUT, elapsedMillis(startTime), getActiveConnections(), getThreadsAwaitingConnection(), null);
+      if (mappedCounters != null) {
+         mappedCounters.recordTimeout();
+      }
+
+      final var now = currentTime();
+      final var inUse = isHoldersCaptureDue(now) ? connectionBag.values(STATE_IN_USE) : null;
 
       String sqlState = null;
       int errorCode = 0;
@@ -703,15 +1224,44 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       }
       final var connectionException = new SQLTransientConnectionException(
          poolName + " - Connection is not available, request timed out after " + elapsedMillis(startTime) + "ms " +
-            "(total=" + getTotalConnections() + ", active=" + getActiveConnections() + ", idle=" + getIdleConnections() + ", waiting=" + getThreadsAwaitingConnection() + ")",
+            "(total=" + getTotalConnections() + ", active=" + getActiveConnections() + ", idle=" + getIdleConnections() + ", waiting=" + getThreadsAwaitingConnection() + ")" +
+            ((callSiteTracker != null && inUse != null) ? callSiteTracker.summarize(inUse, 3) : ""),
          sqlState, errorCode, originalException);
       if (originalException instanceof SQLException) {
          connectionException.setNextException((SQLException) originalException);
       }
 
+      final var snapshot = (inUse != null) ? ConnectionHoldersSnapshot.capture(inUse, HOLDERS_SNAPSHOT_LIMIT, now) : null;
+      if (snapshot != null) {
+         connectionException.addSuppressed(snapshot);
+         logger.warn("{} - Connection request timed out, recent pool events follow:\n\t{}", poolName, String.join("\n\t", eventRing.dump()));
+      }
+      PoolEvents.timedOut(poolName, startTime, getActiveConnections(), getThreadsAwaitingConnection(), snapshot);
+
       return connectionException;
    }
 
+   /**
+    * Refresh the gauges of the memory-mapped counters.
+    */
+   private void updateMappedCounters()
+   {
+      mappedCounters.update(getTotalConnections(), getIdleConnections(), getActiveConnections(), getThreadsAwaitingConnection(), config.getMaximumPoolSize());
+   }
+
+   /**
+    * Claim the capture of the connection holders for a timeout, unless they were captured within the last
+    * {@code holdersSnapshotIntervalMs}, so that a burst of timeouts captures them only once.
+    *
+    * @param now the current time
+    * @return true if the caller is to capture the connection holders
+    */
+   private boolean isHoldersCaptureDue(final long now)
+   {
+      final var last = lastHoldersSnapshot.get();
+      return elapsedMillis(last, now) >= holdersSnapshotIntervalMs && lastHoldersSnapshot.compareAndSet(last, now);
+   }
+
 
    // ***********************************************************************
    //                      Non-anonymous Inner-classes
@@ -741,14 +1291,28 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
          var added = false;
          try {
             while (shouldContinueCreating()) {
-               final var poolEntry = createPoolEntry();
+               final var createStart = currentTime();
+               final PoolEntry poolEntry;
+               try {
+                  poolEntry = createPoolEntry();
+                  if (poolEntry != null) {
+                     connectionBag.add(poolEntry);
+                  }
+               }
+               finally {
+                  pendingCreations.decrementAndGet();
+               }
+
                if (poolEntry != null) {
                   added = true;
-                  connectionBag.add(poolEntry);
+                  creationLimit.onSuccess(elapsedNanos(createStart));
                   logger.debug("{} - Added connection {}", poolName, poolEntry.connection);
                   quietlySleep(30L);
                   break;
                } else {  // failed to get connection from db, sleep and retry
+                  if (poolState == POOL_NORMAL) {
+                     creationLimit.onFailure();
+                  }
                   if (loggingPrefix != null && backoffMs % 50 == 0)
                      logger.debug("{} - Connection add failed, sleeping with backoff: {}ms", poolName, backoffMs);
                   quietlySleep(backoffMs);
@@ -768,14 +1332,28 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       }
 
       /**
-       * We only create connections if we need another idle connection or have threads still waiting
-       * for a new connection.  Otherwise we bail out of the request to create.
+       * We only create connections if we need another idle connection, have threads still waiting
+       * for a new connection, or the demand forecast (if enabled) exceeds the pool size.  Otherwise
+       * we bail out of the request to create.  Connections that other creator threads are currently
+       * creating count towards the need; if this method returns true, the caller has been counted as
+       * one of them.
        *
        * @return true if we should create a connection, false if the need has disappeared
        */
-      private synchronized boolean shouldContinueCreating() {
-         return poolState == POOL_NORMAL && getTotalConnections() < config.getMaximumPoolSize() &&
-            (getIdleConnections() < config.getMinimumIdle() || connectionBag.getWaitingThreadCount() > getIdleConnections());
+      private boolean shouldContinueCreating() {
+         for (;;) {
+            final var pending = pendingCreations.get();
+            final var idle = getIdleConnections() + pending;
+            final var total = getTotalConnections() + pending;
+            final var isNeeded = idle < config.getMinimumIdle() || connectionBag.getWaitingThreadCount() > idle ||
+               (demandForecast != null && total < demandForecast.getForecast());
+            if (poolState != POOL_NORMAL || total >= getEffectiveMaxPoolSize() || !isNeeded) {
+               return false;
+            }
+            else if (pendingCreations.compareAndSet(pending, pending + 1)) {
+               return true;
+            }
+         }
       }
    }
 
@@ -808,6 +1386,7 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
             if (plusMillis(now, 128) < plusMillis(previous, housekeepingPeriodMs)) {
                logger.warn("{} - Retrograde clock change detected (housekeeper delta={}), soft-evicting connections from pool.",
                            poolName, elapsedDisplayString(previous, now));
+               eventRing.record(PoolEventRing.CLOCK_LEAP, elapsedMillis(previous, now), 0L, 0L, "(retrograde)");
                previous = now;
                softEvictConnections();
                return;
@@ -815,18 +1394,25 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
             else if (now > plusMillis(previous, (3 * housekeepingPeriodMs) / 2)) {
                // No point evicting for forward clock motion, this merely accelerates connection retirement anyway
                logger.warn("{} - Thread starvation or clock leap detected (housekeeper delta={}).", poolName, elapsedDisplayString(previous, now));
+               eventRing.record(PoolEventRing.CLOCK_LEAP, elapsedMillis(previous, now), 0L, 0L, "(forward)");
             }
 
             previous = now;
 
-            if (idleTimeout > 0L && config.getMinimumIdle() < config.getMaximumPoolSize()) {
+            var removed = 0;
+            if (idleTimeout > 0L && config.getMinimumIdle() < getEffectiveMaxPoolSize()) {
                logPoolState("Before cleanup ");
                final var notInUse = connectionBag.values(STATE_NOT_IN_USE);
                var maxToRemove = notInUse.size() - config.getMinimumIdle();
+               if (demandForecast != null) {
+                  // do not retire connections that the demand forecast expects to be needed shortly
+                  maxToRemove = Math.min(maxToRemove, getTotalConnections() - demandForecast.getForecast());
+               }
                for (PoolEntry entry : notInUse) {
                   if (maxToRemove > 0 && elapsedMillis(entry.lastAccessed, now) > idleTimeout && connectionBag.reserve(entry)) {
                      closeConnection(entry, "(connection has passed idleTimeout)");
                      maxToRemove--;
+                     removed++;
                   }
                }
                logPoolState("After cleanup  ");
@@ -835,6 +1421,9 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
                logPoolState("Pool ");
 
             fillPool(true); // Try to maintain minimum connections
+
+            PoolEvents.housekept(poolName, now, getTotalConnections(), getIdleConnections(), removed);
+            eventRing.record(PoolEventRing.HOUSEKEEPING, getTotalConnections(), getIdleConnections(), removed, null);
          }
          catch (Exception e) {
             logger.error("Unexpected exception in housekeeping task", e);
@@ -876,6 +1465,7 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
                addBagItem(connectionBag.getWaitingThreadCount());
             }
             else {
+               poolEntry.lastValidated = currentTime();
                connectionBag.unreserve(poolEntry);
                logger.debug("{} - keepalive: connection {} is alive", poolName, poolEntry.connection);
             }
@@ -883,6 +1473,128 @@ public final class HikariPool extends PoolBase implements HikariPoolMXBean, IBag
       }
    }
 
+   /**
+    * The background validator, enabled by the <code>com.zaxxer.hikari.backgroundValidation</code> system property.
+    * Idle connections that would fall outside of the alive-bypass window before the next run are validated ahead of
+    * time, so that borrowers can skip the inline validation in {@link #getConnection()}, however long they have been
+    * idle.  Each run validates at most <code>com.zaxxer.hikari.backgroundValidation.maxPerRun</code> connections, 16
+    * by default, the longest unvalidated first; the others are validated by a later run, or inline when borrowed.
+    * The run period is set by <code>com.zaxxer.hikari.backgroundValidation.periodMs</code>, half the window by default.
+    */
+   private final class IdleValidator implements Runnable
+   {
+      @Override
+      public void run()
+      {
+         try {
+            if (poolState != POOL_NORMAL) {
+               return;
+            }
+
+            final var staleMs = Math.max(0L, aliveBypassWindowMs - validatorPeriodMs);
+            final var now = currentTime();
+            final var idleEntries = connectionBag.values(STATE_NOT_IN_USE);
+            idleEntries.removeIf(entry -> elapsedMillis(entry.lastAlive(), now) < staleMs);
+            idleEntries.sort(Comparator.comparingLong(PoolEntry::lastAlive));
+
+            var budget = validatorMaxPerRun;
+            for (PoolEntry entry : idleEntries) {
+               if (budget <= 0) {
+                  break;
+               }
+
+               if (connectionBag.reserve(entry)) {
+                  budget--;
+                  if (isConnectionDead(entry.connection)) {
+                     softEvictConnection(entry, DEAD_CONNECTION_MESSAGE, true);
+                     addBagItem(connectionBag.getWaitingThreadCount());
+                  }
+                  else {
+                     entry.lastValidated = currentTime();
+                     connectionBag.unreserve(entry);
+                  }
+               }
+            }
+         }
+         catch (Exception e) {
+            logger.error("Unexpected exception in background validation task", e);
+         }
+      }
+   }
+
+   /**
+    * The demand forecaster, enabled by the <code>com.zaxxer.hikari.demandForecast</code> system property.  The
+    * forecast is updated from the borrows and returns since the last run, and connections are added ahead of
+    * demand when the pool is smaller than the forecast.  Surplus connections are retired by the normal idle
+    * timeout in the {@link HouseKeeper}, which does not go below the forecast.
+    */
+   private final class DemandForecaster implements Runnable
+   {
+      @Override
+      public void run()
+      {
+         try {
+            final var forecast = Math.min(getEffectiveMaxPoolSize(), demandForecast.update());
+            if (poolState != POOL_NORMAL) {
+               return;
+            }
+
+            final var deficit = forecast - getTotalConnections() - pendingCreations.get() - addConnectionExecutor.getQueue().size();
+            if (deficit > 0) {
+               logger.debug("{} - Demand forecast of {} connections, adding {}", poolName, forecast, deficit);
+               for (int i = 0; i < deficit; i++) {
+                  addConnectionExecutor.submit(poolEntryCreator);
+               }
+            }
+         }
+         catch (Exception e) {
+            logger.error("Unexpected exception in demand forecast task", e);
+         }
+      }
+   }
+
+   /**
+    * The pool auto-sizer, enabled by {@link HikariConfig#setAutoSizePool(boolean)}.  The gradient limit is updated
+    * from the hold times since the last run, and applied as the effective maximum pool size, bounded by the configured
+    * one, which is left unchanged.  When the limit falls below the number of connections, idle connections above it
+    * are closed; connections in use are not interrupted, and are not replaced when they are closed.
+    */
+   private final class PoolSizer implements Runnable
+   {
+      @Override
+      public void run()
+      {
+         try {
+            if (poolState != POOL_NORMAL) {
+               return;
+            }
+
+            // the configured maximum is re-read every run, so that a change made through the MXBean bounds the limit
+            final var limit = poolSizeLimit.update(getActiveConnections() + getThreadsAwaitingConnection(), config.getMaximumPoolSize());
+            final var previous = autoSizedMaxPoolSize;
+            if (limit == previous) {
+               return;
+            }
+
+            logger.debug("{} - Auto-sizing the effective maximum pool size from {} to {}", poolName, previous, limit);
+            autoSizedMaxPoolSize = limit;
+            if (limit < previous) {
+               for (PoolEntry entry : connectionBag.values(STATE_NOT_IN_USE)) {
+                  if (getTotalConnections() > limit && connectionBag.reserve(entry)) {
+                     closeConnection(entry, "(pool auto-sized down)");
+                  }
+               }
+            }
+            else if (getThreadsAwaitingConnection() > 0) {
+               addBagItem(getThreadsAwaitingConnection());
+            }
+         }
+         catch (Exception e) {
+            logger.error("Unexpected exception in auto-sizing task", e);
+         }
+      }
+   }
+
    public static class PoolInitializationException extends RuntimeException
    {
       private static final long serialVersionUID = 929872118275916520L;
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.zaxxer.hikari.metrics.PoolCountersReader.*;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Publishes the counters of a pool into a memory-mapped file, in the layout documented by
+ * {@link com.zaxxer.hikari.metrics.PoolCountersReader}.  Counters are accumulated in striped adders, so that
+ * the borrow path never contends on the shared mapped cache line, and {@link #update} copies them together with
+ * the gauges into the file with release stores.  That single writer keeps the values untorn for a reader in
+ * another process, which sees them as of the last update.
+ *
+ * @author Brett Wooldridge
+ */
+final class MappedPoolCounters
+{
+   private static final Logger LOGGER = LoggerFactory.getLogger(MappedPoolCounters.class);
+   private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+   private final Path file;
+   private final ByteBuffer buffer;
+
+   private final LongAdder borrows = new LongAdder();
+   private final LongAdder borrowWaitNanos = new LongAdder();
+   private final LongAdder timeouts = new LongAdder();
+   private final LongAdder creations = new LongAdder();
+   private final LongAdder creationFailures = new LongAdder();
+
+   private MappedPoolCounters(final Path file, final ByteBuffer buffer)
+   {
+      this.file = file;
+      this.buffer = buffer;
+   }
+
+   /**
+    * Create and map the counters file of a pool.
+    *
+    * @param directory the counters directory
+    * @param poolName the name of the pool
+    * @return the counters, or null if the file could not be created
+    */
+   static MappedPoolCounters create(final String directory, final String poolName)
+   {
+      final var pid = ProcessHandle.current().pid();
+      final var file = Paths.get(directory, poolName.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + pid + FILE_SUFFIX);
+      try (var channel = FileChannel.open(file, CREATE, READ, WRITE, TRUNCATE_EXISTING)) {
+         final var counters = new MappedPoolCounters(file, channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE));
+         counters.set(VERSION_OFFSET, VERSION);
+         counters.set(PID_OFFSET, pid);
+         counters.set(START_TIME_OFFSET, System.currentTimeMillis());
+         // the magic is written last, so a reader never accepts a file that is still being initialized
+         counters.set(MAGIC_OFFSET, MAGIC);
+         return counters;
+      }
+      catch (IOException | RuntimeException e) {
+         LOGGER.warn("{} - Could not create counters file {}, counters will not be published", poolName, file, e);
+         return null;
+      }
+   }
+
+   void recordBorrow(final long waitNanos)
+   {
+      borrows.increment();
+      borrowWaitNanos.add(waitNanos);
+   }
+
+   void recordTimeout()
+   {
+      timeouts.increment();
+   }
+
+   void recordCreation()
+   {
+      creations.increment();
+   }
+
+   void recordCreationFailure()
+   {
+      creationFailures.increment();
+   }
+
+   /**
+    * Publish the counters, and overwrite the gauges and the update time.  Only called from one thread at a time.
+    */
+   void update(final int total, final int idle, final int active, final int pending, final int max)
+   {
+      set(BORROWS_OFFSET, borrows.sum());
+      set(BORROW_WAIT_NANOS_OFFSET, borrowWaitNanos.sum());
+      set(TIMEOUTS_OFFSET, timeouts.sum());
+      set(CREATIONS_OFFSET, creations.sum());
+      set(CREATION_FAILURES_OFFSET, creationFailures.sum());
+      set(TOTAL_CONNECTIONS_OFFSET, total);
+      set(IDLE_CONNECTIONS_OFFSET, idle);
+      set(ACTIVE_CONNECTIONS_OFFSET, active);
+      set(PENDING_THREADS_OFFSET, pending);
+      set(MAX_CONNECTIONS_OFFSET, max);
+      set(UPDATE_TIME_OFFSET, System.currentTimeMillis());
+   }
+
+   /**
+    * Delete the counters file.
+    */
+   void close()
+   {
+      try {
+         Files.deleteIfExists(file);
+      }
+      catch (IOException e) {
+         LOGGER.debug("Could not delete counters file {}", file, e);
+      }
+   }
+
+   private void set(final int offset, final long value)
+   {
+      LONGS.setRelease(buffer, offset, value);
+   }
+}
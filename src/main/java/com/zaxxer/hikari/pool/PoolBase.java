@@ -47,6 +47,7 @@ import static com.zaxxer.hikari.pool.ProxyConnection.*;
 import static com.zaxxer.hikari.util.ClockSource.*;
 import static com.zaxxer.hikari.util.UtilityElf.createInstance;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 abstract class PoolBase
@@ -60,17 +61,24 @@ abstract class PoolBase
 
    volatile String catalog;
    final AtomicReference<Exception> lastConnectionFailure;
+   final PoolEventRing eventRing;
+   final MappedPoolCounters mappedCounters;
 
    long connectionTimeout;
    long validationTimeout;
 
    SQLExceptionOverride exceptionOverride;
 
+   final boolean isStatementTimed;
+   private final long slowQueryThresholdNanos;
+   private final StatementStatsSketch statementStats;
+
    private static final String[] RESET_STATES = {"readOnly", "autoCommit", "isolation", "catalog", "netTimeout", "schema"};
    private static final int UNINITIALIZED = -1;
    private static final int TRUE = 1;
    private static final int FALSE = 0;
    private static final int MINIMUM_LOGIN_TIMEOUT = Integer.getInteger("com.zaxxer.hikari.minimumLoginTimeoutSecs", 1);
+   private static final int EVENT_RING_SIZE = Integer.getInteger("com.zaxxer.hikari.eventRing.size", 256);
 
    private int networkTimeout;
    private volatile int isNetworkTimeoutSupported;
@@ -110,6 +118,12 @@ abstract class PoolBase
       this.connectionTimeout = config.getConnectionTimeout();
       this.validationTimeout = config.getValidationTimeout();
       this.lastConnectionFailure = new AtomicReference<>();
+      this.eventRing = new PoolEventRing(EVENT_RING_SIZE);
+      this.mappedCounters = (config.getCountersDirectory() != null) ? MappedPoolCounters.create(config.getCountersDirectory(), poolName) : null;
+
+      this.slowQueryThresholdNanos = MILLISECONDS.toNanos(config.getSlowQueryThreshold());
+      this.statementStats = (config.getStatementStatsSize() > 0) ? new StatementStatsSketch(config.getStatementStatsSize()) : null;
+      this.isStatementTimed = config.isStatementTimingEnabled() || slowQueryThresholdNanos > 0 || statementStats != null;
 
       initializeDataSource();
    }
@@ -123,6 +137,48 @@ abstract class PoolBase
 
    abstract void recycle(final PoolEntry poolEntry);
 
+   /**
+    * Record the iteration of a query result set.
+    *
+    * @param statement the statement proxy that executed the query
+    * @param startTime the time the iteration started
+    * @param rows the number of rows read
+    */
+   void recordResultSetIteration(final ProxyStatement statement, final long startTime, final long rows)
+   {
+      metricsTracker.recordResultSetIteration(elapsedNanos(startTime));
+      if (statementStats != null && statement.fingerprint != null) {
+         statementStats.recordRows(statement.fingerprint, rows);
+      }
+   }
+
+   /**
+    * Record one execution of a statement, and log it if it exceeded the slow query threshold.
+    *
+    * @param statement the statement proxy
+    * @param sql the executed SQL, or null for a batch of a plain Statement
+    * @param startTime the time the execution started
+    */
+   void recordStatementExecution(final ProxyStatement statement, final String sql, final long startTime)
+   {
+      final var elapsed = elapsedNanos(startTime);
+      metricsTracker.recordStatementExecution(elapsed);
+      if (statementStats != null) {
+         // a prepared statement always executes the same SQL, so its fingerprint is computed once; a plain
+         // statement has no SQL of its own, so its batches must not reuse the fingerprint of an earlier execution
+         var fingerprint = statement.fingerprint;
+         if (fingerprint == null || statement.sql == null || sql != statement.sql) {
+            fingerprint = (sql != null) ? SqlFingerprint.of(sql) : "(batch)";
+            statement.fingerprint = fingerprint;
+         }
+         statementStats.recordExecution(fingerprint, elapsed);
+      }
+      if (slowQueryThresholdNanos > 0 && elapsed > slowQueryThresholdNanos) {
+         logger.warn("{} - Slow query took {}ms with {} bind parameters: {}", poolName, NANOSECONDS.toMillis(elapsed),
+                     statement.getBindParameterCount(), (sql != null) ? sql : "(batch)");
+      }
+   }
+
    // ***********************************************************************
    //                           JDBC methods
    // ***********************************************************************
@@ -148,6 +204,14 @@ abstract class PoolBase
    }
 
    boolean isConnectionDead(final Connection connection)
+   {
+      final var start = currentTime();
+      final var isDead = checkConnectionDead(connection);
+      PoolEvents.validated(poolName, start, !isDead);
+      return isDead;
+   }
+
+   private boolean checkConnectionDead(final Connection connection)
    {
       try {
          setNetworkTimeout(connection, validationTimeout);
@@ -277,18 +341,23 @@ abstract class PoolBase
       try {
          final var mBeanServer = ManagementFactory.getPlatformMBeanServer();
 
-         ObjectName beanConfigName, beanPoolName;
+         ObjectName beanConfigName, beanPoolName, beanStatementsName;
          if ("true".equals(System.getProperty("hikaricp.jmx.register2.0"))) {
              beanConfigName = new ObjectName("com.zaxxer.hikari:type=PoolConfig,name=" + poolName);
              beanPoolName = new ObjectName("com.zaxxer.hikari:type=Pool,name=" + poolName);
+             beanStatementsName = new ObjectName("com.zaxxer.hikari:type=PoolStatements,name=" + poolName);
          } else {
             beanConfigName = new ObjectName("com.zaxxer.hikari:type=PoolConfig (" + poolName + ")");
             beanPoolName = new ObjectName("com.zaxxer.hikari:type=Pool (" + poolName + ")");
+            beanStatementsName = new ObjectName("com.zaxxer.hikari:type=PoolStatements (" + poolName + ")");
          }
          if (register) {
             if (!mBeanServer.isRegistered(beanConfigName)) {
                mBeanServer.registerMBean(config, beanConfigName);
                mBeanServer.registerMBean(hikariPool, beanPoolName);
+               if (statementStats != null) {
+                  mBeanServer.registerMBean(statementStats, beanStatementsName);
+               }
             } else {
                logger.error("{} - JMX name ({}) is already registered.", poolName, poolName);
             }
@@ -296,6 +365,9 @@ abstract class PoolBase
          else if (mBeanServer.isRegistered(beanConfigName)) {
             mBeanServer.unregisterMBean(beanConfigName);
             mBeanServer.unregisterMBean(beanPoolName);
+            if (mBeanServer.isRegistered(beanStatementsName)) {
+               mBeanServer.unregisterMBean(beanStatementsName);
+            }
          }
       }
       catch (Exception e) {
@@ -364,7 +436,13 @@ abstract class PoolBase
             throw new SQLTransientConnectionException("DataSource returned null unexpectedly");
          }
 
+         final var connected = currentTime();
          setupConnection(connection);
+         PoolEvents.created(poolName, start, connected);
+         eventRing.record(PoolEventRing.CONNECTION_CREATED, elapsedNanos(start, connected), elapsedNanos(connected), 0L, null);
+         if (mappedCounters != null) {
+            mappedCounters.recordCreation();
+         }
          lastConnectionFailure.set(null);
          return connection;
       }
@@ -377,6 +455,10 @@ abstract class PoolBase
          }
 
          lastConnectionFailure.set(e);
+         eventRing.record(PoolEventRing.CONNECTION_FAILED, elapsedNanos(start), 0L, 0L, e.getClass().getName());
+         if (mappedCounters != null) {
+            mappedCounters.recordCreationFailure();
+         }
          throw e;
       }
       finally {
@@ -695,6 +777,14 @@ abstract class PoolBase
 
       default void recordConnectionTimeout() {}
 
+      default void recordStatementCacheHit() {}
+
+      default void recordStatementCacheMiss() {}
+
+      default void recordStatementExecution(final long elapsedNanos) {}
+
+      default void recordResultSetIteration(final long elapsedNanos) {}
+
       @Override
       default void close() {}
    }
@@ -734,9 +824,7 @@ abstract class PoolBase
       @Override
       public void recordBorrowStats(final PoolEntry poolEntry, final long startTime)
       {
-         final var now = currentTime();
-         poolEntry.lastBorrowed = now;
-         tracker.recordConnectionAcquiredNanos(elapsedNanos(startTime, now));
+         tracker.recordConnectionAcquiredNanos(elapsedNanos(startTime, poolEntry.lastBorrowed));
       }
 
       @Override
@@ -744,6 +832,30 @@ abstract class PoolBase
          tracker.recordConnectionTimeout();
       }
 
+      @Override
+      public void recordStatementCacheHit()
+      {
+         tracker.recordStatementCacheHit();
+      }
+
+      @Override
+      public void recordStatementCacheMiss()
+      {
+         tracker.recordStatementCacheMiss();
+      }
+
+      @Override
+      public void recordStatementExecution(final long elapsedNanos)
+      {
+         tracker.recordStatementExecutionNanos(elapsedNanos);
+      }
+
+      @Override
+      public void recordResultSetIteration(final long elapsedNanos)
+      {
+         tracker.recordResultSetIterationNanos(elapsedNanos);
+      }
+
       @Override
       public void close()
       {
@@ -22,7 +22,6 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
 import java.sql.SQLException;
-import java.sql.Statement;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
@@ -42,19 +41,29 @@ final class PoolEntry implements IConcurrentBagEntry
    Connection connection;
    long lastAccessed;
    long lastBorrowed;
+   String callSite;
+   Thread borrower;
+   long lastValidated;
 
    @SuppressWarnings("FieldCanBeLocal")
    private volatile int state = 0;
    private volatile boolean evict;
+   private int lane;
+   private int borrowSource;
 
    private volatile ScheduledFuture<?> endOfLife;
    private volatile ScheduledFuture<?> keepalive;
 
-   private final FastList<Statement> openStatements;
+   private final FastList<ProxyStatement> openStatements;
+   private final StatementCache statementCache;
    private final HikariPool hikariPool;
 
    private final boolean isReadOnly;
    private final boolean isAutoCommit;
+   private final boolean isProxyReuse;
+   private final DriverProxyFactory driverProxyFactory;
+
+   private ProxyConnection reusableProxy;
 
    static
    {
@@ -68,7 +77,13 @@ final class PoolEntry implements IConcurrentBagEntry
       this.isReadOnly = isReadOnly;
       this.isAutoCommit = isAutoCommit;
       this.lastAccessed = currentTime();
-      this.openStatements = new FastList<>(Statement.class, 16);
+      this.lastValidated = lastAccessed;
+      this.openStatements = new FastList<>(ProxyStatement.class, 16);
+      this.isProxyReuse = hikariPool != null && hikariPool.isProxyReuseEnabled;
+      this.driverProxyFactory = (hikariPool != null) ? hikariPool.getDriverProxyFactory(connection) : null;
+
+      final var cacheSize = (pool != null) ? pool.config.getPreparedStatementCacheSize() : 0;
+      this.statementCache = (cacheSize > 0) ? new StatementCache(pool, cacheSize) : null;
    }
 
    /**
@@ -96,9 +111,50 @@ final class PoolEntry implements IConcurrentBagEntry
       this.keepalive = keepalive;
    }
 
+   /**
+    * Get the last time this connection was known to be alive, either because it was returned to the pool or
+    * because it was validated while idle.
+    *
+    * @return the later of the last access and last validation timestamps
+    */
+   long lastAlive()
+   {
+      return Math.max(lastAccessed, lastValidated);
+   }
+
+   StatementCache getStatementCache()
+   {
+      return statementCache;
+   }
+
    Connection createProxyConnection(final ProxyLeakTask leakTask)
    {
-      return ProxyFactory.getProxyConnection(this, connection, openStatements, leakTask, isReadOnly, isAutoCommit);
+      if (reusableProxy != null) {
+         return reusableProxy.reuse(connection, leakTask, isReadOnly, isAutoCommit);
+      }
+
+      final var proxyConnection = (driverProxyFactory != null)
+         ? driverProxyFactory.getProxyConnection(this, connection, openStatements, leakTask, isReadOnly, isAutoCommit)
+         : ProxyFactory.getProxyConnection(this, connection, openStatements, leakTask, isReadOnly, isAutoCommit);
+      if (isProxyReuse) {
+         reusableProxy = proxyConnection;
+         return proxyConnection.newHandle();
+      }
+      return proxyConnection;
+   }
+
+   /**
+    * Whether the proxy connection of this entry is reused from one borrow to the next, rather than
+    * allocated for each borrow.  Each borrow is handed a {@link ConnectionHandle} of its own, which only
+    * holds the proxy and the generation of the borrow, so that a connection, statement or result set
+    * kept from an earlier borrow throws "connection is closed" rather than acting on the next borrower's
+    * connection.  Statements and result sets are still allocated per call.
+    *
+    * @return true if the proxy connection is reused
+    */
+   boolean isProxyReuse()
+   {
+      return isProxyReuse;
    }
 
    void resetConnectionState(final ProxyConnection proxyConnection, final int dirtyBits) throws SQLException
@@ -172,6 +228,32 @@ final class PoolEntry implements IConcurrentBagEntry
       stateUpdater.set(this, update);
    }
 
+   /** {@inheritDoc} */
+   @Override
+   public void setLane(int lane)
+   {
+      this.lane = lane;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public int getLane()
+   {
+      return lane;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void setBorrowSource(int source)
+   {
+      this.borrowSource = source;
+   }
+
+   int getBorrowSource()
+   {
+      return borrowSource;
+   }
+
    Connection close()
    {
       var eol = endOfLife;
@@ -184,6 +266,10 @@ final class PoolEntry implements IConcurrentBagEntry
          LOGGER.warn("{} - keepalive task cancellation unexpectedly returned false for connection {}", getPoolName(), connection);
       }
 
+      if (statementCache != null) {
+         statementCache.clear();
+      }
+
       var con = connection;
       connection = null;
       endOfLife = null;
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+import static com.zaxxer.hikari.util.ClockSource.elapsedNanos;
+
+/**
+ * A fixed-size ring of the most recent pool events, cheap enough to leave on so that the events leading up to an
+ * incident can be read after the fact.  All storage is allocated up front: an event is a timestamp, a type and three
+ * primitive values in parallel arrays, plus an optional reference to an existing string such as an eviction reason.
+ * Recording claims a slot with a single atomic increment and takes no lock.  Each slot carries a sequence number
+ * that is cleared while the slot is written and published afterwards, so a reader skips slots that are being
+ * overwritten rather than returning a torn event.
+ *
+ * @author Brett Wooldridge
+ */
+final class PoolEventRing
+{
+   static final int BORROW_TIMEOUT = 0;
+   static final int CONNECTION_CREATED = 1;
+   static final int CONNECTION_FAILED = 2;
+   static final int CONNECTION_EVICTED = 3;
+   static final int FILL = 4;
+   static final int HOUSEKEEPING = 5;
+   static final int CLOCK_LEAP = 6;
+
+   private static final String[] TYPE_NAMES = {"BORROW_TIMEOUT", "CONNECTION_CREATED", "CONNECTION_FAILED", "CONNECTION_EVICTED", "FILL", "HOUSEKEEPING", "CLOCK_LEAP"};
+   private static final String[][] VALUE_NAMES = {
+      {"waitedMs", "active", "waiting"},
+      {"connectNanos", "setupNanos", null},
+      {"elapsedNanos", null, null},
+      {"total", "idle", null},
+      {"total", "idle", "toAdd"},
+      {"total", "idle", "removed"},
+      {"deltaMs", null, null},
+   };
+
+   private final int mask;
+   private final long baseTime;
+   private final long baseEpochMillis;
+   private final AtomicLong cursor;
+   private final AtomicLongArray sequences;
+   private final long[] times;
+   private final int[] types;
+   private final long[] values;
+   private final String[] details;
+
+   /**
+    * Construct a ring.
+    *
+    * @param size the number of events retained, rounded up to a power of two
+    */
+   PoolEventRing(final int size)
+   {
+      final var capacity = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+      this.mask = capacity - 1;
+      this.baseTime = currentTime();
+      this.baseEpochMillis = System.currentTimeMillis();
+      this.cursor = new AtomicLong();
+      this.sequences = new AtomicLongArray(capacity);
+      this.times = new long[capacity];
+      this.types = new int[capacity];
+      this.values = new long[capacity * 3];
+      this.details = new String[capacity];
+   }
+
+   /**
+    * Record an event, overwriting the oldest one once the ring is full.
+    *
+    * @param type the event type
+    * @param a the first value of the event
+    * @param b the second value of the event
+    * @param c the third value of the event
+    * @param detail an existing string describing the event, or null
+    */
+   void record(final int type, final long a, final long b, final long c, final String detail)
+   {
+      final var sequence = cursor.getAndIncrement();
+      final var i = (int) sequence & mask;
+
+      sequences.setOpaque(i, 0L);
+      VarHandle.storeStoreFence();
+      times[i] = currentTime();
+      types[i] = type;
+      values[i * 3] = a;
+      values[i * 3 + 1] = b;
+      values[i * 3 + 2] = c;
+      details[i] = detail;
+      sequences.setRelease(i, sequence + 1);
+   }
+
+   /**
+    * Get the retained events, oldest first, each formatted on one line.
+    *
+    * @return the formatted events
+    */
+   List<String> dump()
+   {
+      final var end = cursor.get();
+      final var start = Math.max(0L, end - (mask + 1));
+      final var lines = new ArrayList<String>((int) (end - start));
+
+      for (var sequence = start; sequence < end; sequence++) {
+         final var i = (int) sequence & mask;
+         if (sequences.getAcquire(i) != sequence + 1) {
+            continue;
+         }
+
+         final var time = times[i];
+         final var type = types[i];
+         final var a = values[i * 3];
+         final var b = values[i * 3 + 1];
+         final var c = values[i * 3 + 2];
+         final var detail = details[i];
+         VarHandle.loadLoadFence();
+         if (sequences.getOpaque(i) != sequence + 1) {
+            continue;
+         }
+
+         lines.add(format(time, type, a, b, c, detail));
+      }
+
+      return lines;
+   }
+
+   private String format(final long time, final int type, final long a, final long b, final long c, final String detail)
+   {
+      final var sb = new StringBuilder(96);
+      sb.append(Instant.ofEpochMilli(baseEpochMillis).plusNanos(elapsedNanos(baseTime, time))).append(' ').append(TYPE_NAMES[type]);
+
+      final var names = VALUE_NAMES[type];
+      final long[] eventValues = {a, b, c};
+      for (int v = 0; v < names.length; v++) {
+         if (names[v] != null) {
+            sb.append(' ').append(names[v]).append('=').append(eventValues[v]);
+         }
+      }
+      if (detail != null) {
+         sb.append(' ').append(detail);
+      }
+
+      return sb.toString();
+   }
+}
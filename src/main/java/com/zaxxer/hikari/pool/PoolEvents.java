@@ -0,0 +1,344 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+import static com.zaxxer.hikari.util.ClockSource.elapsedNanos;
+import static com.zaxxer.hikari.util.ConcurrentBag.BORROW_HANDOFF;
+import static com.zaxxer.hikari.util.ConcurrentBag.BORROW_THREAD_LOCAL;
+
+/**
+ * Java Flight Recorder events of the pool.  Each method checks whether its event type is enabled in a recording
+ * before creating the event, so that the events cost only a volatile read when nothing is recording them.  When
+ * the {@code jdk.jfr} module is not available, the methods do nothing.
+ *
+ * @author Brett Wooldridge
+ */
+final class PoolEvents
+{
+   private static final boolean AVAILABLE = isJfrAvailable();
+
+   private PoolEvents()
+   {
+      // unconstructable
+   }
+
+   static boolean isBorrowEnabled()
+   {
+      return AVAILABLE && Types.BORROW.isEnabled();
+   }
+
+   static void borrowed(final String poolName, final PoolEntry poolEntry, final long startTime, final long now)
+   {
+      if (AVAILABLE && Types.BORROW.isEnabled()) {
+         final var event = new ConnectionBorrowEvent();
+         event.poolName = poolName;
+         event.waitTime = elapsedNanos(startTime, now);
+         event.source = borrowSourceName(poolEntry.getBorrowSource());
+         event.commit();
+      }
+   }
+
+   static void returned(final String poolName, final PoolEntry poolEntry)
+   {
+      if (AVAILABLE && Types.RETURN.isEnabled()) {
+         final var event = new ConnectionReturnEvent();
+         event.poolName = poolName;
+         event.heldTime = elapsedNanos(poolEntry.lastBorrowed, poolEntry.lastAccessed);
+         event.evicted = poolEntry.isMarkedEvicted();
+         event.commit();
+      }
+   }
+
+   static void created(final String poolName, final long startTime, final long connectedTime)
+   {
+      if (AVAILABLE && Types.CREATE.isEnabled()) {
+         final var event = new ConnectionCreateEvent();
+         event.poolName = poolName;
+         event.connectTime = elapsedNanos(startTime, connectedTime);
+         event.setupTime = elapsedNanos(connectedTime, currentTime());
+         event.commit();
+      }
+   }
+
+   static void validated(final String poolName, final long startTime, final boolean isValid)
+   {
+      if (AVAILABLE && Types.VALIDATE.isEnabled()) {
+         final var event = new ConnectionValidateEvent();
+         event.poolName = poolName;
+         event.validationTime = elapsedNanos(startTime);
+         event.valid = isValid;
+         event.commit();
+      }
+   }
+
+   static void evicted(final String poolName, final String reason)
+   {
+      if (AVAILABLE && Types.EVICT.isEnabled()) {
+         final var event = new ConnectionEvictEvent();
+         event.poolName = poolName;
+         event.reason = reason;
+         event.commit();
+      }
+   }
+
+   static void leakDetected(final String poolName, final String connection, final long leakDetectionThresholdMs)
+   {
+      if (AVAILABLE && Types.LEAK.isEnabled()) {
+         final var event = new ConnectionLeakEvent();
+         event.poolName = poolName;
+         event.connection = connection;
+         event.threshold = leakDetectionThresholdMs;
+         event.commit();
+      }
+   }
+
+   static void timedOut(final String poolName, final long startTime, final int active, final int waiting, final ConnectionHoldersSnapshot snapshot)
+   {
+      if (AVAILABLE && Types.TIMEOUT.isEnabled()) {
+         final var event = new ConnectionTimeoutEvent();
+         event.poolName = poolName;
+         event.waitTime = elapsedNanos(startTime);
+         event.activeConnections = active;
+         event.waitingThreads = waiting;
+         event.longestHeld = (snapshot != null) ? snapshot.getLongestHeldMillis() : -1L;
+         event.holders = (snapshot != null) ? snapshot.getMessage() : null;
+         event.commit();
+      }
+   }
+
+   static void housekept(final String poolName, final long startTime, final int total, final int idle, final int removed)
+   {
+      if (AVAILABLE && Types.HOUSEKEEPING.isEnabled()) {
+         final var event = new HousekeepingEvent();
+         event.poolName = poolName;
+         event.runTime = elapsedNanos(startTime);
+         event.totalConnections = total;
+         event.idleConnections = idle;
+         event.removedConnections = removed;
+         event.commit();
+      }
+   }
+
+   private static String borrowSourceName(final int source)
+   {
+      switch (source) {
+         case BORROW_THREAD_LOCAL:
+            return "thread-local";
+         case BORROW_HANDOFF:
+            return "handoff";
+         default:
+            return "shared";
+      }
+   }
+
+   private static boolean isJfrAvailable()
+   {
+      try {
+         return PoolEvents.class.getModule().canRead(Event.class.getModule());
+      }
+      catch (LinkageError e) {
+         return false;
+      }
+   }
+
+   /**
+    * Holds the event types, so that they are only registered when JFR is available.
+    */
+   private static final class Types
+   {
+      static final EventType BORROW = EventType.getEventType(ConnectionBorrowEvent.class);
+      static final EventType RETURN = EventType.getEventType(ConnectionReturnEvent.class);
+      static final EventType CREATE = EventType.getEventType(ConnectionCreateEvent.class);
+      static final EventType VALIDATE = EventType.getEventType(ConnectionValidateEvent.class);
+      static final EventType EVICT = EventType.getEventType(ConnectionEvictEvent.class);
+      static final EventType LEAK = EventType.getEventType(ConnectionLeakEvent.class);
+      static final EventType TIMEOUT = EventType.getEventType(ConnectionTimeoutEvent.class);
+      static final EventType HOUSEKEEPING = EventType.getEventType(HousekeepingEvent.class);
+   }
+
+   // ***********************************************************************
+   //                              Event types
+   // ***********************************************************************
+
+   @Name("com.zaxxer.hikari.ConnectionBorrow")
+   @Label("Connection Borrow")
+   @Category("HikariCP")
+   @Description("A connection was borrowed from the pool")
+   @StackTrace(false)
+   static final class ConnectionBorrowEvent extends Event
+   {
+      @Label("Pool")
+      String poolName;
+
+      @Label("Wait Time")
+      @Timespan(Timespan.NANOSECONDS)
+      long waitTime;
+
+      @Label("Source")
+      @Description("Where the connection came from: the thread-local list, the shared list, or a handoff from a returning thread")
+      String source;
+   }
+
+   @Name("com.zaxxer.hikari.ConnectionReturn")
+   @Label("Connection Return")
+   @Category("HikariCP")
+   @Description("A connection was returned to the pool")
+   @StackTrace(false)
+   static final class ConnectionReturnEvent extends Event
+   {
+      @Label("Pool")
+      String poolName;
+
+      @Label("Held Time")
+      @Timespan(Timespan.NANOSECONDS)
+      long heldTime;
+
+      @Label("Evicted")
+      boolean evicted;
+   }
+
+   @Name("com.zaxxer.hikari.ConnectionCreate")
+   @Label("Connection Create")
+   @Category("HikariCP")
+   @Description("A connection was created and set up")
+   @StackTrace(false)
+   static final class ConnectionCreateEvent extends Event
+   {
+      @Label("Pool")
+      String poolName;
+
+      @Label("Connect Time")
+      @Timespan(Timespan.NANOSECONDS)
+      long connectTime;
+
+      @Label("Setup Time")
+      @Timespan(Timespan.NANOSECONDS)
+      long setupTime;
+   }
+
+   @Name("com.zaxxer.hikari.ConnectionValidate")
+   @Label("Connection Validate")
+   @Category("HikariCP")
+   @Description("A connection was validated")
+   @StackTrace(false)
+   static final class ConnectionValidateEvent extends Event
+   {
+      @Label("Pool")
+      String poolName;
+
+      @Label("Validation Time")
+      @Timespan(Timespan.NANOSECONDS)
+      long validationTime;
+
+      @Label("Valid")
+      boolean valid;
+   }
+
+   @Name("com.zaxxer.hikari.ConnectionEvict")
+   @Label("Connection Evict")
+   @Category("HikariCP")
+   @Description("A connection was removed from the pool and closed")
+   @StackTrace(false)
+   static final class ConnectionEvictEvent extends Event
+   {
+      @Label("Pool")
+      String poolName;
+
+      @Label("Reason")
+      String reason;
+   }
+
+   @Name("com.zaxxer.hikari.ConnectionLeak")
+   @Label("Connection Leak")
+   @Category("HikariCP")
+   @Description("A connection has been out of the pool for longer than the leak detection threshold")
+   static final class ConnectionLeakEvent extends Event
+   {
+      @Label("Pool")
+      String poolName;
+
+      @Label("Connection")
+      String connection;
+
+      @Label("Threshold")
+      @Timespan(Timespan.MILLISECONDS)
+      long threshold;
+   }
+
+   @Name("com.zaxxer.hikari.ConnectionTimeout")
+   @Label("Connection Timeout")
+   @Category("HikariCP")
+   @Description("A connection request timed out")
+   static final class ConnectionTimeoutEvent extends Event
+   {
+      @Label("Pool")
+      String poolName;
+
+      @Label("Wait Time")
+      @Timespan(Timespan.NANOSECONDS)
+      long waitTime;
+
+      @Label("Active Connections")
+      int activeConnections;
+
+      @Label("Waiting Threads")
+      int waitingThreads;
+
+      @Label("Longest Held")
+      @Description("The longest time an in-use connection had been held, or -1 if no snapshot of the holders was captured")
+      @Timespan(Timespan.MILLISECONDS)
+      long longestHeld;
+
+      @Label("Holders")
+      @Description("The longest held connections, with their borrowing threads, if a snapshot was captured for this timeout")
+      String holders;
+   }
+
+   @Name("com.zaxxer.hikari.Housekeeping")
+   @Label("Housekeeping")
+   @Category("HikariCP")
+   @Description("A run of the pool housekeeper")
+   @StackTrace(false)
+   static final class HousekeepingEvent extends Event
+   {
+      @Label("Pool")
+      String poolName;
+
+      @Label("Run Time")
+      @Timespan(Timespan.NANOSECONDS)
+      long runTime;
+
+      @Label("Total Connections")
+      int totalConnections;
+
+      @Label("Idle Connections")
+      int idleConnections;
+
+      @Label("Removed Connections")
+      int removedConnections;
+   }
+}
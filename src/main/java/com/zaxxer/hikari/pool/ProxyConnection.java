@@ -28,6 +28,7 @@ import java.util.Set;
 import java.util.concurrent.Executor;
 
 import static com.zaxxer.hikari.SQLExceptionOverride.Override.DO_NOT_EVICT;
+import static com.zaxxer.hikari.pool.StatementCache.DEFAULT_HOLDABILITY;
 
 /**
  * This is the proxy class for java.sql.Connection.
@@ -43,26 +44,42 @@ public abstract class ProxyConnection implements Connection
    static final int DIRTY_BIT_NETTIMEOUT = 0b010000;
    static final int DIRTY_BIT_SCHEMA     = 0b100000;
 
-   private static final Logger LOGGER;
+   // the members used by the methods that runtime generated proxies copy are package-private, see DriverProxyFactory
+   static final Logger LOGGER;
    private static final Set<String> ERROR_STATES;
    private static final Set<Integer> ERROR_CODES;
 
    @SuppressWarnings("WeakerAccess")
    protected Connection delegate;
 
-   private final PoolEntry poolEntry;
-   private final ProxyLeakTask leakTask;
-   private final FastList<Statement> openStatements;
+   final PoolEntry poolEntry;
+   private final FastList<ProxyStatement> openStatements;
 
-   private int dirtyBits;
-   private boolean isCommitStateDirty;
+   // open statements are tracked without the monitor while only their owner, the first thread to track one, uses them
+   private volatile Thread statementsOwner;
+   private volatile boolean isStatementsShared;
+   private volatile boolean isOwnerTracking;
+   final StatementCache statementCache;
+   private final boolean isProxyReuse;
+   private final boolean isStatementTimed;
 
-   private boolean isReadOnly;
-   private boolean isAutoCommit;
-   private int networkTimeout;
-   private int transactionIsolation;
-   private String dbcatalog;
-   private String dbschema;
+   ProxyLeakTask leakTask;
+
+   // incremented on each reuse, so that handles, statements and result sets of an earlier borrow can tell they are stale
+   private int generation;
+
+   // the connection the application holds for the current borrow, this proxy unless it is reused
+   private Connection handle;
+
+   int dirtyBits;
+   boolean isCommitStateDirty;
+
+   boolean isReadOnly;
+   boolean isAutoCommit;
+   int networkTimeout;
+   int transactionIsolation;
+   String dbcatalog;
+   String dbschema;
 
    // static initializer
    static {
@@ -85,16 +102,20 @@ public abstract class ProxyConnection implements Connection
 
    protected ProxyConnection(final PoolEntry poolEntry,
                              final Connection connection,
-                             final FastList<Statement> openStatements,
+                             final FastList<ProxyStatement> openStatements,
                              final ProxyLeakTask leakTask,
                              final boolean isReadOnly,
                              final boolean isAutoCommit) {
       this.poolEntry = poolEntry;
       this.delegate = connection;
       this.openStatements = openStatements;
+      this.statementCache = (poolEntry != null) ? poolEntry.getStatementCache() : null;
+      this.isProxyReuse = poolEntry != null && poolEntry.isProxyReuse();
+      this.isStatementTimed = poolEntry != null && poolEntry.getPoolBase().isStatementTimed;
       this.leakTask = leakTask;
       this.isReadOnly = isReadOnly;
       this.isAutoCommit = isAutoCommit;
+      this.handle = this;
    }
 
    /** {@inheritDoc} */
@@ -185,9 +206,165 @@ public abstract class ProxyConnection implements Connection
       return sqle;
    }
 
-   final synchronized void untrackStatement(final Statement statement)
+   /**
+    * Stop tracking a statement that the application is closing.  The last tracked statement is moved
+    * into its slot, so that removal does not depend on the number of open statements.
+    *
+    * @param statement the statement proxy
+    */
+   final void untrackStatement(final ProxyStatement statement)
+   {
+      if (enterOwnerTracking()) {
+         try {
+            removeStatement(statement);
+         }
+         finally {
+            isOwnerTracking = false;
+         }
+      }
+      else {
+         synchronized (this) {
+            shareTracking();
+            removeStatement(statement);
+         }
+      }
+   }
+
+   private void removeStatement(final ProxyStatement statement)
+   {
+      final var slot = statement.slot;
+      if (slot < 0 || slot >= openStatements.size() || openStatements.get(slot) != statement) {
+         statement.slot = -1;
+         return;
+      }
+
+      final var last = openStatements.removeLast();
+      if (last != statement) {
+         openStatements.set(slot, last);
+         last.slot = slot;
+      }
+      statement.slot = -1;
+   }
+
+   /**
+    * Enter the lock-free path of statement tracking if the calling thread owns it and no other thread has
+    * shared it.  The caller must clear {@code isOwnerTracking} when it is done.
+    *
+    * @return true if the calling thread may track statements without the monitor
+    */
+   private boolean enterOwnerTracking()
+   {
+      if (statementsOwner == Thread.currentThread()) {
+         isOwnerTracking = true;
+         if (!isStatementsShared) {
+            return true;
+         }
+         isOwnerTracking = false;
+      }
+      return false;
+   }
+
+   /**
+    * Called holding the monitor.  The first thread to track a statement becomes the owner of the tracking.  Any
+    * other thread makes it shared, after which the owner takes the monitor too, and waits for the owner to leave
+    * the lock-free path.
+    */
+   private void shareTracking()
+   {
+      final var thread = Thread.currentThread();
+      if (statementsOwner == null && !isStatementsShared) {
+         statementsOwner = thread;
+      }
+      else if (statementsOwner != thread && !isStatementsShared) {
+         isStatementsShared = true;
+         while (isOwnerTracking) {
+            Thread.onSpinWait();
+         }
+      }
+   }
+
+   /**
+    * Return a statement that the application is closing to the statement cache, if it came from there.
+    *
+    * @param statement the delegate statement
+    * @return true if the statement was cached, false if it must be closed
+    */
+   final boolean releaseStatement(final Statement statement)
+   {
+      return statementCache != null && delegate != ClosedConnection.CLOSED_CONNECTION && statementCache.release(statement);
+   }
+
+   /**
+    * Reinitialize this closed proxy for the next borrow of its pool entry, as though newly constructed.
+    *
+    * @param connection the raw database Connection
+    * @param leakTask the ProxyLeakTask for this borrow
+    * @param isReadOnly the default readOnly state of the connection
+    * @param isAutoCommit the default autoCommit state of the connection
+    * @return the handle of the new borrow
+    */
+   final Connection reuse(final Connection connection, final ProxyLeakTask leakTask, final boolean isReadOnly, final boolean isAutoCommit)
+   {
+      this.leakTask = leakTask;
+      this.isReadOnly = isReadOnly;
+      this.isAutoCommit = isAutoCommit;
+      this.dirtyBits = 0;
+      this.isCommitStateDirty = false;
+      this.networkTimeout = 0;
+      this.transactionIsolation = 0;
+      this.dbcatalog = null;
+      this.dbschema = null;
+      this.delegate = connection;
+      this.statementsOwner = null;
+      this.isStatementsShared = false;
+      return newHandle();
+   }
+
+   /**
+    * Start a new generation of this reused proxy, and create the handle the borrower of that generation
+    * holds instead of the proxy itself, so that references kept from earlier borrows can be rejected.
+    *
+    * @return the handle of the new borrow
+    */
+   final Connection newHandle()
+   {
+      handle = ProxyFactory.getConnectionHandle(this, ++generation);
+      return handle;
+   }
+
+   final int getGeneration()
+   {
+      return generation;
+   }
+
+   /**
+    * Get the connection the application holds for the current borrow.
+    *
+    * @return the handle of the current borrow, or this proxy if it is not reused
+    */
+   final Connection getHandle()
    {
-      openStatements.remove(statement);
+      return handle;
+   }
+
+   final boolean isProxyReuse()
+   {
+      return isProxyReuse;
+   }
+
+   final boolean isStatementTimed()
+   {
+      return isStatementTimed;
+   }
+
+   final void recordStatementExecution(final ProxyStatement statement, final String sql, final long startTime)
+   {
+      poolEntry.getPoolBase().recordStatementExecution(statement, sql, startTime);
+   }
+
+   final void recordResultSetIteration(final ProxyStatement statement, final long startTime, final long rows)
+   {
+      poolEntry.getPoolBase().recordResultSetIteration(statement, startTime, rows);
    }
 
    final void markCommitStateDirty()
@@ -202,20 +379,64 @@ public abstract class ProxyConnection implements Connection
       leakTask.cancel();
    }
 
-   private synchronized <T extends Statement> T trackStatement(final T statement)
+   <T extends Statement> T trackStatement(final T proxyStatement)
    {
+      final var statement = (ProxyStatement) proxyStatement;
+      if (enterOwnerTracking()) {
+         try {
+            addStatement(statement);
+         }
+         finally {
+            isOwnerTracking = false;
+         }
+      }
+      else {
+         synchronized (this) {
+            shareTracking();
+            addStatement(statement);
+         }
+      }
+
+      return proxyStatement;
+   }
+
+   private void addStatement(final ProxyStatement statement)
+   {
+      statement.slot = openStatements.size();
       openStatements.add(statement);
+   }
 
-      return statement;
+   <T extends Statement> T trackStatement(final T proxyStatement, final String sql)
+   {
+      ((ProxyStatement) proxyStatement).sql = sql;
+      return trackStatement(proxyStatement);
+   }
+
+   void closeStatements()
+   {
+      if (enterOwnerTracking()) {
+         try {
+            closeOpenStatements();
+         }
+         finally {
+            isOwnerTracking = false;
+         }
+      }
+      else {
+         synchronized (this) {
+            shareTracking();
+            closeOpenStatements();
+         }
+      }
    }
 
    @SuppressWarnings("EmptyTryBlock")
-   private synchronized void closeStatements()
+   private void closeOpenStatements()
    {
       final var size = openStatements.size();
       if (size > 0) {
          for (int i = 0; i < size && delegate != ClosedConnection.CLOSED_CONNECTION; i++) {
-            try (Statement ignored = openStatements.get(i)) {
+            try (Statement ignored = openStatements.get(i).delegate) {
                // automatic resource cleanup
             }
             catch (SQLException e) {
@@ -227,7 +448,16 @@ public abstract class ProxyConnection implements Connection
             }
          }
 
+         // statements that were not closed because the connection broke are no longer tracked either
+         for (int i = 0; i < size; i++) {
+            openStatements.get(i).slot = -1;
+         }
          openStatements.clear();
+
+         // statements left open by the application are closed rather than cached, as it may still hold them
+         if (statementCache != null) {
+            statementCache.clearLeased();
+         }
       }
    }
 
@@ -237,7 +467,7 @@ public abstract class ProxyConnection implements Connection
 
    /** {@inheritDoc} */
    @Override
-   public final void close() throws SQLException
+   public void close() throws SQLException
    {
       // Closing statements can cause connection eviction, so this must run before the conditional below
       closeStatements();
@@ -282,21 +512,21 @@ public abstract class ProxyConnection implements Connection
    @Override
    public Statement createStatement() throws SQLException
    {
-      return ProxyFactory.getProxyStatement(this, trackStatement(delegate.createStatement()));
+      return trackStatement(ProxyFactory.getProxyStatement(this, delegate.createStatement()));
    }
 
    /** {@inheritDoc} */
    @Override
    public Statement createStatement(int resultSetType, int concurrency) throws SQLException
    {
-      return ProxyFactory.getProxyStatement(this, trackStatement(delegate.createStatement(resultSetType, concurrency)));
+      return trackStatement(ProxyFactory.getProxyStatement(this, delegate.createStatement(resultSetType, concurrency)));
    }
 
    /** {@inheritDoc} */
    @Override
    public Statement createStatement(int resultSetType, int concurrency, int holdability) throws SQLException
    {
-      return ProxyFactory.getProxyStatement(this, trackStatement(delegate.createStatement(resultSetType, concurrency, holdability)));
+      return trackStatement(ProxyFactory.getProxyStatement(this, delegate.createStatement(resultSetType, concurrency, holdability)));
    }
 
 
@@ -304,63 +534,90 @@ public abstract class ProxyConnection implements Connection
    @Override
    public CallableStatement prepareCall(String sql) throws SQLException
    {
-      return ProxyFactory.getProxyCallableStatement(this, trackStatement(delegate.prepareCall(sql)));
+      return trackStatement(ProxyFactory.getProxyCallableStatement(this, delegate.prepareCall(sql)), sql);
    }
 
    /** {@inheritDoc} */
    @Override
    public CallableStatement prepareCall(String sql, int resultSetType, int concurrency) throws SQLException
    {
-      return ProxyFactory.getProxyCallableStatement(this, trackStatement(delegate.prepareCall(sql, resultSetType, concurrency)));
+      return trackStatement(ProxyFactory.getProxyCallableStatement(this, delegate.prepareCall(sql, resultSetType, concurrency)), sql);
    }
 
    /** {@inheritDoc} */
    @Override
    public CallableStatement prepareCall(String sql, int resultSetType, int concurrency, int holdability) throws SQLException
    {
-      return ProxyFactory.getProxyCallableStatement(this, trackStatement(delegate.prepareCall(sql, resultSetType, concurrency, holdability)));
+      return trackStatement(ProxyFactory.getProxyCallableStatement(this, delegate.prepareCall(sql, resultSetType, concurrency, holdability)), sql);
    }
 
    /** {@inheritDoc} */
    @Override
    public PreparedStatement prepareStatement(String sql) throws SQLException
    {
-      return ProxyFactory.getProxyPreparedStatement(this, trackStatement(delegate.prepareStatement(sql)));
+      if (statementCache != null) {
+         var statement = statementCache.take(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, DEFAULT_HOLDABILITY);
+         if (statement == null) {
+            statement = delegate.prepareStatement(sql);
+         }
+         statementCache.lease(statement, sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY, DEFAULT_HOLDABILITY);
+         return trackStatement(ProxyFactory.getProxyPreparedStatement(this, statement), sql);
+      }
+
+      return trackStatement(ProxyFactory.getProxyPreparedStatement(this, delegate.prepareStatement(sql)), sql);
    }
 
    /** {@inheritDoc} */
    @Override
    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException
    {
-      return ProxyFactory.getProxyPreparedStatement(this, trackStatement(delegate.prepareStatement(sql, autoGeneratedKeys)));
+      return trackStatement(ProxyFactory.getProxyPreparedStatement(this, delegate.prepareStatement(sql, autoGeneratedKeys)), sql);
    }
 
    /** {@inheritDoc} */
    @Override
    public PreparedStatement prepareStatement(String sql, int resultSetType, int concurrency) throws SQLException
    {
-      return ProxyFactory.getProxyPreparedStatement(this, trackStatement(delegate.prepareStatement(sql, resultSetType, concurrency)));
+      if (statementCache != null) {
+         var statement = statementCache.take(sql, resultSetType, concurrency, DEFAULT_HOLDABILITY);
+         if (statement == null) {
+            statement = delegate.prepareStatement(sql, resultSetType, concurrency);
+         }
+         statementCache.lease(statement, sql, resultSetType, concurrency, DEFAULT_HOLDABILITY);
+         return trackStatement(ProxyFactory.getProxyPreparedStatement(this, statement), sql);
+      }
+
+      return trackStatement(ProxyFactory.getProxyPreparedStatement(this, delegate.prepareStatement(sql, resultSetType, concurrency)), sql);
    }
 
    /** {@inheritDoc} */
    @Override
    public PreparedStatement prepareStatement(String sql, int resultSetType, int concurrency, int holdability) throws SQLException
    {
-      return ProxyFactory.getProxyPreparedStatement(this, trackStatement(delegate.prepareStatement(sql, resultSetType, concurrency, holdability)));
+      if (statementCache != null) {
+         var statement = statementCache.take(sql, resultSetType, concurrency, holdability);
+         if (statement == null) {
+            statement = delegate.prepareStatement(sql, resultSetType, concurrency, holdability);
+         }
+         statementCache.lease(statement, sql, resultSetType, concurrency, holdability);
+         return trackStatement(ProxyFactory.getProxyPreparedStatement(this, statement), sql);
+      }
+
+      return trackStatement(ProxyFactory.getProxyPreparedStatement(this, delegate.prepareStatement(sql, resultSetType, concurrency, holdability)), sql);
    }
 
    /** {@inheritDoc} */
    @Override
    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) throws SQLException
    {
-      return ProxyFactory.getProxyPreparedStatement(this, trackStatement(delegate.prepareStatement(sql, columnIndexes)));
+      return trackStatement(ProxyFactory.getProxyPreparedStatement(this, delegate.prepareStatement(sql, columnIndexes)), sql);
    }
 
    /** {@inheritDoc} */
    @Override
    public PreparedStatement prepareStatement(String sql, String[] columnNames) throws SQLException
    {
-      return ProxyFactory.getProxyPreparedStatement(this, trackStatement(delegate.prepareStatement(sql, columnNames)));
+      return trackStatement(ProxyFactory.getProxyPreparedStatement(this, delegate.prepareStatement(sql, columnNames)), sql);
    }
 
    /** {@inheritDoc} */
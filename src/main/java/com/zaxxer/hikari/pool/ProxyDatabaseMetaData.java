@@ -39,7 +39,7 @@ public abstract class ProxyDatabaseMetaData implements DatabaseMetaData
    @Override
    public final Connection getConnection()
    {
-      return connection;
+      return connection.getHandle();
    }
 
    @Override
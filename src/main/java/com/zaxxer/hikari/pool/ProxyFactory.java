@@ -43,7 +43,19 @@ public final class ProxyFactory
     * @param isAutoCommit the default autoCommit state of the connection
     * @return a proxy that wraps the specified {@link Connection}
     */
-   static ProxyConnection getProxyConnection(final PoolEntry poolEntry, final Connection connection, final FastList<Statement> openStatements, final ProxyLeakTask leakTask, final boolean isReadOnly, final boolean isAutoCommit)
+   static ProxyConnection getProxyConnection(final PoolEntry poolEntry, final Connection connection, final FastList<ProxyStatement> openStatements, final ProxyLeakTask leakTask, final boolean isReadOnly, final boolean isAutoCommit)
+   {
+      // Body is replaced (injected) by JavassistProxyFactory
+      throw new IllegalStateException("You need to run the CLI build and you need target/classes in your classpath to run.");
+   }
+
+   /**
+    * Create a handle for the current borrow of a reused proxy connection.
+    * @param connection the reused proxy connection
+    * @param generation the generation of the current borrow
+    * @return a handle that forwards to the proxy connection while the borrow is current
+    */
+   static ConnectionHandle getConnectionHandle(final ProxyConnection connection, final int generation)
    {
       // Body is replaced (injected) by JavassistProxyFactory
       throw new IllegalStateException("You need to run the CLI build and you need target/classes in your classpath to run.");
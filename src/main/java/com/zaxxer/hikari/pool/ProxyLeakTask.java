@@ -16,27 +16,41 @@
 
 package com.zaxxer.hikari.pool;
 
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.zaxxer.hikari.HikariDataSource;
+
 /**
  * A Runnable that is scheduled in the future to report leaks.  The ScheduledFuture is
  * cancelled if the connection is closed before the leak time expires.
+ * <p>
+ * The stack of the borrowing thread is captured with a {@link StackWalker}, without the
+ * frames of the pool itself, and is only converted to StackTraceElements if a leak is
+ * actually reported.
  *
  * @author Brett Wooldridge
  */
 class ProxyLeakTask implements Runnable
 {
    private static final Logger LOGGER = LoggerFactory.getLogger(ProxyLeakTask.class);
+   private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+   private static final Set<String> POOL_CLASSES = Set.of(ProxyLeakTask.class.getName(), ProxyLeakTaskFactory.class.getName(),
+                                                          HikariPool.class.getName(), HikariDataSource.class.getName());
    static final ProxyLeakTask NO_LEAK;
 
    private ScheduledFuture<?> scheduledFuture;
+   private String poolName;
    private String connectionName;
-   private Exception exception;
+   private long leakDetectionThreshold;
+   private List<StackWalker.StackFrame> frames;
    private String threadName;
    private boolean isLeaked;
 
@@ -56,17 +70,42 @@ class ProxyLeakTask implements Runnable
 
    ProxyLeakTask(final PoolEntry poolEntry)
    {
-      this.exception = new Exception("Apparent connection leak detected");
-      this.threadName = Thread.currentThread().getName();
-      this.connectionName = poolEntry.connection.toString();
+      captureBorrower();
+      bind(poolEntry);
    }
 
    private ProxyLeakTask()
    {
    }
 
+   /**
+    * Capture the stack and name of the calling thread for an asynchronous borrow, which is completed on
+    * another thread.  The task is bound to the borrowed entry and scheduled when the connection is handed out.
+    *
+    * @return the unscheduled task
+    */
+   static ProxyLeakTask captureCaller()
+   {
+      final var task = new ProxyLeakTask();
+      task.captureBorrower();
+      return task;
+   }
+
+   void bind(final PoolEntry poolEntry)
+   {
+      this.connectionName = poolEntry.connection.toString();
+      this.poolName = poolEntry.getPoolName();
+   }
+
+   private void captureBorrower()
+   {
+      this.frames = STACK_WALKER.walk(s -> s.dropWhile(f -> POOL_CLASSES.contains(f.getClassName())).collect(Collectors.toList()));
+      this.threadName = Thread.currentThread().getName();
+   }
+
    void schedule(ScheduledExecutorService executorService, long leakDetectionThreshold)
    {
+      this.leakDetectionThreshold = leakDetectionThreshold;
       scheduledFuture = executorService.schedule(this, leakDetectionThreshold, TimeUnit.MILLISECONDS);
    }
 
@@ -76,13 +115,10 @@ class ProxyLeakTask implements Runnable
    {
       isLeaked = true;
 
-      final var stackTrace = exception.getStackTrace();
-      final var trace = new StackTraceElement[stackTrace.length - 5];
-
-      System.arraycopy(stackTrace, 5, trace, 0, trace.length);
-
-      exception.setStackTrace(trace);
+      final var exception = new Exception("Apparent connection leak detected");
+      exception.setStackTrace(frames.stream().map(StackWalker.StackFrame::toStackTraceElement).toArray(StackTraceElement[]::new));
       LOGGER.warn("Connection leak detection triggered for {} on thread {}, stack trace follows", connectionName, threadName, exception);
+      PoolEvents.leakDetected(poolName, connectionName, leakDetectionThreshold);
    }
 
    void cancel()
@@ -17,9 +17,12 @@
 package com.zaxxer.hikari.pool;
 
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * A factory for {@link ProxyLeakTask} Runnables that are scheduled in the future to report leaks.
+ * When a sample rate of N greater than one is configured, only a random 1-in-N of borrows are
+ * tracked, and the remainder receive the no-op task.
  *
  * @author Brett Wooldridge
  * @author Andreas Brenk
@@ -28,16 +31,47 @@ class ProxyLeakTaskFactory
 {
    private ScheduledExecutorService executorService;
    private long leakDetectionThreshold;
+   private final int sampleRate;
 
    ProxyLeakTaskFactory(final long leakDetectionThreshold, final ScheduledExecutorService executorService)
+   {
+      this(leakDetectionThreshold, 1, executorService);
+   }
+
+   ProxyLeakTaskFactory(final long leakDetectionThreshold, final int sampleRate, final ScheduledExecutorService executorService)
    {
       this.executorService = executorService;
       this.leakDetectionThreshold = leakDetectionThreshold;
+      this.sampleRate = Math.max(1, sampleRate);
    }
 
    ProxyLeakTask schedule(final PoolEntry poolEntry)
    {
-      return (leakDetectionThreshold == 0) ? ProxyLeakTask.NO_LEAK : scheduleNewTask(poolEntry);
+      return (leakDetectionThreshold == 0 || !isSampled()) ? ProxyLeakTask.NO_LEAK : scheduleNewTask(poolEntry);
+   }
+
+   /**
+    * Capture the caller of an asynchronous borrow on its own thread, if the borrow is to be tracked.
+    *
+    * @return the unscheduled task, or the no-op task if the borrow is not tracked
+    */
+   ProxyLeakTask capture()
+   {
+      return (leakDetectionThreshold == 0 || !isSampled()) ? ProxyLeakTask.NO_LEAK : ProxyLeakTask.captureCaller();
+   }
+
+   /**
+    * Schedule a task returned by {@link #capture()} for the entry that the asynchronous borrow received.
+    */
+   ProxyLeakTask schedule(final PoolEntry poolEntry, final ProxyLeakTask task)
+   {
+      if (task == ProxyLeakTask.NO_LEAK || leakDetectionThreshold == 0) {
+         return ProxyLeakTask.NO_LEAK;
+      }
+
+      task.bind(poolEntry);
+      task.schedule(executorService, leakDetectionThreshold);
+      return task;
    }
 
    void updateLeakDetectionThreshold(final long leakDetectionThreshold)
@@ -45,6 +79,11 @@ class ProxyLeakTaskFactory
       this.leakDetectionThreshold = leakDetectionThreshold;
    }
 
+   private boolean isSampled()
+   {
+      return sampleRate == 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+   }
+
    private ProxyLeakTask scheduleNewTask(PoolEntry poolEntry) {
       var task = new ProxyLeakTask(poolEntry);
       task.schedule(executorService, leakDetectionThreshold);
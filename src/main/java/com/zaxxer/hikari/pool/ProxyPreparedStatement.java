@@ -41,7 +41,13 @@ public abstract class ProxyPreparedStatement extends ProxyStatement implements P
    public boolean execute() throws SQLException
    {
       connection.markCommitStateDirty();
-      return ((PreparedStatement) delegate).execute();
+      final var startTime = startExecution();
+      try {
+         return ((PreparedStatement) delegate).execute();
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -49,8 +55,15 @@ public abstract class ProxyPreparedStatement extends ProxyStatement implements P
    public ResultSet executeQuery() throws SQLException
    {
       connection.markCommitStateDirty();
-      var resultSet = ((PreparedStatement) delegate).executeQuery();
-      return ProxyFactory.getProxyResultSet(connection, this, resultSet);
+      final var startTime = startExecution();
+      final ResultSet resultSet;
+      try {
+         resultSet = ((PreparedStatement) delegate).executeQuery();
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
+      return timeIteration(ProxyFactory.getProxyResultSet(connection, this, resultSet));
    }
 
    /** {@inheritDoc} */
@@ -58,7 +71,13 @@ public abstract class ProxyPreparedStatement extends ProxyStatement implements P
    public int executeUpdate() throws SQLException
    {
       connection.markCommitStateDirty();
-      return ((PreparedStatement) delegate).executeUpdate();
+      final var startTime = startExecution();
+      try {
+         return ((PreparedStatement) delegate).executeUpdate();
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -66,6 +85,12 @@ public abstract class ProxyPreparedStatement extends ProxyStatement implements P
    public long executeLargeUpdate() throws SQLException
    {
       connection.markCommitStateDirty();
-      return ((PreparedStatement) delegate).executeLargeUpdate();
+      final var startTime = startExecution();
+      try {
+         return ((PreparedStatement) delegate).executeLargeUpdate();
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 }
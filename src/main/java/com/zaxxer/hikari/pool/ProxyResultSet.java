@@ -20,6 +20,8 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+
 /**
  * This is the proxy class for java.sql.ResultSet.
  *
@@ -31,6 +33,11 @@ public abstract class ProxyResultSet implements ResultSet
    protected final ProxyStatement statement;
    final ResultSet delegate;
 
+   // when statement timing is enabled, the time iteration started, until it is recorded
+   private long iterationStartTime;
+   long rows;
+   private boolean isIterating;
+
    protected ProxyResultSet(ProxyConnection connection, ProxyStatement statement, ResultSet resultSet)
    {
       this.connection = connection;
@@ -43,6 +50,21 @@ public abstract class ProxyResultSet implements ResultSet
       return connection.checkException(e);
    }
 
+   final void startIteration()
+   {
+      iterationStartTime = currentTime();
+      rows = 0;
+      isIterating = true;
+   }
+
+   final void endIteration()
+   {
+      if (isIterating) {
+         isIterating = false;
+         connection.recordResultSetIteration(statement, iterationStartTime, rows);
+      }
+   }
+
    /** {@inheritDoc} */
    @Override
    public String toString()
@@ -58,9 +80,34 @@ public abstract class ProxyResultSet implements ResultSet
    @Override
    public final Statement getStatement() throws SQLException
    {
+      if (statement.isStale()) {
+         throw new SQLException("Connection is closed");
+      }
       return statement;
    }
 
+   /** {@inheritDoc} */
+   @Override
+   public boolean next() throws SQLException
+   {
+      final var hasNext = delegate.next();
+      if (hasNext) {
+         rows++;
+      }
+      else {
+         endIteration();
+      }
+      return hasNext;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public final void close() throws SQLException
+   {
+      endIteration();
+      delegate.close();
+   }
+
    /** {@inheritDoc} */
    @Override
    public void updateRow() throws SQLException
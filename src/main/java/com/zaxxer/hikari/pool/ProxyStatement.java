@@ -16,11 +16,16 @@
 
 package com.zaxxer.hikari.pool;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+
 /**
  * This is the proxy class for java.sql.Statement.
  *
@@ -29,15 +34,32 @@ import java.sql.Statement;
 public abstract class ProxyStatement implements Statement
 {
    protected final ProxyConnection connection;
-   final Statement delegate;
+   // replaced when the statement is returned to the statement cache, so this proxy can no longer reach it
+   Statement delegate;
+
+   // index in the connection's list of open statements, or -1 when not tracked; guarded by the connection
+   int slot;
+
+   // the SQL this statement was prepared with, or null for a plain Statement
+   String sql;
+
+   // fingerprint of the SQL last executed, when statement statistics are enabled
+   String fingerprint;
+
+   // the borrow of the connection proxy this statement was created in
+   private final int generation;
+   final boolean isStatementTimed;
 
    private boolean isClosed;
-   private ResultSet proxyResultSet;
+   ResultSet proxyResultSet;
 
    ProxyStatement(ProxyConnection connection, Statement statement)
    {
       this.connection = connection;
       this.delegate = statement;
+      this.slot = -1;
+      this.generation = connection.getGeneration();
+      this.isStatementTimed = connection.isStatementTimed();
    }
 
    final SQLException checkException(SQLException e)
@@ -53,6 +75,73 @@ public abstract class ProxyStatement implements Statement
       return this.getClass().getSimpleName() + '@' + System.identityHashCode(this) + " wrapping " + delegateToString;
    }
 
+   /**
+    * Count the bind parameters of the SQL this statement was prepared with, ignoring question marks inside
+    * quoted literals and identifiers.  Only used for logging, so the SQL is scanned on demand.
+    *
+    * @return the number of bind parameters, or 0 for a plain Statement
+    */
+   final int getBindParameterCount()
+   {
+      if (sql == null) {
+         return 0;
+      }
+
+      var count = 0;
+      var quote = '\0';
+      for (int i = 0; i < sql.length(); i++) {
+         final var c = sql.charAt(i);
+         if (quote != '\0') {
+            if (c == quote) {
+               quote = '\0';
+            }
+         }
+         else if (c == '\'' || c == '"') {
+            quote = c;
+         }
+         else if (c == '?') {
+            count++;
+         }
+      }
+      return count;
+   }
+
+   final long startExecution()
+   {
+      return isStatementTimed ? currentTime() : 0L;
+   }
+
+   final void endExecution(final String sql, final long startTime)
+   {
+      if (isStatementTimed) {
+         connection.recordStatementExecution(this, sql, startTime);
+      }
+   }
+
+   /**
+    * Whether this statement was created in an earlier borrow of a reused connection proxy.
+    *
+    * @return true if the connection proxy has since been handed to another borrower
+    */
+   final boolean isStale()
+   {
+      return generation != connection.getGeneration();
+   }
+
+   /**
+    * Start timing the iteration of the result of a query.
+    *
+    * @param resultSet the proxy result set
+    * @return the proxy result set
+    */
+   final ResultSet timeIteration(final ResultSet resultSet)
+   {
+      if (isStatementTimed) {
+         ((ProxyResultSet) resultSet).startIteration();
+      }
+      return resultSet;
+   }
+
    // **********************************************************************
    //                 Overridden java.sql.Statement Methods
    // **********************************************************************
@@ -69,21 +158,43 @@ public abstract class ProxyStatement implements Statement
          isClosed = true;
       }
 
-      connection.untrackStatement(delegate);
+      connection.untrackStatement(this);
 
       try {
-         delegate.close();
+         if (connection.releaseStatement(delegate)) {
+            delegate = ClosedStatement.CLOSED_STATEMENT;
+         }
+         else {
+            delegate.close();
+         }
       }
       catch (SQLException e) {
          throw connection.checkException(e);
       }
    }
 
+   /** {@inheritDoc} */
+   @Override
+   public boolean isClosed() throws SQLException
+   {
+      // a statement returned to the statement cache is closed to the application but not to the driver
+      synchronized (this) {
+         if (isClosed) {
+            return true;
+         }
+      }
+
+      return delegate.isClosed();
+   }
+
    /** {@inheritDoc} */
    @Override
    public Connection getConnection() throws SQLException
    {
-      return connection;
+      if (isStale()) {
+         throw new SQLException("Connection is closed");
+      }
+      return connection.getHandle();
    }
 
    /** {@inheritDoc} */
@@ -91,7 +202,13 @@ public abstract class ProxyStatement implements Statement
    public boolean execute(String sql) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.execute(sql);
+      final var startTime = startExecution();
+      try {
+         return delegate.execute(sql);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -99,7 +216,13 @@ public abstract class ProxyStatement implements Statement
    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.execute(sql, autoGeneratedKeys);
+      final var startTime = startExecution();
+      try {
+         return delegate.execute(sql, autoGeneratedKeys);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -107,8 +230,15 @@ public abstract class ProxyStatement implements Statement
    public ResultSet executeQuery(String sql) throws SQLException
    {
       connection.markCommitStateDirty();
-      ResultSet resultSet = delegate.executeQuery(sql);
-      return ProxyFactory.getProxyResultSet(connection, this, resultSet);
+      final var startTime = startExecution();
+      final ResultSet resultSet;
+      try {
+         resultSet = delegate.executeQuery(sql);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
+      return timeIteration(ProxyFactory.getProxyResultSet(connection, this, resultSet));
    }
 
    /** {@inheritDoc} */
@@ -116,7 +246,13 @@ public abstract class ProxyStatement implements Statement
    public int executeUpdate(String sql) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.executeUpdate(sql);
+      final var startTime = startExecution();
+      try {
+         return delegate.executeUpdate(sql);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -124,7 +260,13 @@ public abstract class ProxyStatement implements Statement
    public int[] executeBatch() throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.executeBatch();
+      final var startTime = startExecution();
+      try {
+         return delegate.executeBatch();
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -132,7 +274,13 @@ public abstract class ProxyStatement implements Statement
    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.executeUpdate(sql, autoGeneratedKeys);
+      final var startTime = startExecution();
+      try {
+         return delegate.executeUpdate(sql, autoGeneratedKeys);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -140,7 +288,13 @@ public abstract class ProxyStatement implements Statement
    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.executeUpdate(sql, columnIndexes);
+      final var startTime = startExecution();
+      try {
+         return delegate.executeUpdate(sql, columnIndexes);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -148,7 +302,13 @@ public abstract class ProxyStatement implements Statement
    public int executeUpdate(String sql, String[] columnNames) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.executeUpdate(sql, columnNames);
+      final var startTime = startExecution();
+      try {
+         return delegate.executeUpdate(sql, columnNames);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -156,7 +316,13 @@ public abstract class ProxyStatement implements Statement
    public boolean execute(String sql, int[] columnIndexes) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.execute(sql, columnIndexes);
+      final var startTime = startExecution();
+      try {
+         return delegate.execute(sql, columnIndexes);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -164,7 +330,13 @@ public abstract class ProxyStatement implements Statement
    public boolean execute(String sql, String[] columnNames) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.execute(sql, columnNames);
+      final var startTime = startExecution();
+      try {
+         return delegate.execute(sql, columnNames);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -172,7 +344,13 @@ public abstract class ProxyStatement implements Statement
    public long[] executeLargeBatch() throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.executeLargeBatch();
+      final var startTime = startExecution();
+      try {
+         return delegate.executeLargeBatch();
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -180,7 +358,13 @@ public abstract class ProxyStatement implements Statement
    public long executeLargeUpdate(String sql) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.executeLargeUpdate(sql);
+      final var startTime = startExecution();
+      try {
+         return delegate.executeLargeUpdate(sql);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -188,7 +372,13 @@ public abstract class ProxyStatement implements Statement
    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.executeLargeUpdate(sql, autoGeneratedKeys);
+      final var startTime = startExecution();
+      try {
+         return delegate.executeLargeUpdate(sql, autoGeneratedKeys);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -196,7 +386,13 @@ public abstract class ProxyStatement implements Statement
    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.executeLargeUpdate(sql, columnIndexes);
+      final var startTime = startExecution();
+      try {
+         return delegate.executeLargeUpdate(sql, columnIndexes);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -204,7 +400,13 @@ public abstract class ProxyStatement implements Statement
    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException
    {
       connection.markCommitStateDirty();
-      return delegate.executeLargeUpdate(sql, columnNames);
+      final var startTime = startExecution();
+      try {
+         return delegate.executeLargeUpdate(sql, columnNames);
+      }
+      finally {
+         endExecution(sql, startTime);
+      }
    }
 
    /** {@inheritDoc} */
@@ -214,6 +416,9 @@ public abstract class ProxyStatement implements Statement
       if (resultSet != null) {
          if (proxyResultSet == null || ((ProxyResultSet) proxyResultSet).delegate != resultSet) {
             proxyResultSet = ProxyFactory.getProxyResultSet(connection, this, resultSet);
+            if (isStatementTimed) {
+               ((ProxyResultSet) proxyResultSet).startIteration();
+            }
          }
       }
       else {
@@ -247,4 +452,33 @@ public abstract class ProxyStatement implements Statement
 
       throw new SQLException("Wrapped statement is not an instance of " + iface);
    }
+
+   // **********************************************************************
+   //                         Private classes
+   // **********************************************************************
+
+   private static final class ClosedStatement
+   {
+      static final CallableStatement CLOSED_STATEMENT = getClosedStatement();
+
+      private static CallableStatement getClosedStatement()
+      {
+         InvocationHandler handler = (proxy, method, args) -> {
+            final String methodName = method.getName();
+            if ("isClosed".equals(methodName)) {
+               return Boolean.TRUE;
+            }
+            if ("close".equals(methodName)) {
+               return Void.TYPE;
+            }
+            else if ("toString".equals(methodName)) {
+               return ClosedStatement.class.getCanonicalName();
+            }
+
+            throw new SQLException("Statement is closed");
+         };
+
+         return (CallableStatement) Proxy.newProxyInstance(CallableStatement.class.getClassLoader(), new Class[] { CallableStatement.class }, handler);
+      }
+   }
 }
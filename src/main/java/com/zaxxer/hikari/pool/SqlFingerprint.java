@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+/**
+ * Normalizes SQL into a fingerprint, so that statements which differ only in their literal values are
+ * aggregated together.  String and numeric literals are replaced by {@code ?}, a parenthesized list of
+ * only parameters and literals, such as an IN-list, is collapsed to {@code (?+)}, comments are removed,
+ * runs of whitespace are collapsed to a single space, and everything outside quoted identifiers is
+ * lower-cased.  This is a single pass over the SQL, not a parse, so it does not understand every dialect.
+ *
+ * @author Brett Wooldridge
+ */
+final class SqlFingerprint
+{
+   private SqlFingerprint()
+   {
+      // unconstructable
+   }
+
+   /**
+    * Compute the fingerprint of the specified SQL.
+    *
+    * @param sql the SQL
+    * @return the fingerprint
+    */
+   static String of(final String sql)
+   {
+      final var length = sql.length();
+      final var sb = new StringBuilder(length);
+      var isSpacePending = false;
+
+      for (int i = 0; i < length; i++) {
+         final var c = sql.charAt(i);
+
+         if (Character.isWhitespace(c)) {
+            isSpacePending = true;
+            continue;
+         }
+         else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+            i = skipLineComment(sql, i);
+            isSpacePending = true;
+            continue;
+         }
+         else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+            i = skipBlockComment(sql, i);
+            isSpacePending = true;
+            continue;
+         }
+
+         if (isSpacePending && sb.length() > 0) {
+            sb.append(' ');
+         }
+         isSpacePending = false;
+
+         if (c == '\'') {
+            i = skipStringLiteral(sql, i);
+            sb.append('?');
+         }
+         else if (c == '"' || c == '`') {
+            final var end = sql.indexOf(c, i + 1);
+            final var last = (end < 0) ? length - 1 : end;
+            sb.append(sql, i, last + 1);
+            i = last;
+         }
+         else if (Character.isDigit(c) && !isIdentifierPart(sb)) {
+            while (i + 1 < length && (Character.isLetterOrDigit(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.')) {
+               i++;
+            }
+            sb.append('?');
+         }
+         else if (c == ')') {
+            collapseList(sb);
+            sb.append(')');
+         }
+         else {
+            sb.append(Character.toLowerCase(c));
+         }
+      }
+
+      return sb.toString();
+   }
+
+   /**
+    * If the builder ends in an open parenthesis followed only by parameters, commas and spaces, replace
+    * the list with {@code (?+}.
+    */
+   private static void collapseList(final StringBuilder sb)
+   {
+      var isParameterSeen = false;
+      for (int i = sb.length() - 1; i >= 0; i--) {
+         final var c = sb.charAt(i);
+         if (c == '(') {
+            if (isParameterSeen) {
+               sb.setLength(i + 1);
+               sb.append("?+");
+            }
+            return;
+         }
+         else if (c == '?') {
+            isParameterSeen = true;
+         }
+         else if (c != ',' && c != ' ') {
+            return;
+         }
+      }
+   }
+
+   private static boolean isIdentifierPart(final StringBuilder sb)
+   {
+      if (sb.length() == 0) {
+         return false;
+      }
+
+      final var c = sb.charAt(sb.length() - 1);
+      return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+   }
+
+   private static int skipStringLiteral(final String sql, int i)
+   {
+      final var length = sql.length();
+      while (++i < length) {
+         if (sql.charAt(i) == '\'') {
+            // a doubled quote is an escaped quote inside the literal
+            if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+               i++;
+            }
+            else {
+               return i;
+            }
+         }
+      }
+      return length - 1;
+   }
+
+   private static int skipLineComment(final String sql, final int i)
+   {
+      final var end = sql.indexOf('\n', i);
+      return (end < 0) ? sql.length() - 1 : end;
+   }
+
+   private static int skipBlockComment(final String sql, final int i)
+   {
+      final var end = sql.indexOf("*/", i + 2);
+      return (end < 0) ? sql.length() - 1 : end + 1;
+   }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of the PreparedStatements of one physical connection.  A
+ * statement taken from the cache is removed from it until the application closes it, at which point
+ * it is reset and returned to the cache instead of being closed.  Statements evicted from a full
+ * cache are closed.
+ * <p>
+ * Resetting a statement clears its parameters, pending batch and warnings, and restores the settings
+ * that the application may have changed, such as the fetch size or query timeout, to the values the
+ * driver gave the statement when it was prepared.  Escape processing cannot be read, so it is
+ * restored to the JDBC default of enabled.  A statement that cannot be reset is closed instead.
+ *
+ * @author Brett Wooldridge
+ */
+final class StatementCache
+{
+   private static final Logger LOGGER = LoggerFactory.getLogger(StatementCache.class);
+
+   // result set holdability is not specified, use the driver default
+   static final int DEFAULT_HOLDABILITY = -1;
+
+   private final PoolBase pool;
+   private final LinkedHashMap<Key, PreparedStatement> cache;
+   private final IdentityHashMap<Statement, Key> leased;
+   // the prepared settings of every statement that is cached or leased
+   private final IdentityHashMap<Statement, Settings> settings;
+
+   StatementCache(final PoolBase pool, final int maxSize)
+   {
+      this.pool = pool;
+      this.leased = new IdentityHashMap<>();
+      this.settings = new IdentityHashMap<>();
+      this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+         @Override
+         protected boolean removeEldestEntry(final Map.Entry<Key, PreparedStatement> eldest)
+         {
+            if (size() > maxSize) {
+               settings.remove(eldest.getValue());
+               quietlyClose(eldest.getValue());
+               return true;
+            }
+            return false;
+         }
+      };
+   }
+
+   /**
+    * Take a statement from the cache.
+    *
+    * @param sql the SQL of the statement
+    * @param resultSetType the result set type
+    * @param concurrency the result set concurrency
+    * @param holdability the result set holdability, or {@link #DEFAULT_HOLDABILITY}
+    * @return the cached statement, or null if there is none
+    */
+   synchronized PreparedStatement take(final String sql, final int resultSetType, final int concurrency, final int holdability)
+   {
+      final var key = new Key(sql, resultSetType, concurrency, holdability);
+      final var statement = cache.remove(key);
+      if (statement != null) {
+         pool.metricsTracker.recordStatementCacheHit();
+      }
+      else {
+         pool.metricsTracker.recordStatementCacheMiss();
+      }
+
+      return statement;
+   }
+
+   /**
+    * Register a statement as eligible for the cache once it is released.  The settings of a newly
+    * prepared statement are captured, so that they can be restored when it is released.
+    *
+    * @param statement the statement taken from the cache, or newly prepared
+    * @param sql the SQL of the statement
+    * @param resultSetType the result set type
+    * @param concurrency the result set concurrency
+    * @param holdability the result set holdability, or {@link #DEFAULT_HOLDABILITY}
+    * @return the statement
+    */
+   synchronized PreparedStatement lease(final PreparedStatement statement, final String sql, final int resultSetType, final int concurrency, final int holdability)
+   {
+      if (!settings.containsKey(statement)) {
+         try {
+            settings.put(statement, new Settings(statement));
+         }
+         catch (SQLException e) {
+            // a statement whose settings cannot be read is not cached
+            return statement;
+         }
+      }
+
+      leased.put(statement, new Key(sql, resultSetType, concurrency, holdability));
+      return statement;
+   }
+
+   /**
+    * Return a statement to the cache.
+    *
+    * @param statement the statement the application is closing
+    * @return true if the statement was cached, false if it must be closed by the caller
+    */
+   synchronized boolean release(final Statement statement)
+   {
+      final var key = leased.remove(statement);
+      final var prepared = settings.remove(statement);
+      if (key == null || cache.containsKey(key)) {
+         return false;
+      }
+
+      try {
+         // closing a statement closes its result set, and the driver holds the cursor until it is closed
+         final var resultSet = statement.getResultSet();
+         if (resultSet != null) {
+            resultSet.close();
+         }
+         ((PreparedStatement) statement).clearParameters();
+         statement.clearBatch();
+         statement.clearWarnings();
+         prepared.restore(statement);
+      }
+      catch (SQLException e) {
+         return false;
+      }
+
+      settings.put(statement, prepared);
+      cache.put(key, (PreparedStatement) statement);
+      return true;
+   }
+
+   /**
+    * Forget the statements that are still open, because they are being closed with the connection proxy.
+    */
+   synchronized void clearLeased()
+   {
+      leased.keySet().forEach(settings::remove);
+      leased.clear();
+   }
+
+   /**
+    * Discard the cache.  The statements are not closed, because they are closed with their connection.
+    */
+   synchronized void clear()
+   {
+      cache.clear();
+      leased.clear();
+      settings.clear();
+   }
+
+   synchronized int size()
+   {
+      return cache.size();
+   }
+
+   private void quietlyClose(final Statement statement)
+   {
+      try {
+         statement.close();
+      }
+      catch (SQLException e) {
+         LOGGER.debug("{} - Failed to close evicted statement {}", pool.poolName, statement, e);
+      }
+   }
+
+   /**
+    * The settings of a statement that the application can change, as the driver prepared them.
+    */
+   private static final class Settings
+   {
+      private final int maxRows;
+      private final int queryTimeout;
+      private final int fetchSize;
+      private final int maxFieldSize;
+      private final boolean isPoolable;
+      private final boolean isCloseOnCompletion;
+
+      Settings(final Statement statement) throws SQLException
+      {
+         this.maxRows = statement.getMaxRows();
+         this.queryTimeout = statement.getQueryTimeout();
+         this.fetchSize = statement.getFetchSize();
+         this.maxFieldSize = statement.getMaxFieldSize();
+         this.isPoolable = statement.isPoolable();
+         this.isCloseOnCompletion = statement.isCloseOnCompletion();
+      }
+
+      void restore(final Statement statement) throws SQLException
+      {
+         statement.setMaxRows(maxRows);
+         statement.setQueryTimeout(queryTimeout);
+         statement.setFetchSize(fetchSize);
+         statement.setMaxFieldSize(maxFieldSize);
+         statement.setEscapeProcessing(true);
+         statement.setPoolable(isPoolable);
+         // closeOnCompletion can only be enabled, so a statement on which the application enabled it cannot be reset
+         if (statement.isCloseOnCompletion() && !isCloseOnCompletion) {
+            throw new SQLException("closeOnCompletion cannot be disabled");
+         }
+      }
+   }
+
+   private static final class Key
+   {
+      private final String sql;
+      private final int resultSetType;
+      private final int concurrency;
+      private final int holdability;
+
+      Key(final String sql, final int resultSetType, final int concurrency, final int holdability)
+      {
+         this.sql = sql;
+         this.resultSetType = resultSetType;
+         this.concurrency = concurrency;
+         this.holdability = holdability;
+      }
+
+      @Override
+      public boolean equals(final Object other)
+      {
+         if (this == other) {
+            return true;
+         }
+         else if (!(other instanceof Key)) {
+            return false;
+         }
+
+         final var key = (Key) other;
+         return resultSetType == key.resultSetType && concurrency == key.concurrency && holdability == key.holdability && sql.equals(key.sql);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return ((sql.hashCode() * 31 + resultSetType) * 31 + concurrency) * 31 + holdability;
+      }
+   }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariStatementStatsMXBean;
+import com.zaxxer.hikari.StatementStats;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregated statistics of the most frequently executed SQL fingerprints, kept in a fixed number of counters
+ * with the Space-Saving algorithm.  When a fingerprint that is not tracked arrives and the table is full, the
+ * fingerprint with the smallest estimated count is displaced, and the newcomer inherits that estimate as the
+ * number of executions it may have missed, so that memory stays bounded however much ad-hoc SQL the application
+ * executes.  The count, times and rows of a fingerprint are those of its executions since it last entered the
+ * table, and the inherited estimate is reported separately as the count error.
+ * <p>
+ * Executions of tracked fingerprints only update striped adders, without locking.  Admissions and displacements
+ * take a lock and keep the counters in a Stream-Summary: a list of buckets in ascending order of the count each
+ * counter had when it was last placed, which is a lower bound of its current count.  A displacement moves the
+ * counters at the head of the smallest bucket up to their current count until it finds one whose count is still
+ * that of its bucket, which is then the smallest of all.
+ *
+ * @author Brett Wooldridge
+ */
+final class StatementStatsSketch implements HikariStatementStatsMXBean
+{
+   private final int capacity;
+   private final ConcurrentHashMap<String, Counter> counters;
+
+   // the bucket with the smallest count, guarded by this
+   private Bucket min;
+
+   StatementStatsSketch(final int capacity)
+   {
+      this.capacity = capacity;
+      this.counters = new ConcurrentHashMap<>(capacity * 2);
+   }
+
+   /**
+    * Record one execution of a fingerprint.
+    *
+    * @param fingerprint the SQL fingerprint
+    * @param elapsedNanos the execution time
+    */
+   void recordExecution(final String fingerprint, final long elapsedNanos)
+   {
+      var counter = counters.get(fingerprint);
+      if (counter != null) {
+         counter.executions.increment();
+      }
+      else {
+         synchronized (this) {
+            counter = admit(fingerprint);
+         }
+      }
+
+      // executions racing with the displacement of their counter are lost, which only matters for the least frequent
+      counter.totalNanos.add(elapsedNanos);
+      final var max = counter.maxNanos;
+      for (var current = max.get(); elapsedNanos > current && !max.compareAndSet(current, elapsedNanos); current = max.get()) {
+         // retry
+      }
+   }
+
+   /**
+    * Add rows read to a fingerprint, if it is still tracked.
+    *
+    * @param fingerprint the SQL fingerprint
+    * @param rows the number of rows read
+    */
+   void recordRows(final String fingerprint, final long rows)
+   {
+      final var counter = counters.get(fingerprint);
+      if (counter != null) {
+         counter.rows.add(rows);
+      }
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public synchronized StatementStats[] getTopStatements()
+   {
+      return counters.values().stream()
+         .map(Counter::toStats)
+         .sorted(Comparator.comparingLong((StatementStats s) -> s.getCount() + s.getCountError()).reversed())
+         .toArray(StatementStats[]::new);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public synchronized void resetStatementStats()
+   {
+      counters.clear();
+      min = null;
+   }
+
+   /**
+    * Count an execution of a fingerprint that was not tracked when it was looked up, admitting it if it still
+    * is not, and displacing the fingerprint with the smallest count if the table is full.
+    */
+   private Counter admit(final String fingerprint)
+   {
+      var counter = counters.get(fingerprint);
+      if (counter != null) {
+         counter.executions.increment();
+         return counter;
+      }
+
+      var error = 0L;
+      if (counters.size() >= capacity) {
+         var victim = min.head;
+         for (var count = victim.count(); count != min.count; count = victim.count()) {
+            move(victim, count);
+            victim = min.head;
+         }
+
+         error = min.count;
+         unlink(victim);
+         counters.remove(victim.fingerprint);
+      }
+
+      counter = new Counter(fingerprint, error);
+      counter.executions.increment();
+      place(counter, error + 1, null, true);
+      counters.put(fingerprint, counter);
+      return counter;
+   }
+
+   /**
+    * Move a counter whose executions were counted since it was placed up to the bucket of its current count.
+    */
+   private void move(final Counter counter, final long count)
+   {
+      final var bucket = counter.bucket;
+      unlink(counter);
+      // the old bucket, or the one before it if the old one is now empty, has a smaller count
+      place(counter, count, (bucket.head != null) ? bucket : bucket.prev, false);
+   }
+
+   /**
+    * Link a counter into the bucket of a count, creating the bucket if there is none.  Newcomers go first and
+    * counters that are only moved up go last, so that of the counters with the smallest count, the one that
+    * reached it most recently is displaced first.
+    *
+    * @param after a linked bucket with a smaller count to start the search from, or null to start from the smallest
+    * @param first whether to link the counter first in its bucket
+    */
+   private void place(final Counter counter, final long count, Bucket after, final boolean first)
+   {
+      var next = (after != null) ? after.next : min;
+      while (next != null && next.count < count) {
+         after = next;
+         next = next.next;
+      }
+
+      if (next == null || next.count != count) {
+         final var bucket = new Bucket(count);
+         bucket.prev = after;
+         bucket.next = next;
+         if (next != null) {
+            next.prev = bucket;
+         }
+         if (after != null) {
+            after.next = bucket;
+         }
+         else {
+            min = bucket;
+         }
+         next = bucket;
+      }
+
+      counter.bucket = next;
+      if (first || next.head == null) {
+         counter.prev = null;
+         counter.next = next.head;
+         if (next.head != null) {
+            next.head.prev = counter;
+         }
+         else {
+            next.tail = counter;
+         }
+         next.head = counter;
+      }
+      else {
+         counter.prev = next.tail;
+         counter.next = null;
+         next.tail.next = counter;
+         next.tail = counter;
+      }
+   }
+
+   private void unlink(final Counter counter)
+   {
+      final var bucket = counter.bucket;
+      if (counter.prev != null) {
+         counter.prev.next = counter.next;
+      }
+      else {
+         bucket.head = counter.next;
+      }
+      if (counter.next != null) {
+         counter.next.prev = counter.prev;
+      }
+      else {
+         bucket.tail = counter.prev;
+      }
+
+      if (bucket.head == null) {
+         if (bucket.prev != null) {
+            bucket.prev.next = bucket.next;
+         }
+         else {
+            min = bucket.next;
+         }
+         if (bucket.next != null) {
+            bucket.next.prev = bucket.prev;
+         }
+      }
+   }
+
+   private static final class Bucket
+   {
+      final long count;
+      Bucket prev;
+      Bucket next;
+      Counter head;
+      Counter tail;
+
+      Bucket(final long count)
+      {
+         this.count = count;
+      }
+   }
+
+   private static final class Counter
+   {
+      final String fingerprint;
+      final long error;
+      final LongAdder executions;
+      final LongAdder totalNanos;
+      final AtomicLong maxNanos;
+      final LongAdder rows;
+
+      // guarded by the sketch
+      Bucket bucket;
+      Counter prev;
+      Counter next;
+
+      Counter(final String fingerprint, final long error)
+      {
+         this.fingerprint = fingerprint;
+         this.error = error;
+         this.executions = new LongAdder();
+         this.totalNanos = new LongAdder();
+         this.maxNanos = new AtomicLong();
+         this.rows = new LongAdder();
+      }
+
+      long count()
+      {
+         return error + executions.sum();
+      }
+
+      StatementStats toStats()
+      {
+         return new StatementStats(fingerprint, executions.sum(), error, totalNanos.sum(), maxNanos.get(), rows.sum());
+      }
+   }
+}
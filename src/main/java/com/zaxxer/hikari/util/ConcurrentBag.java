@@ -19,22 +19,32 @@ import com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.zaxxer.hikari.util.ClockSource.currentTime;
 import static com.zaxxer.hikari.util.ClockSource.elapsedNanos;
 import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.*;
-import static java.util.concurrent.TimeUnit.MICROSECONDS;
-import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.lang.invoke.MethodType.methodType;
 import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static java.util.concurrent.locks.LockSupport.unpark;
 
 /**
  * This is a specialized concurrent bag that achieves superior performance
@@ -43,14 +53,42 @@ import static java.util.concurrent.locks.LockSupport.parkNanos;
  * locks, but resorts to scanning a common collection if there are no
  * available items in the ThreadLocal list.  Not-in-use items in the
  * ThreadLocal lists can be "stolen" when the borrowing thread has none
- * of its own.  It is a "lock-less" implementation using a specialized
- * AbstractQueuedLongSynchronizer to manage cross-thread signaling.
+ * of its own.  It is a "lock-less" implementation using a FIFO queue of
+ * parked waiters to manage cross-thread signaling; returned items are
+ * handed directly to the oldest waiter.
  * <p>
  * Note that items that are "borrowed" from the bag are not actually
  * removed from any collection, so garbage collection will not occur
  * even if the reference is abandoned.  Thus care must be taken to
  * "requite" borrowed objects otherwise a memory leak will result.  Only
  * the "remove" method can completely remove an object from the bag.
+ * <p>
+ * Optionally, the bag can be partitioned into a number of "stripes".  Each
+ * item is assigned to one stripe, and borrowers scan the stripe selected by
+ * a hash of their thread before "stealing" from neighbouring stripes.  This
+ * spreads the CAS traffic of many concurrent borrowers across independent
+ * sets of items rather than having every thread scan the same list.
+ * <p>
+ * Virtual threads are typically created per-request, so a ThreadLocal list
+ * would be allocated for every borrower and never hit.  Instead, virtual
+ * threads share a small fixed set of "recently returned" slots that gives
+ * them the same affinity for warm items without per-thread allocation.
+ * <p>
+ * By default, a borrower may "barge" and claim an available item from its
+ * ThreadLocal list or the shared list even while other threads are waiting.
+ * When the <code>com.zaxxer.hikari.strictFifoBorrow</code> system property is
+ * <code>true</code>, borrowers instead join the back of the wait queue
+ * whenever waiters exist.
+ * <p>
+ * Borrowers may also be split into priority "lanes", lane 0 being the highest
+ * priority.  Returned items are handed to a waiter of the highest priority lane
+ * first, and each lane may be capped to a maximum number of items borrowed by
+ * that lane at one time.  A borrower whose lane is at its cap waits even when
+ * items are available.
+ * <p>
+ * The number of items in each state is maintained incrementally, in striped
+ * counters updated by every state transition the bag makes, so that reading
+ * the counts does not require a scan of the items.
  *
  * @author Brett Wooldridge
  *
@@ -59,16 +97,35 @@ import static java.util.concurrent.locks.LockSupport.parkNanos;
 public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseable
 {
    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrentBag.class);
+   private static final MethodHandle IS_VIRTUAL = findIsVirtual();
+
+   // how a borrowed entry was found
+   public static final int BORROW_THREAD_LOCAL = 0;
+   public static final int BORROW_SHARED = 1;
+   public static final int BORROW_HANDOFF = 2;
 
    private final CopyOnWriteArrayList<T> sharedList;
+   private final CopyOnWriteArrayList<T>[] stripes;
+   private final int stripeMask;
    private final boolean weakThreadLocals;
 
    private final ThreadLocal<List<Object>> threadList;
+   private final AtomicReferenceArray<T> recentlyReturned;
+   private final int recentMask;
    private final IBagStateListener listener;
    private final AtomicInteger waiters;
    private volatile boolean closed;
 
-   private final SynchronousQueue<T> handoffQueue;
+   private final ConcurrentLinkedQueue<Waiter<T>>[] waitQueues;
+   private final int[] laneLimits;
+   private final AtomicIntegerArray laneInUse;
+   // the lanes of borrowed entries that do not record their own, only with more than one lane
+   private final ConcurrentHashMap<T, Integer> borrowedLanes;
+   private final boolean strictFifo;
+
+   private final LongAdder notInUseCount;
+   private final LongAdder inUseCount;
+   private final LongAdder reservedCount;
 
    public interface IConcurrentBagEntry
    {
@@ -80,6 +137,27 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
       boolean compareAndSet(int expectState, int newState);
       void setState(int newState);
       int getState();
+
+      /**
+       * Record the priority lane that the entry is borrowed by.  Only called by the
+       * bag while it owns the entry, before the entry is published to the borrower.
+       * Entries that do not record it leave the bag to keep it.
+       */
+      default void setLane(int lane) {}
+
+      /**
+       * Get the priority lane recorded by {@link #setLane(int)}.
+       *
+       * @return the lane, or -1 if the entry does not record it
+       */
+      default int getLane() { return -1; }
+
+      /**
+       * Record how the entry reached its borrower, one of {@link #BORROW_THREAD_LOCAL},
+       * {@link #BORROW_SHARED} or {@link #BORROW_HANDOFF}.  Only called by the bag while it
+       * owns the entry, before the entry is published to the borrower.
+       */
+      default void setBorrowSource(int source) {}
    }
 
    public interface IBagStateListener
@@ -88,18 +166,89 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
    }
 
    /**
-    * Construct a ConcurrentBag with the specified listener.
+    * Construct a ConcurrentBag with the specified listener.  The number of stripes
+    * is taken from the <code>com.zaxxer.hikari.bagStripes</code> system property,
+    * and defaults to one (i.e. a single shared list).
     *
     * @param listener the IBagStateListener to attach to this bag
     */
    public ConcurrentBag(final IBagStateListener listener)
+   {
+      this(listener, new int[1]);
+   }
+
+   /**
+    * Construct a ConcurrentBag with the specified listener, and one priority lane per
+    * element of the specified limits array.  The number of stripes is taken from the
+    * <code>com.zaxxer.hikari.bagStripes</code> system property.
+    *
+    * @param listener the IBagStateListener to attach to this bag
+    * @param laneLimits the maximum number of items each lane may borrow at one time
+    */
+   public ConcurrentBag(final IBagStateListener listener, final int[] laneLimits)
+   {
+      this(listener, Integer.getInteger("com.zaxxer.hikari.bagStripes", 1), laneLimits);
+   }
+
+   /**
+    * Construct a ConcurrentBag with the specified listener, partitioned into the
+    * specified number of stripes.  The stripe count is rounded up to the next power
+    * of two.
+    *
+    * @param listener the IBagStateListener to attach to this bag
+    * @param stripeCount the number of stripes to partition the bag items into
+    */
+   public ConcurrentBag(final IBagStateListener listener, final int stripeCount)
+   {
+      this(listener, stripeCount, new int[1]);
+   }
+
+   /**
+    * Construct a ConcurrentBag with the specified listener, partitioned into the
+    * specified number of stripes, with one priority lane per element of the
+    * specified limits array.  A limit of zero or less means the lane is uncapped.
+    *
+    * @param listener the IBagStateListener to attach to this bag
+    * @param stripeCount the number of stripes to partition the bag items into
+    * @param laneLimits the maximum number of items each lane may borrow at one time
+    */
+   @SuppressWarnings("unchecked")
+   public ConcurrentBag(final IBagStateListener listener, final int stripeCount, final int[] laneLimits)
    {
       this.listener = listener;
       this.weakThreadLocals = useWeakThreadLocals();
 
-      this.handoffQueue = new SynchronousQueue<>(true);
+      this.notInUseCount = new LongAdder();
+      this.inUseCount = new LongAdder();
+      this.reservedCount = new LongAdder();
+
+      this.laneLimits = laneLimits.clone();
+      this.laneInUse = new AtomicIntegerArray(laneLimits.length);
+      this.borrowedLanes = (laneLimits.length > 1) ? new ConcurrentHashMap<>() : null;
+      this.waitQueues = new ConcurrentLinkedQueue[laneLimits.length];
+      for (int i = 0; i < laneLimits.length; i++) {
+         waitQueues[i] = new ConcurrentLinkedQueue<>();
+      }
+      this.strictFifo = Boolean.getBoolean("com.zaxxer.hikari.strictFifoBorrow");
       this.waiters = new AtomicInteger();
       this.sharedList = new CopyOnWriteArrayList<>();
+
+      final var count = stripeCount <= 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+      this.stripeMask = count - 1;
+      this.stripes = new CopyOnWriteArrayList[count];
+      if (count == 1) {
+         stripes[0] = sharedList;
+      }
+      else {
+         for (int i = 0; i < count; i++) {
+            stripes[i] = new CopyOnWriteArrayList<>();
+         }
+      }
+
+      final var slots = Integer.highestOneBit(Math.max(1, Math.min(64, Runtime.getRuntime().availableProcessors())));
+      this.recentMask = slots - 1;
+      this.recentlyReturned = new AtomicReferenceArray<>(slots);
+
       if (weakThreadLocals) {
          this.threadList = ThreadLocal.withInitial(() -> new ArrayList<>(16));
       }
@@ -119,50 +268,177 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
     */
    public T borrow(long timeout, final TimeUnit timeUnit) throws InterruptedException
    {
-      // Try the thread-local list first
-      final var list = threadList.get();
-      for (int i = list.size() - 1; i >= 0; i--) {
-         final var entry = list.remove(i);
-         @SuppressWarnings("unchecked")
-         final T bagEntry = weakThreadLocals ? ((WeakReference<T>) entry).get() : (T) entry;
-         if (bagEntry != null && bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+      return borrow(timeout, timeUnit, 0);
+   }
+
+   /**
+    * The method will borrow a BagEntry from the bag on behalf of the specified
+    * priority lane, blocking for the specified timeout if none are available or
+    * the lane is at its cap.
+    *
+    * @param timeout how long to wait before giving up, in units of unit
+    * @param timeUnit a <code>TimeUnit</code> determining how to interpret the timeout parameter
+    * @param lane the priority lane of the borrower, 0 being the highest priority
+    * @return a borrowed instance from the bag or null if a timeout occurs
+    * @throws InterruptedException if interrupted while waiting
+    */
+   public T borrow(long timeout, final TimeUnit timeUnit, final int lane) throws InterruptedException
+   {
+      // In strict FIFO mode, no barging ahead of threads already waiting at the same or a higher priority
+      final var permitted = (!strictFifo || !hasWaiters(lane)) && acquireLane(lane);
+
+      // Try the thread-local list (or the recently returned slots for virtual threads) first
+      if (permitted) {
+         final var bagEntry = claimLocal();
+         if (bagEntry != null) {
+            setLane(bagEntry, lane);
+            bagEntry.setBorrowSource(BORROW_THREAD_LOCAL);
             return bagEntry;
          }
       }
 
-      // Otherwise, scan the shared list ... then poll the handoff queue
+      // Otherwise, scan the home stripe, then steal from the neighbours ... then join the wait queue
       final int waiting = waiters.incrementAndGet();
       try {
-         for (T bagEntry : sharedList) {
-            if (bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+         if (permitted) {
+            final var bagEntry = claimFromStripes();
+            if (bagEntry != null) {
                // If we may have stolen another waiter's connection, request another bag add.
                if (waiting > 1) {
                   listener.addBagItem(waiting - 1);
                }
+               setLane(bagEntry, lane);
+               bagEntry.setBorrowSource(BORROW_SHARED);
                return bagEntry;
             }
+
+            releaseLane(lane);
          }
 
          listener.addBagItem(waiting);
 
-         timeout = timeUnit.toNanos(timeout);
-         do {
-            final var start = currentTime();
-            final T bagEntry = handoffQueue.poll(timeout, NANOSECONDS);
-            if (bagEntry == null || bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_IN_USE)) {
+         final var waiter = new Waiter<T>(Thread.currentThread());
+         waitQueues[lane].add(waiter);
+
+         // An item may have been returned between the scan above and joining the queue, in which
+         // case the returning thread found no waiter to hand it to.  Re-check before parking.
+         final var bagEntry = claimForLane(lane);
+         if (bagEntry != null) {
+            if (waiter.cancel()) {
+               waitQueues[lane].remove(waiter);
                return bagEntry;
             }
 
-            timeout -= elapsedNanos(start);
-         } while (timeout > 10_000);
+            // We were handed an item concurrently, so release the one we claimed
+            releaseLane(lane);
+            unclaim(bagEntry);
+            handoff(bagEntry);
+            return waiter.getItem();
+         }
 
-         return null;
+         return awaitHandoff(waiter, waitQueues[lane], timeUnit.toNanos(timeout));
       }
       finally {
          waiters.decrementAndGet();
       }
    }
 
+   /**
+    * The method will borrow a BagEntry from the bag without blocking the calling thread.  If
+    * no entry is available, a waiter is registered in the wait queue and the returned future
+    * is completed by the thread that next returns or adds an entry to the bag, or with
+    * <code>null</code> by the specified scheduler when the timeout expires.  Cancelling the
+    * returned future removes the waiter.
+    *
+    * @param timeout how long to wait before giving up, in units of unit
+    * @param timeUnit a <code>TimeUnit</code> determining how to interpret the timeout parameter
+    * @param scheduler the scheduler used to expire the waiter
+    * @return a future completed with a borrowed instance from the bag, or null if a timeout occurs
+    */
+   public CompletableFuture<T> borrowAsync(final long timeout, final TimeUnit timeUnit, final ScheduledExecutorService scheduler)
+   {
+      return borrowAsync(timeout, timeUnit, scheduler, 0);
+   }
+
+   /**
+    * The method will borrow a BagEntry from the bag on behalf of the specified priority
+    * lane, without blocking the calling thread.
+    *
+    * @param timeout how long to wait before giving up, in units of unit
+    * @param timeUnit a <code>TimeUnit</code> determining how to interpret the timeout parameter
+    * @param scheduler the scheduler used to expire the waiter
+    * @param lane the priority lane of the borrower, 0 being the highest priority
+    * @return a future completed with a borrowed instance from the bag, or null if a timeout occurs
+    * @see #borrowAsync(long, TimeUnit, ScheduledExecutorService)
+    */
+   public CompletableFuture<T> borrowAsync(final long timeout, final TimeUnit timeUnit, final ScheduledExecutorService scheduler, final int lane)
+   {
+      final var future = new CompletableFuture<T>();
+
+      final int waiting = waiters.incrementAndGet();
+      if (!strictFifo || !hasWaiters(lane)) {
+         final var bagEntry = claimForLane(lane);
+         if (bagEntry != null) {
+            waiters.decrementAndGet();
+            if (waiting > 1) {
+               listener.addBagItem(waiting - 1);
+            }
+            future.complete(bagEntry);
+            return future;
+         }
+      }
+
+      listener.addBagItem(waiting);
+
+      final var waiter = new Waiter<T>(future);
+      final var waitQueue = waitQueues[lane];
+      waitQueue.add(waiter);
+
+      final var bagEntry = claimForLane(lane);
+      if (bagEntry != null) {
+         if (waiter.cancel()) {
+            waitQueue.remove(waiter);
+            waiters.decrementAndGet();
+            future.complete(bagEntry);
+            return future;
+         }
+
+         releaseLane(lane);
+         unclaim(bagEntry);
+         handoff(bagEntry);
+      }
+
+      final var timeoutTask = scheduler.schedule(() -> {
+         if (waiter.cancel()) {
+            waitQueue.remove(waiter);
+            future.complete(null);
+         }
+      }, timeout, timeUnit);
+
+      // the waiter is no longer counted by the time the caller's dependent stages run; the caller
+      // gets a further stage, because cancelling a stage would skip its own completion action
+      final var result = future.whenComplete((e, t) -> {
+         timeoutTask.cancel(false);
+         waiters.decrementAndGet();
+         if (future.isCancelled()) {
+            withdraw(waiter, waitQueue);
+         }
+      }).thenApply(Function.identity());
+
+      // a borrower that cancels the returned future gives up its place in the wait queue, and
+      // an item that was handed to it in the meantime goes back to the bag
+      result.whenComplete((e, t) -> {
+         if (result.isCancelled() && !future.cancel(false)) {
+            final var handed = future.getNow(null);
+            if (handed != null) {
+               requite(handed);
+            }
+         }
+      });
+
+      return result;
+   }
+
    /**
     * This method will return a borrowed object to the bag.  Objects
     * that are borrowed from the bag but never "requited" will result
@@ -174,18 +450,29 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
     */
    public void requite(final T bagEntry)
    {
-      bagEntry.setState(STATE_NOT_IN_USE);
+      final var lane = takeLane(bagEntry);
 
-      for (var i = 0; waiters.get() > 0; i++) {
-         if (bagEntry.getState() != STATE_NOT_IN_USE || handoffQueue.offer(bagEntry)) {
+      int state;
+      do {
+         state = bagEntry.getState();
+         if (state == STATE_REMOVED) {
+            // removed while borrowed, e.g. aborted during shutdown; it must not be revived
             return;
          }
-         else if ((i & 0xff) == 0xff) {
-            parkNanos(MICROSECONDS.toNanos(10));
-         }
-         else {
-            Thread.yield();
-         }
+      } while (!bagEntry.compareAndSet(state, STATE_NOT_IN_USE));
+
+      counted(state, STATE_NOT_IN_USE);
+      if (state == STATE_IN_USE) {
+         releaseLane(lane);
+      }
+
+      if (handoff(bagEntry)) {
+         return;
+      }
+
+      if (isVirtual(Thread.currentThread())) {
+         offerRecentlyReturned(bagEntry);
+         return;
       }
 
       final var threadLocalList = threadList.get();
@@ -206,12 +493,13 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
          throw new IllegalStateException("ConcurrentBag has been closed, ignoring add()");
       }
 
+      counted(STATE_REMOVED, bagEntry.getState());
       sharedList.add(bagEntry);
-
-      // spin until a thread takes it or none are waiting
-      while (waiters.get() > 0 && bagEntry.getState() == STATE_NOT_IN_USE && !handoffQueue.offer(bagEntry)) {
-         Thread.yield();
+      if (stripeMask > 0) {
+         smallestStripe().add(bagEntry);
       }
+
+      handoff(bagEntry);
    }
 
    /**
@@ -225,9 +513,19 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
     */
    public boolean remove(final T bagEntry)
    {
-      if (!bagEntry.compareAndSet(STATE_IN_USE, STATE_REMOVED) && !bagEntry.compareAndSet(STATE_RESERVED, STATE_REMOVED) && !closed) {
-         LOGGER.warn("Attempt to remove an object from the bag that was not borrowed or reserved: {}", bagEntry);
-         return false;
+      final var wasInUse = transition(bagEntry, STATE_IN_USE, STATE_REMOVED);
+      if (!wasInUse && !transition(bagEntry, STATE_RESERVED, STATE_REMOVED)) {
+         if (!closed) {
+            LOGGER.warn("Attempt to remove an object from the bag that was not borrowed or reserved: {}", bagEntry);
+            return false;
+         }
+
+         // the bag is closed, so the item is removed whatever its state
+         int state;
+         do {
+            state = bagEntry.getState();
+         } while (state != STATE_REMOVED && !bagEntry.compareAndSet(state, STATE_REMOVED));
+         counted(state, STATE_REMOVED);
       }
 
       final boolean removed = sharedList.remove(bagEntry);
@@ -235,7 +533,34 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
          LOGGER.warn("Attempt to remove an object from the bag that does not exist: {}", bagEntry);
       }
 
-      threadList.get().remove(bagEntry);
+      if (stripeMask > 0) {
+         for (var stripe : stripes) {
+            if (stripe.remove(bagEntry)) {
+               break;
+            }
+         }
+      }
+
+      for (int i = 0; i <= recentMask; i++) {
+         recentlyReturned.compareAndSet(i, bagEntry, null);
+      }
+
+      if (!isVirtual(Thread.currentThread())) {
+         threadList.get().remove(bagEntry);
+      }
+
+      if (wasInUse) {
+         final var lane = takeLane(bagEntry);
+         releaseLane(lane);
+         // the lane's cap is no longer reached, so a waiter of that lane may now take an idle item
+         if (laneLimits[lane] > 0 && !waitQueues[lane].isEmpty()) {
+            for (var entry : sharedList) {
+               if (entry.getState() == STATE_NOT_IN_USE && handoff(entry)) {
+                  break;
+               }
+            }
+         }
+      }
 
       return removed;
    }
@@ -293,7 +618,7 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
     */
    public boolean reserve(final T bagEntry)
    {
-      return bagEntry.compareAndSet(STATE_NOT_IN_USE, STATE_RESERVED);
+      return transition(bagEntry, STATE_NOT_IN_USE, STATE_RESERVED);
    }
 
    /**
@@ -305,11 +630,8 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
    @SuppressWarnings("SpellCheckingInspection")
    public void unreserve(final T bagEntry)
    {
-      if (bagEntry.compareAndSet(STATE_RESERVED, STATE_NOT_IN_USE)) {
-         // spin until a thread takes it or none are waiting
-         while (waiters.get() > 0 && !handoffQueue.offer(bagEntry)) {
-            Thread.yield();
-         }
+      if (transition(bagEntry, STATE_RESERVED, STATE_NOT_IN_USE)) {
+         handoff(bagEntry);
       }
       else {
          LOGGER.warn("Attempt to relinquish an object to the bag that was not reserved: {}", bagEntry);
@@ -335,6 +657,12 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
     */
    public int getCount(final int state)
    {
+      final var counter = counter(state);
+      if (counter != null) {
+         // the counters of the two states of a transition are not updated atomically together
+         return (int) Math.max(0L, counter.sum());
+      }
+
       var count = 0;
       for (var e : sharedList) {
          if (e.getState() == state) {
@@ -347,9 +675,9 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
    public int[] getStateCounts()
    {
       final var states = new int[6];
-      for (var e : sharedList) {
-         ++states[e.getState()];
-      }
+      states[STATE_NOT_IN_USE] = getCount(STATE_NOT_IN_USE);
+      states[STATE_IN_USE] = getCount(STATE_IN_USE);
+      states[2] = getCount(STATE_RESERVED);
       states[4] = sharedList.size();
       states[5] = waiters.get();
 
@@ -366,11 +694,438 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
       return sharedList.size();
    }
 
+   /**
+    * Get the number of stripes the items of this bag are partitioned into.
+    *
+    * @return the number of stripes
+    */
+   public int getStripeCount()
+   {
+      return stripes.length;
+   }
+
    public void dumpState()
    {
       sharedList.forEach(entry -> LOGGER.info(entry.toString()));
    }
 
+   /**
+    * Claim an item from the ThreadLocal list of the calling thread, or from the recently
+    * returned slots if the calling thread is a virtual thread.
+    *
+    * @return a borrowed item, or null if none of the local items are available
+    */
+   private T claimLocal()
+   {
+      if (isVirtual(Thread.currentThread())) {
+         return pollRecentlyReturned();
+      }
+
+      final var list = threadList.get();
+      for (int i = list.size() - 1; i >= 0; i--) {
+         final var entry = list.remove(i);
+         @SuppressWarnings("unchecked")
+         final T bagEntry = weakThreadLocals ? ((WeakReference<T>) entry).get() : (T) entry;
+         if (bagEntry != null && transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+            return bagEntry;
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Claim an available item from the stripes on behalf of the specified lane, if the
+    * lane is below its cap.
+    *
+    * @param lane the priority lane of the borrower
+    * @return a borrowed item, or null if no item is available or the lane is at its cap
+    */
+   private T claimForLane(final int lane)
+   {
+      if (!acquireLane(lane)) {
+         return null;
+      }
+
+      final var bagEntry = claimFromStripes();
+      if (bagEntry == null) {
+         releaseLane(lane);
+         return null;
+      }
+
+      setLane(bagEntry, lane);
+      bagEntry.setBorrowSource(BORROW_SHARED);
+      return bagEntry;
+   }
+
+   /**
+    * Scan the home stripe of the calling thread, and then the neighbouring stripes, for
+    * an available item.
+    *
+    * @return a borrowed item, or null if no item is available
+    */
+   private T claimFromStripes()
+   {
+      final var home = homeStripe();
+      for (int i = 0; i <= stripeMask; i++) {
+         for (T bagEntry : stripes[(home + i) & stripeMask]) {
+            if (transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+               return bagEntry;
+            }
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Park until an item is handed to the specified waiter, or the timeout expires.
+    *
+    * @param waiter the waiter node of the calling thread, already in the wait queue
+    * @param waitQueue the wait queue of the calling thread's lane
+    * @param timeoutNanos the maximum time to wait, in nanoseconds
+    * @return the item handed to the waiter, or null if a timeout occurs
+    * @throws InterruptedException if interrupted while waiting
+    */
+   private T awaitHandoff(final Waiter<T> waiter, final ConcurrentLinkedQueue<Waiter<T>> waitQueue, final long timeoutNanos) throws InterruptedException
+   {
+      final var start = currentTime();
+      for (;;) {
+         final var bagEntry = waiter.getItem();
+         if (bagEntry != null) {
+            return bagEntry;
+         }
+
+         final var interrupted = Thread.interrupted();
+         final var remaining = timeoutNanos - elapsedNanos(start);
+         if (interrupted || remaining <= 10_000) {
+            if (waiter.cancel()) {
+               waitQueue.remove(waiter);
+               if (interrupted) {
+                  throw new InterruptedException();
+               }
+               return null;
+            }
+
+            // An item was handed to us as we gave up; take it, but preserve the interrupt
+            if (interrupted) {
+               Thread.currentThread().interrupt();
+            }
+            continue;
+         }
+
+         parkNanos(this, remaining);
+      }
+   }
+
+   /**
+    * Remove the waiter of a cancelled asynchronous borrow from its wait queue.  If an item was
+    * handed to the waiter before it could be cancelled, the item is returned to the bag.
+    *
+    * @param waiter the waiter of the cancelled borrow
+    * @param waitQueue the wait queue of the borrower's lane
+    */
+   private void withdraw(final Waiter<T> waiter, final ConcurrentLinkedQueue<Waiter<T>> waitQueue)
+   {
+      if (waiter.cancel()) {
+         waitQueue.remove(waiter);
+         return;
+      }
+
+      final var bagEntry = waiter.getItem();
+      if (bagEntry != null) {
+         requite(bagEntry);
+      }
+   }
+
+   /**
+    * Hand a not-in-use item directly to the oldest waiter of the highest priority lane that
+    * has waiters and is below its cap, if there is one.  The item is claimed before a waiter
+    * is dequeued, so it cannot be lost to a barging thread between the two; and the wait
+    * queues are re-checked after the item is released, so that a waiter that joined a queue
+    * after it was found empty is not missed.
+    *
+    * @param bagEntry the item to hand off, which must be in the not-in-use state
+    * @return true if the item was handed to a waiter or claimed by another thread, false otherwise
+    */
+   private boolean handoff(final T bagEntry)
+   {
+      for (;;) {
+         final var lane = nextServableLane();
+         if (lane < 0) {
+            return false;
+         }
+
+         if (!transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+            return true;
+         }
+
+         if (acquireLane(lane)) {
+            setLane(bagEntry, lane);
+            bagEntry.setBorrowSource(BORROW_HANDOFF);
+
+            Waiter<T> waiter;
+            while ((waiter = waitQueues[lane].poll()) != null) {
+               if (waiter.offer(bagEntry)) {
+                  return true;
+               }
+            }
+
+            releaseLane(lane);
+         }
+
+         unclaim(bagEntry);
+      }
+   }
+
+   /**
+    * Find the highest priority lane that has waiters and is below its cap.
+    *
+    * @return the lane, or -1 if there is no such lane
+    */
+   private int nextServableLane()
+   {
+      for (int lane = 0; lane < waitQueues.length; lane++) {
+         if (!waitQueues[lane].isEmpty() && (laneLimits[lane] <= 0 || laneInUse.get(lane) < laneLimits[lane])) {
+            return lane;
+         }
+      }
+
+      return -1;
+   }
+
+   /**
+    * Determine whether any borrower of the specified lane, or of a higher priority lane, is waiting.
+    *
+    * @param lane the priority lane of the borrower
+    * @return true if there are waiters at the same or a higher priority
+    */
+   private boolean hasWaiters(final int lane)
+   {
+      for (int i = 0; i <= lane; i++) {
+         if (!waitQueues[i].isEmpty()) {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Count a borrow against the cap of the specified lane.  Uncapped lanes are not counted.
+    *
+    * @param lane the priority lane of the borrower
+    * @return true if the lane is uncapped or below its cap, false otherwise
+    */
+   private boolean acquireLane(final int lane)
+   {
+      final var limit = laneLimits[lane];
+      if (limit > 0) {
+         int inUse;
+         do {
+            inUse = laneInUse.get(lane);
+            if (inUse >= limit) {
+               return false;
+            }
+         } while (!laneInUse.compareAndSet(lane, inUse, inUse + 1));
+      }
+
+      return true;
+   }
+
+   /**
+    * Record the lane an entry is borrowed by, on the entry itself or, if it does not record it, in the bag.
+    */
+   private void setLane(final T bagEntry, final int lane)
+   {
+      bagEntry.setLane(lane);
+      if (borrowedLanes != null && bagEntry.getLane() != lane) {
+         borrowedLanes.put(bagEntry, lane);
+      }
+   }
+
+   /**
+    * Get the lane a borrowed entry was borrowed by, forgetting it if the bag kept it.
+    */
+   private int takeLane(final T bagEntry)
+   {
+      final var lane = bagEntry.getLane();
+      if (lane >= 0) {
+         return lane;
+      }
+
+      final var kept = (borrowedLanes != null) ? borrowedLanes.remove(bagEntry) : null;
+      return (kept != null) ? kept : 0;
+   }
+
+   private void releaseLane(final int lane)
+   {
+      if (laneLimits[lane] > 0) {
+         laneInUse.decrementAndGet(lane);
+      }
+   }
+
+   /**
+    * Transition an item between states with a CAS, counting the transition if it succeeds.
+    *
+    * @param bagEntry the item to transition
+    * @param expect the expected current state of the item
+    * @param update the new state of the item
+    * @return true if the transition succeeded, false otherwise
+    */
+   private boolean transition(final T bagEntry, final int expect, final int update)
+   {
+      if (bagEntry.compareAndSet(expect, update)) {
+         counted(expect, update);
+         return true;
+      }
+
+      return false;
+   }
+
+   /**
+    * Release an item claimed by the calling thread, but never handed to a borrower.
+    *
+    * @param bagEntry the item to release, which must be in the in-use state
+    */
+   private void unclaim(final T bagEntry)
+   {
+      bagEntry.setState(STATE_NOT_IN_USE);
+      counted(STATE_IN_USE, STATE_NOT_IN_USE);
+   }
+
+   /**
+    * Update the state counters for a transition.  The new state is counted before the old
+    * state is discounted, so that a concurrent read never sees a negative count.
+    *
+    * @param from the state the item transitioned from
+    * @param to the state the item transitioned to
+    */
+   private void counted(final int from, final int to)
+   {
+      if (from != to) {
+         final var toCounter = counter(to);
+         if (toCounter != null) {
+            toCounter.increment();
+         }
+
+         final var fromCounter = counter(from);
+         if (fromCounter != null) {
+            fromCounter.decrement();
+         }
+      }
+   }
+
+   private LongAdder counter(final int state)
+   {
+      switch (state) {
+         case STATE_NOT_IN_USE:
+            return notInUseCount;
+         case STATE_IN_USE:
+            return inUseCount;
+         case STATE_RESERVED:
+            return reservedCount;
+         default:
+            return null;
+      }
+   }
+
+   /**
+    * Select the "home" stripe of the calling thread.  The thread id is mixed so that
+    * sequentially created threads are spread across the stripes.
+    *
+    * @return the index of the stripe that the calling thread should scan first
+    */
+   private int homeStripe()
+   {
+      if (stripeMask == 0) {
+         return 0;
+      }
+
+      final var id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+      return (int) (id ^ (id >>> 32)) & stripeMask;
+   }
+
+   /**
+    * Claim an item from the "recently returned" slots that are used in place of the
+    * ThreadLocal list for virtual threads.  The scan starts at a slot selected by the
+    * calling thread, so that concurrent borrowers do not all contend on the first slot.
+    *
+    * @return a borrowed item, or null if none of the recently returned items are available
+    */
+   private T pollRecentlyReturned()
+   {
+      final var start = (int) Thread.currentThread().getId();
+      for (int i = 0; i <= recentMask; i++) {
+         final var slot = (start + i) & recentMask;
+         final var bagEntry = recentlyReturned.get(slot);
+         if (bagEntry != null && recentlyReturned.compareAndSet(slot, bagEntry, null) && transition(bagEntry, STATE_NOT_IN_USE, STATE_IN_USE)) {
+            return bagEntry;
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Place a returned item into an empty "recently returned" slot, if there is one.
+    *
+    * @param bagEntry the item that was returned
+    */
+   private void offerRecentlyReturned(final T bagEntry)
+   {
+      final var start = (int) Thread.currentThread().getId();
+      for (int i = 0; i <= recentMask; i++) {
+         if (recentlyReturned.compareAndSet((start + i) & recentMask, null, bagEntry)) {
+            return;
+         }
+      }
+   }
+
+   /**
+    * Determine whether the specified thread is a virtual thread.  Always false on JVMs
+    * that pre-date virtual threads.
+    *
+    * @param thread the thread to check
+    * @return true if the thread is a virtual thread, false otherwise
+    */
+   private static boolean isVirtual(final Thread thread)
+   {
+      try {
+         return IS_VIRTUAL != null && (boolean) IS_VIRTUAL.invokeExact(thread);
+      }
+      catch (Throwable t) {
+         return false;
+      }
+   }
+
+   private static MethodHandle findIsVirtual()
+   {
+      try {
+         return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual", methodType(boolean.class));
+      }
+      catch (ReflectiveOperationException e) {
+         return null;
+      }
+   }
+
+   /**
+    * Find the stripe with the fewest items, so that stripes remain balanced as items
+    * are removed from and added to the bag over time.
+    *
+    * @return the stripe having the fewest items
+    */
+   private CopyOnWriteArrayList<T> smallestStripe()
+   {
+      var smallest = stripes[0];
+      for (int i = 1; i < stripes.length; i++) {
+         if (stripes[i].size() < smallest.size()) {
+            smallest = stripes[i];
+         }
+      }
+      return smallest;
+   }
+
    /**
     * Determine whether to use WeakReferences based on whether there is a
     * custom ClassLoader implementation sitting between this class and the
@@ -391,4 +1146,60 @@ public class ConcurrentBag<T extends IConcurrentBagEntry> implements AutoCloseab
          return true;
       }
    }
+
+   /**
+    * A thread parked in the wait queue, or an asynchronous borrower's future.  An item is
+    * handed to the waiter by setting it, in the in-use state, with a CAS from null; the
+    * waiter gives up with a CAS from null to CANCELLED.  Whichever CAS succeeds first
+    * decides the outcome.
+    */
+   private static final class Waiter<T>
+   {
+      private static final Object CANCELLED = new Object();
+      @SuppressWarnings("rawtypes")
+      private static final AtomicReferenceFieldUpdater<Waiter, Object> ITEM = AtomicReferenceFieldUpdater.newUpdater(Waiter.class, Object.class, "item");
+
+      private final Thread thread;
+      private final CompletableFuture<T> future;
+      private volatile Object item;
+
+      Waiter(final Thread thread)
+      {
+         this.thread = thread;
+         this.future = null;
+      }
+
+      Waiter(final CompletableFuture<T> future)
+      {
+         this.thread = null;
+         this.future = future;
+      }
+
+      boolean offer(final T bagEntry)
+      {
+         if (ITEM.compareAndSet(this, null, bagEntry)) {
+            if (future != null) {
+               future.complete(bagEntry);
+            }
+            else {
+               unpark(thread);
+            }
+            return true;
+         }
+
+         return false;
+      }
+
+      boolean cancel()
+      {
+         return ITEM.compareAndSet(this, null, CANCELLED);
+      }
+
+      @SuppressWarnings("unchecked")
+      T getItem()
+      {
+         final var bagEntry = item;
+         return bagEntry == CANCELLED ? null : (T) bagEntry;
+      }
+   }
 }
@@ -30,7 +30,8 @@ import java.util.Set;
 
 /**
  * This class generates the proxy objects for {@link Connection}, {@link Statement},
- * {@link PreparedStatement}, and {@link CallableStatement}.  Additionally it injects
+ * {@link PreparedStatement}, and {@link CallableStatement}, and the {@link ConnectionHandle}
+ * for reused connection proxies.  Additionally it injects
  * method bodies into the {@link ProxyFactory} class methods that can instantiate
  * instances of the generated proxies.
  *
@@ -62,6 +63,10 @@ public final class JavassistProxyFactory
       generateProxyClass(PreparedStatement.class, ProxyPreparedStatement.class.getName(), methodBody);
       generateProxyClass(CallableStatement.class, ProxyCallableStatement.class.getName(), methodBody);
 
+      // Handles check that their borrow is current, the proxy connection they forward to does the rest
+      methodBody = "{ return live().method($$); }";
+      generateProxyClass(Connection.class, ConnectionHandle.class.getName(), methodBody);
+
       modifyProxyFactory();
    }
 
@@ -90,6 +95,9 @@ public final class JavassistProxyFactory
             case "getProxyDatabaseMetaData":
                method.setBody("{return new " + packageName + ".HikariProxyDatabaseMetaData($$);}");
                break;
+            case "getConnectionHandle":
+               method.setBody("{return new " + packageName + ".HikariConnectionHandle($$);}");
+               break;
             default:
                // unhandled method
                break;
@@ -147,7 +155,8 @@ public final class JavassistProxyFactory
 
             // If the super-Proxy has concrete methods (non-abstract), transform the call into a simple super.method() call
             var superMethod = superCt.getMethod(intfMethod.getName(), intfMethod.getSignature());
-            if ((superMethod.getModifiers() & Modifier.ABSTRACT) != Modifier.ABSTRACT && !isDefaultMethod(intf, intfMethod)) {
+            var isConcrete = (superMethod.getModifiers() & Modifier.ABSTRACT) != Modifier.ABSTRACT && !isDefaultMethod(intf, intfMethod);
+            if (isConcrete) {
                modifiedBody = modifiedBody.replace("((cast) ", "");
                modifiedBody = modifiedBody.replace("delegate", "super");
                modifiedBody = modifiedBody.replace("super)", "super");
@@ -159,6 +168,10 @@ public final class JavassistProxyFactory
             if (isThrowsSqlException(intfMethod)) {
                modifiedBody = modifiedBody.replace("method", method.getName());
             }
+            else if (isConcrete) {
+               // e.g. AutoCloseable.close(), which the super-Proxy implements as Connection.close()
+               modifiedBody = "{ return super.method($$); }".replace("method", method.getName());
+            }
             else {
                modifiedBody = "{ return ((cast) delegate).method($$); }".replace("method", method.getName()).replace("cast", primaryInterface.getName());
             }
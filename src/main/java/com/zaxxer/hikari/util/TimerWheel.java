@@ -0,0 +1,419 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.locks.LockSupport.parkNanos;
+import static java.util.concurrent.locks.LockSupport.unpark;
+
+/**
+ * A hashed timing wheel, for large numbers of timers that are usually cancelled before
+ * they expire.  Scheduling and cancelling a timer are O(1) and lock-free: new and cancelled
+ * timers are queued, and moved into (or unlinked from) the buckets of the wheel by a single
+ * "ticker" thread.  Timers that expire are not run on the ticker thread, but are handed to
+ * the dispatch executor.
+ * <p>
+ * The resolution of the wheel is one tick; a timer never fires early, but may fire up to one
+ * tick late.  Timers further in the future than one revolution of the wheel are kept in
+ * their bucket for the required number of additional revolutions ("rounds").
+ * <p>
+ * This class implements {@link ScheduledExecutorService} so that it can stand in for a
+ * ScheduledThreadPoolExecutor, but plain <code>execute()</code> and <code>submit()</code>
+ * calls are simply passed to the dispatch executor.
+ *
+ * @author Brett Wooldridge
+ */
+public final class TimerWheel extends AbstractExecutorService implements ScheduledExecutorService
+{
+   private static final Logger LOGGER = LoggerFactory.getLogger(TimerWheel.class);
+   private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+   private final Executor dispatcher;
+   private final long tickNanos;
+   private final int mask;
+   private final TimerTask<?>[] heads;
+   private final TimerTask<?>[] tails;
+   private final ConcurrentLinkedQueue<TimerTask<?>> pending;
+   private final ConcurrentLinkedQueue<TimerTask<?>> cancelled;
+   private final long startTime;
+   private final Thread ticker;
+
+   private long tick;
+   private volatile boolean isShutdown;
+
+   /**
+    * Construct a TimerWheel with a tick of 100ms and 512 buckets.
+    *
+    * @param dispatcher the executor that expired timers are run on
+    * @param threadFactory the factory for the ticker thread
+    */
+   public TimerWheel(final Executor dispatcher, final ThreadFactory threadFactory)
+   {
+      this(dispatcher, threadFactory, 100, MILLISECONDS, 512);
+   }
+
+   /**
+    * Construct a TimerWheel with the specified tick and number of buckets.  The number of
+    * buckets is rounded up to the next power of two.
+    *
+    * @param dispatcher the executor that expired timers are run on
+    * @param threadFactory the factory for the ticker thread
+    * @param tickDuration the duration of one tick, in units of unit
+    * @param unit a <code>TimeUnit</code> determining how to interpret the tickDuration parameter
+    * @param wheelSize the number of buckets in the wheel
+    */
+   public TimerWheel(final Executor dispatcher, final ThreadFactory threadFactory, final long tickDuration, final TimeUnit unit, final int wheelSize)
+   {
+      if (tickDuration <= 0 || wheelSize <= 0) {
+         throw new IllegalArgumentException("tickDuration and wheelSize must be greater than zero");
+      }
+
+      final var buckets = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << (wheelSize > 1 ? 1 : 0);
+      this.dispatcher = dispatcher;
+      this.tickNanos = unit.toNanos(tickDuration);
+      this.mask = buckets - 1;
+      this.heads = new TimerTask<?>[buckets];
+      this.tails = new TimerTask<?>[buckets];
+      this.pending = new ConcurrentLinkedQueue<>();
+      this.cancelled = new ConcurrentLinkedQueue<>();
+      this.startTime = System.nanoTime();
+      this.ticker = threadFactory.newThread(this::run);
+      this.ticker.setDaemon(true);
+      this.ticker.start();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public ScheduledFuture<?> schedule(final Runnable command, final long delay, final TimeUnit unit)
+   {
+      return enqueue(new TimerTask<Void>(command, null, deadline(delay, unit), 0L));
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public <V> ScheduledFuture<V> schedule(final Callable<V> callable, final long delay, final TimeUnit unit)
+   {
+      return enqueue(new TimerTask<>(callable, deadline(delay, unit)));
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public ScheduledFuture<?> scheduleAtFixedRate(final Runnable command, final long initialDelay, final long period, final TimeUnit unit)
+   {
+      if (period <= 0) {
+         throw new IllegalArgumentException("period must be greater than zero");
+      }
+      return enqueue(new TimerTask<Void>(command, null, deadline(initialDelay, unit), unit.toNanos(period)));
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public ScheduledFuture<?> scheduleWithFixedDelay(final Runnable command, final long initialDelay, final long delay, final TimeUnit unit)
+   {
+      if (delay <= 0) {
+         throw new IllegalArgumentException("delay must be greater than zero");
+      }
+      return enqueue(new TimerTask<Void>(command, null, deadline(initialDelay, unit), -unit.toNanos(delay)));
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void execute(final Runnable command)
+   {
+      if (isShutdown) {
+         throw new RejectedExecutionException("TimerWheel has been shutdown");
+      }
+      dispatcher.execute(command);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public void shutdown()
+   {
+      isShutdown = true;
+      unpark(ticker);
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public List<Runnable> shutdownNow()
+   {
+      shutdown();
+
+      final var tasks = new ArrayList<Runnable>();
+      TimerTask<?> task;
+      while ((task = pending.poll()) != null) {
+         if (!task.isCancelled()) {
+            tasks.add(task);
+         }
+      }
+      return tasks;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public boolean isShutdown()
+   {
+      return isShutdown;
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public boolean isTerminated()
+   {
+      return isShutdown && !ticker.isAlive();
+   }
+
+   /** {@inheritDoc} */
+   @Override
+   public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException
+   {
+      ticker.join(Math.max(1L, unit.toMillis(timeout)));
+      return isTerminated();
+   }
+
+   // ***********************************************************************
+   //                          Private methods
+   // ***********************************************************************
+
+   private static long deadline(final long delay, final TimeUnit unit)
+   {
+      return System.nanoTime() + unit.toNanos(Math.max(0L, delay));
+   }
+
+   private <V> TimerTask<V> enqueue(final TimerTask<V> task)
+   {
+      if (isShutdown) {
+         throw new RejectedExecutionException("TimerWheel has been shutdown");
+      }
+
+      pending.add(task);
+      return task;
+   }
+
+   /**
+    * The ticker thread.  At the end of every tick, cancelled timers are unlinked from the
+    * wheel, new timers are linked into it, and the timers of the current bucket that have
+    * no rounds remaining are dispatched.
+    */
+   private void run()
+   {
+      while (!isShutdown) {
+         final var deadline = startTime + (tick + 1) * tickNanos;
+         long remaining;
+         while ((remaining = deadline - System.nanoTime()) > 0 && !isShutdown) {
+            parkNanos(this, remaining);
+         }
+
+         if (isShutdown) {
+            break;
+         }
+
+         try {
+            unlinkCancelled();
+            linkPending();
+            expire(heads[(int) (tick & mask)]);
+         }
+         catch (Throwable t) {
+            LOGGER.warn("Unexpected exception in TimerWheel ticker", t);
+         }
+
+         tick++;
+      }
+   }
+
+   private void unlinkCancelled()
+   {
+      TimerTask<?> task;
+      while ((task = cancelled.poll()) != null) {
+         if (task.bucket >= 0) {
+            unlink(task);
+         }
+      }
+   }
+
+   private void linkPending()
+   {
+      for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+         final var task = pending.poll();
+         if (task == null) {
+            break;
+         }
+         else if (task.isCancelled()) {
+            continue;
+         }
+
+         // the bucket of the current tick is expired at the end of the tick, so a timer is placed
+         // in the last bucket that is expired before its deadline
+         final var elapsed = task.deadline - startTime;
+         final var deadlineTick = Math.max(tick, (elapsed + tickNanos - 1) / tickNanos - 1);
+         task.rounds = (deadlineTick - tick) / heads.length;
+         link(task, (int) (deadlineTick & mask));
+      }
+   }
+
+   private void expire(TimerTask<?> task)
+   {
+      while (task != null) {
+         final var next = task.next;
+         if (task.rounds <= 0) {
+            unlink(task);
+            try {
+               dispatcher.execute(task);
+            }
+            catch (RejectedExecutionException e) {
+               task.cancel(false);
+            }
+         }
+         else {
+            task.rounds--;
+         }
+         task = next;
+      }
+   }
+
+   private void link(final TimerTask<?> task, final int bucket)
+   {
+      task.bucket = bucket;
+      task.prev = tails[bucket];
+      task.next = null;
+      if (tails[bucket] == null) {
+         heads[bucket] = task;
+      }
+      else {
+         tails[bucket].next = task;
+      }
+      tails[bucket] = task;
+   }
+
+   private void unlink(final TimerTask<?> task)
+   {
+      final var bucket = task.bucket;
+      if (task.prev == null) {
+         heads[bucket] = task.next;
+      }
+      else {
+         task.prev.next = task.next;
+      }
+
+      if (task.next == null) {
+         tails[bucket] = task.prev;
+      }
+      else {
+         task.next.prev = task.prev;
+      }
+
+      task.bucket = -1;
+      task.prev = null;
+      task.next = null;
+   }
+
+   /**
+    * A timer in the wheel.  The bucket, rounds and links are only accessed by the ticker thread.
+    *
+    * @param <V> the result type of the timer
+    */
+   private final class TimerTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V>
+   {
+      // positive for fixed-rate, negative for fixed-delay, and zero for one-shot timers
+      private final long period;
+      private volatile long deadline;
+
+      private int bucket = -1;
+      private long rounds;
+      private TimerTask<?> prev;
+      private TimerTask<?> next;
+
+      TimerTask(final Runnable runnable, final V result, final long deadline, final long period)
+      {
+         super(runnable, result);
+         this.deadline = deadline;
+         this.period = period;
+      }
+
+      TimerTask(final Callable<V> callable, final long deadline)
+      {
+         super(callable);
+         this.deadline = deadline;
+         this.period = 0L;
+      }
+
+      /** {@inheritDoc} */
+      @Override
+      public boolean isPeriodic()
+      {
+         return period != 0L;
+      }
+
+      /** {@inheritDoc} */
+      @Override
+      public long getDelay(final TimeUnit unit)
+      {
+         return unit.convert(deadline - System.nanoTime(), NANOSECONDS);
+      }
+
+      /** {@inheritDoc} */
+      @Override
+      public int compareTo(final Delayed other)
+      {
+         return Long.compare(getDelay(NANOSECONDS), other.getDelay(NANOSECONDS));
+      }
+
+      /** {@inheritDoc} */
+      @Override
+      public void run()
+      {
+         if (period == 0L) {
+            super.run();
+         }
+         else if (super.runAndReset() && !isShutdown) {
+            deadline = (period > 0L) ? deadline + period : System.nanoTime() - period;
+            pending.add(this);
+         }
+      }
+
+      /** {@inheritDoc} */
+      @Override
+      public boolean cancel(final boolean mayInterruptIfRunning)
+      {
+         final var isCancelled = super.cancel(mayInterruptIfRunning);
+         if (isCancelled) {
+            cancelled.add(this);
+         }
+         return isCancelled;
+      }
+   }
+}
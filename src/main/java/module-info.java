@@ -10,6 +10,7 @@ module com.zaxxer.hikari
    requires static metrics.healthchecks;
    requires static micrometer.core;
    requires static org.javassist;
+   requires static jdk.jfr;
 
    exports com.zaxxer.hikari;
    exports com.zaxxer.hikari.hibernate;
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.metrics;
+
+import org.junit.Test;
+
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+import static com.zaxxer.hikari.util.ClockSource.plusMillis;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest
+{
+   @Test
+   public void testBucketBounds()
+   {
+      for (long value : new long[] { 0L, 1L, 15L, 16L, 17L, 31L, 32L, 1000L, 123_456_789L, Long.MAX_VALUE }) {
+         final var index = LatencyHistogram.indexOf(value);
+         assertTrue("Value " + value + " above its bucket", value <= LatencyHistogram.highestValueOf(index));
+         assertTrue("Value " + value + " below its bucket", index == 0 || value > LatencyHistogram.highestValueOf(index - 1));
+         assertTrue("Bucket of " + value + " too wide", LatencyHistogram.highestValueOf(index) - value <= value / 16);
+      }
+   }
+
+   @Test
+   public void testPercentiles()
+   {
+      final var histogram = new LatencyHistogram(Long.MAX_VALUE);
+      for (int i = 1; i <= 1000; i++) {
+         histogram.record(i);
+      }
+
+      final var snapshot = histogram.snapshotAndReset();
+      assertEquals(1000, snapshot.getCount());
+      assertEquals(1000, snapshot.getMax());
+      assertWithin(500, snapshot.getValueAtPercentile(50));
+      assertWithin(990, snapshot.getValueAtPercentile(99));
+      assertEquals(1000, snapshot.getValueAtPercentile(100));
+
+      assertEquals("Snapshot did not reset the histogram", 0, histogram.snapshotAndReset().getCount());
+   }
+
+   @Test
+   public void testIntervalSnapshot()
+   {
+      final var histogram = new LatencyHistogram(50);
+      final var start = currentTime();
+      histogram.record(10, start);
+      assertEquals("Interval completed early", 0, histogram.getIntervalSnapshot(plusMillis(start, 10)).getCount());
+
+      final var snapshot = histogram.getIntervalSnapshot(plusMillis(start, 60));
+      assertEquals(1, snapshot.getCount());
+      assertEquals(10, snapshot.getValueAtPercentile(99));
+      assertEquals("Interval snapshot changed within the interval", snapshot, histogram.getIntervalSnapshot(plusMillis(start, 90)));
+   }
+
+   @Test
+   public void testIntervalRolledOverByRecording()
+   {
+      final var histogram = new LatencyHistogram(50);
+      final var start = currentTime();
+      histogram.record(10, start);
+      histogram.record(20, plusMillis(start, 60));
+      histogram.record(30, plusMillis(start, 110));
+
+      // the interval that completed most recently holds only the value recorded during it
+      final var snapshot = histogram.getIntervalSnapshot(plusMillis(start, 120));
+      assertEquals(1, snapshot.getCount());
+      assertEquals(20, snapshot.getMax());
+   }
+
+   @Test
+   public void testIntervalEmptyAfterGap()
+   {
+      final var histogram = new LatencyHistogram(50);
+      final var start = currentTime();
+      histogram.record(10, start);
+
+      // values recorded before the most recent complete interval are not reported as part of it
+      assertEquals(0, histogram.getIntervalSnapshot(plusMillis(start, 500)).getCount());
+
+      histogram.record(20, plusMillis(start, 510));
+      assertEquals(1, histogram.getIntervalSnapshot(plusMillis(start, 560)).getCount());
+   }
+
+   @Test
+   public void testTrackerHistograms()
+   {
+      final var tracker = new HistogramMetricsTracker(new IMetricsTracker() {}, 100);
+      tracker.recordResultSetIterationNanos(1000);
+      tracker.recordStatementCacheHit();
+      tracker.recordStatementCacheHit();
+      tracker.recordStatementCacheMiss();
+
+      // the interval completes within a second, and stays the most recent one for another 100ms
+      var iterations = tracker.getResultSetIterationNanos();
+      for (int i = 0; i < 100 && iterations.getCount() == 0; i++) {
+         quietlySleep(10);
+         iterations = tracker.getResultSetIterationNanos();
+      }
+      assertEquals(1000, iterations.getMax());
+      assertEquals(2, tracker.getStatementCacheHits());
+      assertEquals(1, tracker.getStatementCacheMisses());
+   }
+
+   @Test
+   public void testConcurrentRecording() throws InterruptedException
+   {
+      final var histogram = new LatencyHistogram(Long.MAX_VALUE);
+      final var threads = new Thread[4];
+      for (int t = 0; t < threads.length; t++) {
+         threads[t] = new Thread(() -> {
+            for (int i = 0; i < 100_000; i++) {
+               histogram.record(i % 100);
+            }
+         });
+         threads[t].start();
+      }
+      for (Thread thread : threads) {
+         thread.join();
+      }
+
+      assertEquals(400_000, histogram.snapshotAndReset().getCount());
+   }
+
+   private static void assertWithin(final long expected, final long actual)
+   {
+      assertTrue("Expected about " + expected + " but was " + actual, actual >= expected && actual <= expected + expected / 16);
+   }
+}
@@ -186,14 +186,15 @@ public class HikariCPCollectorTest
       List<Collector.MetricFamilySamples> metrics = hikariCPCollector.collect();
       hikariCPCollector.register(collectorRegistry);
 
-      assertThat(metrics.size(), is(6));
-      assertThat(metrics.stream().filter(metricFamilySamples -> metricFamilySamples.type == Collector.Type.GAUGE).count(), is(6L));
+      assertThat(metrics.size(), is(7));
+      assertThat(metrics.stream().filter(metricFamilySamples -> metricFamilySamples.type == Collector.Type.GAUGE).count(), is(7L));
       assertThat(getValue("hikaricp_active_connections", "collectorTestPool"), is(58.0));
       assertThat(getValue("hikaricp_idle_connections", "collectorTestPool"), is(42.0));
       assertThat(getValue("hikaricp_pending_threads", "collectorTestPool"), is(1.0));
       assertThat(getValue("hikaricp_connections", "collectorTestPool"), is(100.0));
       assertThat(getValue("hikaricp_max_connections", "collectorTestPool"), is(100.0));
       assertThat(getValue("hikaricp_min_connections", "collectorTestPool"), is(3.0));
+      assertThat(getValue("hikaricp_connection_creation_concurrency", "collectorTestPool"), is(4.0));
    }
 
    private Double getValue(String name, String poolName)
@@ -214,6 +215,7 @@ public class HikariCPCollectorTest
             pendingThreads = 1;
             maxConnections = 100;
             minConnections = 3;
+            creationConcurrency = 4;
          }
       };
    }
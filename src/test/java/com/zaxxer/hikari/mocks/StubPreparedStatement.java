@@ -46,6 +46,11 @@ import java.util.Calendar;
 @SuppressWarnings("RedundantThrows")
 public class StubPreparedStatement extends StubStatement implements PreparedStatement
 {
+    // getMaxFieldSize() is used by tests to simulate a broken connection
+    public static volatile boolean maxFieldSizeDisconnects = true;
+
+    private ResultSet resultSet;
+
     StubPreparedStatement(Connection connection)
     {
         super(connection);
@@ -69,6 +74,9 @@ public class StubPreparedStatement extends StubStatement implements PreparedStat
     @Override
     public int getMaxFieldSize() throws SQLException
     {
+        if (!maxFieldSizeDisconnects) {
+            return 0;
+        }
         throw new SQLException("Simulated disconnection error", "08999");
     }
 
@@ -146,7 +154,7 @@ public class StubPreparedStatement extends StubStatement implements PreparedStat
     @Override
     public ResultSet getResultSet() throws SQLException
     {
-        return new StubResultSet();
+        return (resultSet != null) ? resultSet : new StubResultSet();
     }
 
     /** {@inheritDoc} */
@@ -338,7 +346,8 @@ public class StubPreparedStatement extends StubStatement implements PreparedStat
     @Override
     public ResultSet executeQuery() throws SQLException
     {
-        return new StubResultSet();
+        resultSet = new StubResultSet();
+        return resultSet;
     }
 
     /** {@inheritDoc} */
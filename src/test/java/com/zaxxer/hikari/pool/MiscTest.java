@@ -26,6 +26,7 @@ import static com.zaxxer.hikari.util.UtilityElf.getTransactionIsolation;
 import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -132,4 +133,62 @@ public class MiscTest
          }
       }
    }
+
+   @Test
+   public void testLeakDetectionAsync() throws Exception
+   {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      try (PrintStream ps = new PrintStream(baos, true)) {
+         setSlf4jTargetStream(Class.forName("com.zaxxer.hikari.pool.ProxyLeakTask"), ps);
+         setConfigUnitTest(true);
+
+         HikariConfig config = newHikariConfig();
+         config.setMinimumIdle(0);
+         config.setMaximumPoolSize(4);
+         config.setLeakDetectionThreshold(500);
+         config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+         try (HikariDataSource ds = new HikariDataSource(config);
+              Connection ignored = ds.getConnectionAsync().get(5, SECONDS)) {
+            quietlySleep(1000);
+            ps.close();
+            String s = new String(baos.toByteArray());
+            // the connection was handed out on a pool thread, but the leak is reported against the caller
+            assertTrue("Expected the calling thread but contains *" + s + "*", s.contains("on thread " + Thread.currentThread().getName() + ","));
+         }
+         finally
+         {
+            setConfigUnitTest(false);
+         }
+      }
+   }
+
+   @Test
+   public void testLeakDetectionSampled() throws Exception
+   {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      try (PrintStream ps = new PrintStream(baos, true)) {
+         setSlf4jTargetStream(Class.forName("com.zaxxer.hikari.pool.ProxyLeakTask"), ps);
+         setConfigUnitTest(true);
+
+         HikariConfig config = newHikariConfig();
+         config.setMinimumIdle(0);
+         config.setMaximumPoolSize(4);
+         config.setLeakDetectionThreshold(100);
+         config.setLeakDetectionSampleRate(Integer.MAX_VALUE);
+         config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+         try (HikariDataSource ds = new HikariDataSource(config);
+              Connection ignored = ds.getConnection()) {
+            quietlySleep(500);
+            ps.close();
+            String s = new String(baos.toByteArray());
+            assertFalse("Expected unsampled borrow not to be tracked but contains *" + s + "*", s.contains("Connection leak detection"));
+         }
+         finally
+         {
+            setConfigUnitTest(false);
+         }
+      }
+   }
 }
@@ -18,12 +18,17 @@ package com.zaxxer.hikari.pool;
 
 import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
 import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 
 import org.junit.After;
 import org.junit.Before;
@@ -31,6 +36,7 @@ import org.junit.Test;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.mocks.MockDataSource;
 
 public class StatementTest
 {
@@ -134,4 +140,119 @@ public class StatementTest
          statement2.close();
       }
    }
+
+   @Test
+   public void testManyStatementsClosedOutOfOrder() throws SQLException
+   {
+      final var statements = new ArrayList<Statement>();
+      try (Connection connection = ds.getConnection()) {
+         for (int i = 0; i < 100; i++) {
+            statements.add(connection.createStatement());
+         }
+
+         for (int i = 0; i < 100; i += 3) {
+            statements.get(i).close();
+         }
+
+         for (int i = 0; i < 100; i++) {
+            assertEquals("Statement " + i, i % 3 == 0, statements.get(i).isClosed());
+         }
+      }
+
+      for (Statement statement : statements) {
+         assertTrue(statement.isClosed());
+      }
+
+      try (Connection connection = ds.getConnection()) {
+         final var statement = connection.createStatement();
+
+         // a statement left over from the previous borrow must not disturb the new one
+         statements.get(1).close();
+         connection.close();
+
+         assertTrue(statement.isClosed());
+      }
+   }
+
+   @Test
+   public void testStatementsUntrackedWhenCloseFails() throws SQLException
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setDataSource(new MockDataSource() {
+         @Override
+         public Connection getConnection() throws SQLException {
+            final Connection connection = super.getConnection();
+            final Statement statement = mock(Statement.class);
+            doThrow(new SQLException("Simulated close failure")).when(statement).close();
+            when(connection.createStatement()).thenReturn(statement);
+            return connection;
+         }
+      });
+
+      try (HikariDataSource failingDs = new HikariDataSource(config)) {
+         final Connection connection = failingDs.getConnection();
+         final Statement statement1 = connection.createStatement();
+         final Statement statement2 = connection.createStatement();
+
+         // closing the first statement fails, so the connection is evicted before the second is closed
+         connection.close();
+         assertEquals(-1, ((ProxyStatement) statement1).slot);
+         assertEquals(-1, ((ProxyStatement) statement2).slot);
+
+         try {
+            statement2.close();
+         }
+         catch (SQLException e) {
+            assertEquals("Simulated close failure", e.getMessage());
+         }
+      }
+   }
+
+   @Test
+   public void testStatementsTrackedFromAnotherThread() throws Exception
+   {
+      final var statements = new ArrayList<Statement>();
+      final var otherStatements = new ArrayList<Statement>();
+      try (Connection connection = ds.getConnection()) {
+         final var other = new Thread(() -> {
+            try {
+               for (int i = 0; i < 1000; i++) {
+                  final var statement = connection.createStatement();
+                  if (i % 2 == 0) {
+                     statement.close();
+                  }
+                  else {
+                     otherStatements.add(statement);
+                  }
+               }
+            }
+            catch (SQLException e) {
+               throw new RuntimeException(e);
+            }
+         });
+         other.start();
+
+         for (int i = 0; i < 1000; i++) {
+            final var statement = connection.createStatement();
+            if (i % 2 == 0) {
+               statement.close();
+            }
+            else {
+               statements.add(statement);
+            }
+         }
+         other.join();
+
+         assertEquals(1000, statements.size() + otherStatements.size());
+      }
+
+      for (Statement statement : statements) {
+         assertTrue(statement.isClosed());
+      }
+      for (Statement statement : otherStatements) {
+         assertTrue(statement.isClosed());
+      }
+   }
 }
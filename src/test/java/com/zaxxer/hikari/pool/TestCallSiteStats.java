@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestCallSiteStats
+{
+   @Test
+   public void testSampleCapturesCaller()
+   {
+      final var tracker = new CallSiteTracker(1, 2, 60_000L);
+      final var callSite = tracker.sample();
+
+      final var frames = callSite.split(" <- ");
+      assertEquals(2, frames.length);
+      assertTrue(callSite, frames[0].startsWith(TestCallSiteStats.class.getName() + ".testSampleCapturesCaller(TestCallSiteStats.java:"));
+   }
+
+   @Test
+   public void testHoldTimesByCallSite()
+   {
+      final var tracker = new CallSiteTracker(1, 1, 0L);
+      for (int i = 1; i <= 100; i++) {
+         tracker.recordHold("a", i);
+      }
+      tracker.recordHold("b", 5);
+
+      final var held = new PoolEntry(null, null, false, true);
+      held.callSite = "b";
+
+      final var stats = tracker.getStats(List.of(held));
+      assertEquals(2, stats.length);
+      assertEquals("b", stats[0].getCallSite());
+      assertEquals(1, stats[0].getInUse());
+      assertEquals(1, stats[0].getCount());
+      assertEquals("a", stats[1].getCallSite());
+      assertEquals(100, stats[1].getCount());
+      assertEquals(100, stats[1].getMaxMillis());
+      assertTrue(stats[1].getMedianMillis() >= 49 && stats[1].getMedianMillis() <= 51);
+
+      assertTrue(tracker.summarize(List.of(held), 3).contains("b"));
+      assertEquals("", tracker.summarize(List.of(), 3));
+   }
+
+   @Test
+   public void testCallSitesBounded()
+   {
+      final var tracker = new CallSiteTracker(1, 1, 0L);
+      for (int i = 0; i < 100; i++) {
+         tracker.recordHold("site" + i, 1);
+      }
+
+      final var stats = tracker.getStats(List.of());
+      assertEquals(65, stats.length);
+      var other = 0L;
+      for (var stat : stats) {
+         if (CallSiteTracker.OTHER.equals(stat.getCallSite())) {
+            other = stat.getCount();
+         }
+      }
+      assertEquals(36, other);
+   }
+
+   @Test
+   public void testTimeoutNamesCallSite() throws SQLException
+   {
+      final var config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(250);
+      config.setCallSiteSampleRate(1);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (var ds = new HikariDataSource(config);
+           var connection = ds.getConnection()) {
+         try {
+            ds.getConnection();
+            fail("Connection was not expected to be available");
+         }
+         catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(TestCallSiteStats.class.getName() + ".testTimeoutNamesCallSite"));
+         }
+
+         final var stats = ds.getHikariPoolMXBean().getCallSiteStats();
+         assertEquals(1, stats.length);
+         assertEquals(1, stats[0].getInUse());
+      }
+   }
+
+   @Test
+   public void testInvalidConfig()
+   {
+      try {
+         new HikariConfig().setCallSiteSampleRate(-1);
+         fail("Negative call site sample rate was accepted");
+      }
+      catch (IllegalArgumentException e) {
+         // expected
+      }
+
+      try {
+         new HikariConfig().setCallSiteDepth(0);
+         fail("Zero call site depth was accepted");
+      }
+      catch (IllegalArgumentException e) {
+         // expected
+      }
+   }
+}
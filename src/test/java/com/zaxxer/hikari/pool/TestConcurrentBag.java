@@ -19,17 +19,31 @@ package com.zaxxer.hikari.pool;
 import static com.zaxxer.hikari.pool.TestElf.getPool;
 import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
 import static com.zaxxer.hikari.pool.TestElf.setSlf4jTargetStream;
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_IN_USE;
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_NOT_IN_USE;
+import static com.zaxxer.hikari.util.ConcurrentBag.IConcurrentBagEntry.STATE_RESERVED;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.AfterClass;
+import org.junit.Assume;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -114,4 +128,246 @@ public class TestConcurrentBag
          assertNotNull(notinuse.toString());
       }
    }
+
+   @Test
+   public void testStripedConcurrentBag() throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>(x -> CompletableFuture.completedFuture(Boolean.TRUE), 3)) {
+         assertEquals(4, bag.getStripeCount());
+
+         List<PoolEntry> entries = new ArrayList<>();
+         for (int i = 0; i < 8; i++) {
+            PoolEntry entry = pool.newPoolEntry();
+            entries.add(entry);
+            bag.add(entry);
+         }
+
+         // a single thread must be able to steal every entry from the neighbouring stripes
+         List<PoolEntry> borrowed = new ArrayList<>();
+         for (int i = 0; i < 8; i++) {
+            PoolEntry entry = bag.borrow(10, MILLISECONDS);
+            assertNotNull(entry);
+            borrowed.add(entry);
+         }
+
+         assertTrue(borrowed.containsAll(entries));
+         assertNull(bag.borrow(10, MILLISECONDS));
+
+         for (PoolEntry entry : borrowed) {
+            assertTrue(bag.remove(entry));
+         }
+         assertEquals(0, bag.size());
+      }
+   }
+
+   @Test
+   public void testVirtualThreadBorrowAffinity() throws Exception
+   {
+      Method startVirtualThread;
+      try {
+         startVirtualThread = Thread.class.getMethod("startVirtualThread", Runnable.class);
+      }
+      catch (NoSuchMethodException e) {
+         Assume.assumeTrue("virtual threads are not supported by this JVM", false);
+         return;
+      }
+
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>(x -> CompletableFuture.completedFuture(Boolean.TRUE))) {
+         PoolEntry entry = pool.newPoolEntry();
+         bag.add(entry);
+
+         AtomicReference<PoolEntry> borrowed = new AtomicReference<>();
+         for (int i = 0; i < 3; i++) {
+            Thread thread = (Thread) startVirtualThread.invoke(null, (Runnable) () -> {
+               try {
+                  PoolEntry bagEntry = bag.borrow(100, MILLISECONDS);
+                  borrowed.set(bagEntry);
+                  bag.requite(bagEntry);
+               }
+               catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            });
+            thread.join();
+
+            assertSame(entry, borrowed.get());
+            assertEquals(1, bag.getCount(ConcurrentBag.IConcurrentBagEntry.STATE_NOT_IN_USE));
+         }
+
+         assertSame(entry, bag.borrow(100, MILLISECONDS));
+         assertTrue(bag.remove(entry));
+      }
+   }
+
+   @Test
+   public void testWaitersServedInOrder() throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>(x -> CompletableFuture.completedFuture(Boolean.TRUE))) {
+         PoolEntry entry = pool.newPoolEntry();
+         bag.add(entry);
+         assertSame(entry, bag.borrow(10, MILLISECONDS));
+
+         List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+         List<Thread> threads = new ArrayList<>();
+         for (int i = 0; i < 3; i++) {
+            final int id = i;
+            Thread t = new Thread(() -> {
+               try {
+                  PoolEntry borrowed = bag.borrow(5, SECONDS);
+                  order.add(id);
+                  bag.requite(borrowed);
+               }
+               catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            });
+            t.start();
+            // wait for the thread to park before starting the next one
+            while (bag.getWaitingThreadCount() != i + 1 || t.getState() != Thread.State.TIMED_WAITING) {
+               Thread.sleep(1);
+            }
+            threads.add(t);
+         }
+
+         bag.requite(entry);
+         for (Thread t : threads) {
+            t.join();
+         }
+
+         assertEquals(Arrays.asList(0, 1, 2), order);
+         assertEquals(0, bag.getWaitingThreadCount());
+      }
+   }
+   @Test
+   public void testPriorityLaneCapKeptByBag() throws Exception
+   {
+      try (ConcurrentBag<PlainEntry> bag = new ConcurrentBag<>(x -> CompletableFuture.completedFuture(Boolean.TRUE), new int[] {0, 1})) {
+         bag.add(new PlainEntry());
+         bag.add(new PlainEntry());
+
+         // the entries do not record their lane, so the bag has to remember it to release the cap
+         PlainEntry low = bag.borrow(10, MILLISECONDS, 1);
+         assertNotNull(low);
+         assertNull(bag.borrow(10, MILLISECONDS, 1));
+
+         bag.requite(low);
+         assertNotNull(bag.borrow(10, MILLISECONDS, 1));
+      }
+   }
+
+   @Test
+   public void testPriorityLaneCap() throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>(x -> CompletableFuture.completedFuture(Boolean.TRUE), new int[] {0, 0, 1})) {
+         PoolEntry entry1 = pool.newPoolEntry();
+         PoolEntry entry2 = pool.newPoolEntry();
+         bag.add(entry1);
+         bag.add(entry2);
+
+         PoolEntry low = bag.borrow(10, MILLISECONDS, 2);
+         assertNotNull(low);
+
+         // the low lane is at its cap, even though an item is available
+         assertNull(bag.borrow(10, MILLISECONDS, 2));
+         PoolEntry high = bag.borrow(10, MILLISECONDS, 0);
+         assertNotNull(high);
+
+         bag.requite(high);
+         assertNull(bag.borrow(10, MILLISECONDS, 2));
+
+         bag.requite(low);
+         assertNotNull(bag.borrow(10, MILLISECONDS, 2));
+      }
+   }
+
+   @Test
+   public void testHigherPriorityWaiterServedFirst() throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>(x -> CompletableFuture.completedFuture(Boolean.TRUE), new int[3])) {
+         PoolEntry entry = pool.newPoolEntry();
+         bag.add(entry);
+         assertSame(entry, bag.borrow(10, MILLISECONDS));
+
+         List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+         List<Thread> threads = new ArrayList<>();
+         for (int lane : new int[] {2, 1, 0}) {
+            Thread t = new Thread(() -> {
+               try {
+                  PoolEntry borrowed = bag.borrow(5, SECONDS, lane);
+                  order.add(lane);
+                  bag.requite(borrowed);
+               }
+               catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               }
+            });
+            t.start();
+            while (bag.getWaitingThreadCount() != threads.size() + 1 || t.getState() != Thread.State.TIMED_WAITING) {
+               Thread.sleep(1);
+            }
+            threads.add(t);
+         }
+
+         bag.requite(entry);
+         for (Thread t : threads) {
+            t.join();
+         }
+
+         assertEquals(Arrays.asList(0, 1, 2), order);
+      }
+   }
+   @Test
+   public void testStateCounts() throws Exception
+   {
+      try (ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>(x -> CompletableFuture.completedFuture(Boolean.TRUE))) {
+         PoolEntry entry1 = pool.newPoolEntry();
+         PoolEntry entry2 = pool.newPoolEntry();
+         PoolEntry entry3 = pool.newPoolEntry();
+         bag.add(entry1);
+         bag.add(entry2);
+         bag.add(entry3);
+         assertEquals(3, bag.getCount(STATE_NOT_IN_USE));
+
+         PoolEntry borrowed = bag.borrow(10, MILLISECONDS);
+         assertTrue(bag.reserve(entry3 != borrowed ? entry3 : entry2));
+         assertEquals(1, bag.getCount(STATE_NOT_IN_USE));
+         assertEquals(1, bag.getCount(STATE_IN_USE));
+         assertEquals(1, bag.getCount(STATE_RESERVED));
+
+         int[] states = bag.getStateCounts();
+         assertEquals(1, states[STATE_NOT_IN_USE]);
+         assertEquals(1, states[STATE_IN_USE]);
+         assertEquals(3, states[4]);
+
+         assertTrue(bag.remove(borrowed));
+         // a removed entry returned late must not be counted again
+         bag.requite(borrowed);
+         assertEquals(1, bag.getCount(STATE_NOT_IN_USE));
+         assertEquals(0, bag.getCount(STATE_IN_USE));
+         assertEquals(2, bag.size());
+      }
+   }
+
+   private static final class PlainEntry implements ConcurrentBag.IConcurrentBagEntry
+   {
+      private final AtomicInteger state = new AtomicInteger();
+
+      @Override
+      public boolean compareAndSet(int expectState, int newState)
+      {
+         return state.compareAndSet(expectState, newState);
+      }
+
+      @Override
+      public void setState(int newState)
+      {
+         state.set(newState);
+      }
+
+      @Override
+      public int getState()
+      {
+         return state.get();
+      }
+   }
 }
@@ -19,6 +19,7 @@ package com.zaxxer.hikari.pool;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.Priority;
 import com.zaxxer.hikari.SQLExceptionOverride;
 import com.zaxxer.hikari.mocks.StubConnection;
 import com.zaxxer.hikari.mocks.StubDataSource;
@@ -30,10 +31,14 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.sql.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static com.zaxxer.hikari.pool.TestElf.*;
+import static com.zaxxer.hikari.util.ClockSource.plusMillis;
 import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.junit.Assert.*;
@@ -904,6 +909,262 @@ public class TestConnections
       }
    }
 
+   @Test
+   public void testGetConnectionAsync() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(2500);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         HikariPool pool = getPool(ds);
+
+         Connection connection = ds.getConnectionAsync().get(1, SECONDS);
+         assertEquals(1, pool.getActiveConnections());
+
+         CompletableFuture<Connection> future = ds.getConnectionAsync();
+         assertFalse(future.isDone());
+         assertEquals(1, pool.getThreadsAwaitingConnection());
+
+         connection.close();
+         Connection connection2 = future.get(1, SECONDS);
+         assertEquals(1, pool.getActiveConnections());
+         assertEquals(0, pool.getThreadsAwaitingConnection());
+
+         connection2.close();
+         assertEquals(1, pool.getIdleConnections());
+      }
+   }
+
+   @Test
+   public void testGetConnectionAsyncTimeout() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(250);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config);
+           Connection ignored = ds.getConnection()) {
+         CompletableFuture<Connection> future = ds.getConnectionAsync();
+         try {
+            future.get(5, SECONDS);
+            fail("Should have timed out");
+         }
+         catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof SQLTransientConnectionException);
+         }
+         assertEquals(0, getPool(ds).getThreadsAwaitingConnection());
+      }
+   }
+
+   @Test
+   public void testGetConnectionAsyncCompletedByPool() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         Connection connection = ds.getConnection();
+         CompletableFuture<String> completer = ds.getConnectionAsync().thenApply(c -> {
+            try {
+               c.close();
+            }
+            catch (SQLException e) {
+               throw new CompletionException(e);
+            }
+            return Thread.currentThread().getName();
+         });
+
+         // the returning thread does not run the borrow's validation or the caller's stages
+         connection.close();
+         assertTrue(completer.get(1, SECONDS).contains("async borrower"));
+      }
+   }
+
+   @Test
+   public void testGetConnectionAsyncCancelled() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         HikariPool pool = getPool(ds);
+         Connection connection = ds.getConnection();
+
+         CompletableFuture<Connection> future = ds.getConnectionAsync();
+         assertEquals(1, pool.getThreadsAwaitingConnection());
+         future.cancel(false);
+         assertEquals(0, pool.getThreadsAwaitingConnection());
+
+         connection.close();
+         assertEquals("Connection was handed to a cancelled borrower", 1, pool.getIdleConnections());
+         ds.getConnection().close();
+      }
+   }
+
+   @Test
+   public void testGetConnectionNullPriority() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         HikariPool pool = getPool(ds);
+         assertThrows(NullPointerException.class, () -> ds.getConnection((Priority) null));
+         assertThrows(NullPointerException.class, () -> pool.getConnection(null, 250));
+         assertThrows(NullPointerException.class, () -> pool.getConnectionAsync(null, 250));
+         assertEquals(0, pool.getThreadsAwaitingConnection());
+         ds.getConnection().close();
+      }
+   }
+
+   @Test
+   public void testGetConnectionAsyncWhileSuspended() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setAllowPoolSuspension(true);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         HikariPool pool = getPool(ds);
+         pool.suspendPool();
+
+         // the calling thread is not parked until the pool is resumed
+         CompletableFuture<Connection> future = ds.getConnectionAsync();
+         assertFalse(future.isDone());
+
+         pool.resumePool();
+         future.get(1, SECONDS).close();
+      }
+   }
+
+   @Test
+   public void testPendingConnectionAsyncNotCompletedWhileSuspended() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setAllowPoolSuspension(true);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         HikariPool pool = getPool(ds);
+         Connection connection = ds.getConnection();
+
+         // the borrow passes the gate and waits in the bag before the pool is suspended
+         CompletableFuture<Connection> future = ds.getConnectionAsync();
+         assertEquals(1, pool.getThreadsAwaitingConnection());
+         pool.suspendPool();
+
+         connection.close();
+         quietlySleep(200);
+         assertFalse("Pending borrow was completed while the pool was suspended", future.isDone());
+         assertEquals(1, pool.getIdleConnections());
+
+         pool.resumePool();
+         future.get(1, SECONDS).close();
+      }
+   }
+
+   @Test
+   public void testBackgroundValidation() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      System.setProperty("com.zaxxer.hikari.backgroundValidation", "true");
+      System.setProperty("com.zaxxer.hikari.aliveBypassWindowMs", "200");
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.backgroundValidation");
+         System.clearProperty("com.zaxxer.hikari.aliveBypassWindowMs");
+
+         try (Connection ignored = ds.getConnection()) {
+            // establish lastAccessed
+         }
+
+         quietlySleep(400);
+
+         PoolEntry entry = (PoolEntry) getConcurrentBag(ds).values().get(0);
+         assertTrue("Idle connection was not validated in the background", entry.lastValidated > entry.lastAccessed);
+
+         // revalidated for as long as it stays idle, so that a borrow after a lull still skips inline validation
+         final long lastValidated = entry.lastValidated;
+         quietlySleep(400);
+         assertTrue("Idle connection was not revalidated", entry.lastValidated > lastValidated);
+
+         try (Connection ignored = ds.getConnection()) {
+            // start a new idle period
+         }
+         quietlySleep(400);
+         assertTrue("Idle connection was not validated in its next idle period", entry.lastValidated > entry.lastAccessed);
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.backgroundValidation");
+         System.clearProperty("com.zaxxer.hikari.aliveBypassWindowMs");
+      }
+   }
+
+   @Test
+   public void testBackgroundValidationCappedPerRun() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(3);
+      config.setMaximumPoolSize(3);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      System.setProperty("com.zaxxer.hikari.backgroundValidation", "true");
+      System.setProperty("com.zaxxer.hikari.aliveBypassWindowMs", "10000");
+      System.setProperty("com.zaxxer.hikari.backgroundValidation.periodMs", "200");
+      System.setProperty("com.zaxxer.hikari.backgroundValidation.maxPerRun", "1");
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.backgroundValidation");
+         System.clearProperty("com.zaxxer.hikari.aliveBypassWindowMs");
+         System.clearProperty("com.zaxxer.hikari.backgroundValidation.periodMs");
+         System.clearProperty("com.zaxxer.hikari.backgroundValidation.maxPerRun");
+
+         while (getConcurrentBag(ds).values().size() < 3) {
+            quietlySleep(50);
+         }
+
+         // age all three connections past the window, so that every run finds them stale
+         for (Object item : getConcurrentBag(ds).values()) {
+            final PoolEntry entry = (PoolEntry) item;
+            entry.lastAccessed = plusMillis(entry.lastAccessed, -20_000);
+            entry.lastValidated = entry.lastAccessed;
+         }
+
+         quietlySleep(300);
+         long validated = getConcurrentBag(ds).values().stream().filter(e -> ((PoolEntry) e).lastValidated > ((PoolEntry) e).lastAccessed).count();
+         assertTrue("More connections were validated than the cap allows: " + validated, validated >= 1 && validated <= 2);
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.backgroundValidation");
+         System.clearProperty("com.zaxxer.hikari.aliveBypassWindowMs");
+      }
+   }
+
    static class StubDataSourceWithErrorSwitch extends StubDataSource
    {
       private boolean errorOnConnection = false;
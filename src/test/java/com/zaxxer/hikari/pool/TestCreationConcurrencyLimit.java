@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestCreationConcurrencyLimit
+{
+   private static final long FAST = MILLISECONDS.toNanos(40);
+
+   @Test
+   public void testAdditiveIncrease()
+   {
+      final var changes = new AtomicInteger();
+      final var limit = new CreationConcurrencyLimit(4, l -> changes.incrementAndGet());
+
+      limit.onSuccess(FAST);
+      assertEquals(2, limit.getLimit());
+      limit.onSuccess(FAST);
+      assertEquals(2, limit.getLimit());
+      limit.onSuccess(FAST);
+      assertEquals(3, limit.getLimit());
+
+      for (int i = 0; i < 10; i++) {
+         limit.onSuccess(FAST);
+      }
+      assertEquals("Limit exceeded its maximum", 4, limit.getLimit());
+      assertEquals(3, changes.get());
+   }
+
+   @Test
+   public void testMultiplicativeDecrease()
+   {
+      final var limit = new CreationConcurrencyLimit(16, l -> {});
+      for (int i = 0; i < 50; i++) {
+         limit.onSuccess(FAST);
+      }
+      assertEquals(10, limit.getLimit());
+
+      limit.onSuccess(FAST * 3);
+      assertEquals("Slow creation should halve the limit", 5, limit.getLimit());
+
+      limit.onFailure();
+      assertEquals("Failed creation should halve the limit", 2, limit.getLimit());
+
+      limit.onFailure();
+      limit.onFailure();
+      assertEquals(1, limit.getLimit());
+   }
+
+   @Test
+   public void testSingleCreatorIsFixed()
+   {
+      final var limit = new CreationConcurrencyLimit(1, l -> { throw new AssertionError("limit changed"); });
+      limit.onSuccess(FAST);
+      limit.onFailure();
+      assertEquals(1, limit.getLimit());
+   }
+
+   @Test
+   public void testPoolFillsWithinMaximum() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(20);
+      config.setMaximumPoolSize(20);
+      config.setMaxConnectionCreationConcurrency(8);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         HikariPool pool = getPool(ds);
+         for (int i = 0; i < 100 && pool.getTotalConnections() < 20; i++) {
+            quietlySleep(50);
+            assertTrue("Pool exceeded maximumPoolSize", pool.getTotalConnections() <= 20);
+         }
+
+         assertEquals(20, pool.getTotalConnections());
+      }
+   }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import org.junit.Test;
+
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestDemandForecast
+{
+   @Test
+   public void testForecastFollowsDemand()
+   {
+      final var forecast = new DemandForecast();
+
+      assertEquals(0, forecast.getForecast());
+
+      // roughly 1000 borrows per second, each held for 50ms, is 50 connections in use
+      for (int i = 0; i < 100; i++) {
+         forecast.recordBorrow();
+         forecast.recordReturn(50);
+      }
+      quietlySleep(100);
+
+      final var peak = forecast.update();
+      assertTrue("Forecast did not follow demand: " + peak, peak > 5);
+      assertEquals(peak, forecast.getForecast());
+
+      var previous = peak;
+      for (int i = 0; i < 200 && previous > 0; i++) {
+         quietlySleep(2);
+         final var next = forecast.update();
+         assertTrue("Forecast increased without demand", next <= previous);
+         previous = next;
+      }
+      assertEquals("Forecast did not decay without demand", 0, previous);
+   }
+}
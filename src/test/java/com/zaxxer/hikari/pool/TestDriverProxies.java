@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.mocks.StubConnection;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestDriverProxies
+{
+   @Test
+   public void testDriverProxyGenerated() throws SQLException
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      System.setProperty("com.zaxxer.hikari.driverProxies", "true");
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.driverProxies");
+
+         try (Connection connection = ds.getConnection()) {
+            assertTrue(connection instanceof ProxyConnection);
+            assertTrue("Proxy was not specialized: " + connection.getClass().getName(),
+                       connection.getClass().getName().startsWith("com.zaxxer.hikari.pool.HikariProxyConnection$StubConnection"));
+
+            assertTrue(connection.isWrapperFor(StubConnection.class));
+            assertNotNull(connection.unwrap(StubConnection.class));
+            assertNotNull(connection.createStatement());
+            assertNotNull(connection.prepareStatement("SELECT 1"));
+            assertNotNull(connection.getMetaData());
+
+            connection.setAutoCommit(false);
+            assertFalse(connection.getAutoCommit());
+            assertEquals(Connection.TRANSACTION_READ_COMMITTED, connection.getTransactionIsolation());
+         }
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.driverProxies");
+      }
+   }
+
+   @Test
+   public void testStatementProxiesGenerated() throws SQLException
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      System.setProperty("com.zaxxer.hikari.driverProxies", "true");
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.driverProxies");
+
+         try (Connection connection = ds.getConnection()) {
+            Statement statement = connection.createStatement();
+            assertTrue("Statement was not specialized: " + statement.getClass().getName(),
+                       statement.getClass().getName().startsWith("com.zaxxer.hikari.pool.HikariProxyStatement$StubStatement"));
+
+            PreparedStatement prepared = connection.prepareStatement("SELECT 1");
+            assertTrue("PreparedStatement was not specialized: " + prepared.getClass().getName(),
+                       prepared.getClass().getName().startsWith("com.zaxxer.hikari.pool.HikariProxyPreparedStatement$StubPreparedStatement"));
+
+            try (ResultSet resultSet = prepared.executeQuery()) {
+               assertTrue("ResultSet was not specialized: " + resultSet.getClass().getName(),
+                          resultSet.getClass().getName().startsWith("com.zaxxer.hikari.pool.HikariProxyResultSet$StubResultSet"));
+               assertFalse(resultSet.next());
+               assertSame(prepared, resultSet.getStatement());
+            }
+         }
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.driverProxies");
+      }
+   }
+
+   @Test
+   public void testClosedDriverProxy() throws SQLException
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      System.setProperty("com.zaxxer.hikari.driverProxies", "true");
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         System.clearProperty("com.zaxxer.hikari.driverProxies");
+
+         Connection connection = ds.getConnection();
+         connection.close();
+         assertTrue(connection.isClosed());
+
+         try {
+            connection.prepareStatement("SELECT 1");
+            fail("Closed connection was usable");
+         }
+         catch (SQLException e) {
+            assertTrue(e.getMessage().contains("Connection is closed"));
+         }
+
+         try {
+            connection.nativeSQL("SELECT 1");
+            fail("Closed connection was usable");
+         }
+         catch (SQLException e) {
+            assertTrue(e.getMessage().contains("Connection is closed"));
+         }
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.driverProxies");
+      }
+   }
+
+   @Test
+   public void testFactoryPerDriverClass()
+   {
+      final var factory = DriverProxyFactory.forClass(StubConnection.class);
+      assertNotNull(factory);
+      assertSame(factory, DriverProxyFactory.forClass(StubConnection.class));
+   }
+
+   @Test
+   public void testInaccessibleDriverFallsBack()
+   {
+      assertNull(DriverProxyFactory.forClass(HiddenConnection.class));
+   }
+
+   private static class HiddenConnection extends StubConnection
+   {
+   }
+}
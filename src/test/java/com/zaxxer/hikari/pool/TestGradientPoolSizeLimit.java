@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+
+import static com.zaxxer.hikari.pool.TestElf.getPool;
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestGradientPoolSizeLimit
+{
+   private static final long HOLD = MILLISECONDS.toNanos(10);
+
+   @Test
+   public void testShrinksWhenHoldTimeRises()
+   {
+      final var limit = new GradientPoolSizeLimit(5, 50);
+      assertEquals(50, limit.getLimit());
+
+      sample(limit, HOLD, 10);
+      assertEquals("Flat hold times should not shrink the pool", 50, limit.update(50, 50));
+
+      var previous = 50;
+      for (int i = 0; i < 10; i++) {
+         sample(limit, HOLD * 4, 10);
+         final var next = limit.update(50, 50);
+         assertTrue("Rising hold times should not grow the pool", next <= previous);
+         previous = next;
+      }
+      assertTrue("Pool did not shrink: " + previous, previous < 40);
+
+      for (int i = 0; i < 100; i++) {
+         sample(limit, HOLD * 100, 10);
+         limit.update(50, 50);
+      }
+      assertTrue("Pool shrank below its minimum", limit.getLimit() >= 5);
+   }
+
+   @Test
+   public void testRecoversWhenHoldTimeFlattens()
+   {
+      final var limit = new GradientPoolSizeLimit(5, 50);
+      sample(limit, HOLD, 10);
+      limit.update(50, 50);
+      for (int i = 0; i < 5; i++) {
+         sample(limit, HOLD * 4, 10);
+         limit.update(50, 50);
+      }
+      final var shrunk = limit.getLimit();
+      assertTrue(shrunk < 50);
+
+      // the application only uses a few connections, so the limit says where it is
+      sample(limit, HOLD, 10);
+      assertEquals(shrunk, limit.update(2, 50));
+
+      for (int i = 0; i < 50; i++) {
+         sample(limit, HOLD, 10);
+         limit.update(50, 50);
+      }
+      assertEquals(50, limit.getLimit());
+   }
+
+   @Test
+   public void testNoSamplesKeepsLimit()
+   {
+      final var limit = new GradientPoolSizeLimit(5, 20);
+      assertEquals(20, limit.update(20, 20));
+   }
+
+   @Test
+   public void testFollowsChangedBound()
+   {
+      final var limit = new GradientPoolSizeLimit(5, 20);
+      assertEquals("Lowered bound should cut the limit at once", 10, limit.update(10, 10));
+
+      for (int i = 0; i < 50; i++) {
+         sample(limit, HOLD, 10);
+         limit.update(30, 30);
+      }
+      assertEquals("Limit did not grow to the raised bound", 30, limit.getLimit());
+
+      assertEquals("Bound below the minimum should win", 3, limit.update(30, 3));
+   }
+
+   @Test
+   public void testMaximumPoolSizeSetWhileAutoSizing() throws SQLException
+   {
+      System.setProperty("com.zaxxer.hikari.autoSize.periodMs", "10");
+      final var config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(10);
+      config.setConnectionTimeout(250);
+      config.setAutoSizePool(true);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (var ds = new HikariDataSource(config)) {
+         final var mxBean = ds.getHikariConfigMXBean();
+         mxBean.setMaximumPoolSize(4);
+         for (int i = 0; i < 10; i++) {
+            ds.getConnection().close();
+            quietlySleep(10);
+         }
+         assertEquals("Auto-sizing overwrote the configured maximum", 4, mxBean.getMaximumPoolSize());
+
+         final var connections = new ArrayList<Connection>();
+         try {
+            for (int i = 0; i < 4; i++) {
+               connections.add(ds.getConnection());
+            }
+            try {
+               connections.add(ds.getConnection());
+               fail("Pool grew past the configured maximum");
+            }
+            catch (SQLTransientConnectionException e) {
+               // expected
+            }
+            assertEquals(4, getPool(ds).getTotalConnections());
+
+            mxBean.setMaximumPoolSize(6);
+            quietlySleep(100);
+            assertEquals("Auto-sizing overwrote the raised maximum", 6, mxBean.getMaximumPoolSize());
+         }
+         finally {
+            for (var connection : connections) {
+               connection.close();
+            }
+         }
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.autoSize.periodMs");
+      }
+   }
+
+   private static void sample(final GradientPoolSizeLimit limit, final long holdNanos, final int count)
+   {
+      for (int i = 0; i < count; i++) {
+         limit.recordHold(holdNanos);
+      }
+   }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.ClockSource.currentTime;
+import static com.zaxxer.hikari.util.ClockSource.plusMillis;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestHoldersSnapshot
+{
+   @Test
+   public void testLongestHeldFirst()
+   {
+      final var now = currentTime();
+      final var entries = List.of(newEntry(now, 100), newEntry(now, 300), newEntry(now, 200));
+      entries.get(1).callSite = "com.example.Dao.load(Dao.java:42)";
+
+      final var snapshot = ConnectionHoldersSnapshot.capture(entries, 2, now);
+      assertEquals(3, snapshot.getInUse());
+      assertEquals(2, snapshot.getHolders().size());
+      assertEquals(300, snapshot.getLongestHeldMillis());
+      assertEquals(200, snapshot.getHolders().get(1).getHeldMillis());
+      assertEquals(Thread.currentThread().getName(), snapshot.getHolders().get(0).getThreadName());
+      assertEquals("com.example.Dao.load(Dao.java:42)", snapshot.getHolders().get(0).getCallSite());
+      assertNull(snapshot.getHolders().get(1).getCallSite());
+      assertEquals(0, snapshot.getStackTrace().length);
+      assertTrue(snapshot.getMessage(), snapshot.getMessage().startsWith("Connections in use at timeout: 3, longest held 2"));
+   }
+
+   @Test
+   public void testSnapshotAttachedToTimeout() throws SQLException
+   {
+      final var config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(250);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (var ds = new HikariDataSource(config);
+           var connection = ds.getConnection()) {
+         final var first = timeout(ds);
+         assertEquals(1, first.getSuppressed().length);
+         final var snapshot = (ConnectionHoldersSnapshot) first.getSuppressed()[0];
+         assertEquals(1, snapshot.getInUse());
+         assertEquals(Thread.currentThread().getName(), snapshot.getHolders().get(0).getThreadName());
+         assertTrue(snapshot.getLongestHeldMillis() >= 250);
+
+         // a second timeout within the snapshot interval does not capture another
+         assertEquals(0, timeout(ds).getSuppressed().length);
+      }
+   }
+
+   private static SQLException timeout(final HikariDataSource ds)
+   {
+      try {
+         ds.getConnection();
+         fail("Connection was not expected to be available");
+         return null;
+      }
+      catch (SQLException e) {
+         return e;
+      }
+   }
+
+   private static PoolEntry newEntry(final long now, final long heldMillis)
+   {
+      final var entry = new PoolEntry(null, null, false, true);
+      entry.lastBorrowed = plusMillis(now, -heldMillis);
+      entry.borrower = Thread.currentThread();
+      return entry;
+   }
+}
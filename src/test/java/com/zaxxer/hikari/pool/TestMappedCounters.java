@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.PoolCountersReader;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static com.zaxxer.hikari.util.UtilityElf.quietlySleep;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestMappedCounters
+{
+   @Test
+   public void testCountersReadFromFile() throws IOException
+   {
+      final var directory = Files.createTempDirectory("hikari");
+      final var counters = MappedPoolCounters.create(directory.toString(), "pool 1");
+      counters.recordBorrow(100L);
+      counters.recordBorrow(50L);
+      counters.recordTimeout();
+      counters.recordCreation();
+      counters.recordCreationFailure();
+      counters.update(4, 1, 3, 2, 10);
+
+      final var file = directory.resolve("pool_1-" + ProcessHandle.current().pid() + PoolCountersReader.FILE_SUFFIX);
+      final var reader = PoolCountersReader.open(file);
+      assertEquals(ProcessHandle.current().pid(), reader.getPid());
+      assertEquals(2, reader.getBorrows());
+      assertEquals(150, reader.getBorrowWaitNanos());
+      assertEquals(1, reader.getTimeouts());
+      assertEquals(1, reader.getCreations());
+      assertEquals(1, reader.getCreationFailures());
+      assertEquals(4, reader.getTotalConnections());
+      assertEquals(1, reader.getIdleConnections());
+      assertEquals(3, reader.getActiveConnections());
+      assertEquals(2, reader.getPendingThreads());
+      assertEquals(10, reader.get(PoolCountersReader.MAX_CONNECTIONS_OFFSET));
+      assertTrue(reader.getUpdateTime() > 0);
+
+      // the reader sees later updates through its own mapping, but not the counts recorded since
+      counters.recordBorrow(1L);
+      assertEquals(2, reader.getBorrows());
+      counters.update(4, 1, 3, 2, 10);
+      assertEquals(3, reader.getBorrows());
+
+      counters.close();
+      assertFalse(Files.exists(file));
+   }
+
+   @Test
+   public void testForeignFileRejected() throws IOException
+   {
+      final var file = Files.createTempFile("hikari", PoolCountersReader.FILE_SUFFIX);
+      Files.write(file, new byte[PoolCountersReader.FILE_SIZE]);
+      try {
+         PoolCountersReader.open(file);
+         fail("A file without the magic number was accepted");
+      }
+      catch (IOException e) {
+         // expected
+      }
+   }
+
+   @Test
+   public void testPoolPublishesCounters() throws IOException, SQLException
+   {
+      final var directory = Files.createTempDirectory("hikari");
+      final var config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setCountersDirectory(directory.toString());
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      final var file = directory.resolve("testPoolPublishesCounters-" + ProcessHandle.current().pid() + PoolCountersReader.FILE_SUFFIX);
+      try (var ds = new HikariDataSource(config)) {
+         ds.getConnection().close();
+         ds.getConnection().close();
+
+         // the counters are published by the once a second update
+         final var reader = PoolCountersReader.open(file);
+         final var deadline = System.nanoTime() + SECONDS.toNanos(5);
+         while (reader.getBorrows() < 2 && System.nanoTime() < deadline) {
+            quietlySleep(50L);
+         }
+         assertEquals(2, reader.getBorrows());
+         assertEquals(1, reader.getCreations());
+         assertEquals(0, reader.getTimeouts());
+      }
+
+      assertFalse(Files.exists(file));
+   }
+}
@@ -40,6 +40,7 @@ import com.codahale.metrics.health.HealthCheck.Result;
 import com.codahale.metrics.health.HealthCheckRegistry;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.HistogramMetricsTrackerFactory;
 import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
 import com.zaxxer.hikari.metrics.dropwizard.CodahaleMetricsTrackerFactory;
 import com.zaxxer.hikari.util.UtilityElf;
@@ -299,6 +300,52 @@ public class TestMetrics
       }
    }
 
+   @Test
+   public void testHistogramPercentiles() throws SQLException
+   {
+      MetricRegistry metricRegistry = new MetricRegistry();
+
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setMetricsTrackerFactory(new HistogramMetricsTrackerFactory(new CodahaleMetricsTrackerFactory(metricRegistry), 1000));
+      config.setInitializationFailTimeout(Long.MAX_VALUE);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         for (int i = 0; i < 10; i++) {
+            try (Connection ignored = ds.getConnection()) {
+               quietlySleep(20);
+            }
+         }
+
+         // the borrows all fall in the first interval, which is reported once it completes
+         final var mxBean = ds.getHikariPoolMXBean();
+         for (int i = 0; i < 300 && mxBean.getConnectionAcquireNanosAtPercentile(99) == 0; i++) {
+            quietlySleep(10);
+         }
+         assertTrue(mxBean.getConnectionAcquireNanosAtPercentile(99) > 0);
+         final var usage = mxBean.getConnectionUsageMillisAtPercentile(50);
+         assertTrue("Usage percentile not as expected: " + usage, usage >= 15 && usage < 200);
+
+         final var timer = metricRegistry.getTimers().values().iterator().next();
+         assertEquals("Measurements were not passed on to the delegate tracker", 10, timer.getCount());
+      }
+   }
+
+   @Test
+   public void testNoHistogramPercentiles() throws SQLException
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(0);
+      config.setMaximumPoolSize(1);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (HikariDataSource ds = new HikariDataSource(config)) {
+         assertEquals(-1, ds.getHikariPoolMXBean().getConnectionUsageMillisAtPercentile(99));
+      }
+   }
+
    @Test(expected = IllegalArgumentException.class)
    public void testFakeMetricRegistryThrowsIllegalArgumentException()
    {
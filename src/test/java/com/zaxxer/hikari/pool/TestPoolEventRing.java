@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestPoolEventRing
+{
+   @Test
+   public void testOldestOverwritten()
+   {
+      final var ring = new PoolEventRing(3);
+      for (int i = 0; i < 6; i++) {
+         ring.record(PoolEventRing.HOUSEKEEPING, i, 0L, 0L, null);
+      }
+      ring.record(PoolEventRing.CONNECTION_EVICTED, 1L, 0L, 0L, "(connection has passed idleTimeout)");
+
+      final var lines = ring.dump();
+      assertEquals(4, lines.size());
+      assertTrue(lines.get(0), lines.get(0).endsWith(" HOUSEKEEPING total=3 idle=0 removed=0"));
+      assertTrue(lines.get(2), lines.get(2).endsWith(" HOUSEKEEPING total=5 idle=0 removed=0"));
+      assertTrue(lines.get(3), lines.get(3).endsWith(" CONNECTION_EVICTED total=1 idle=0 (connection has passed idleTimeout)"));
+   }
+
+   @Test
+   public void testConcurrentRecordsNotTorn() throws InterruptedException
+   {
+      final var ring = new PoolEventRing(64);
+      final var threads = new ArrayList<Thread>();
+      for (int t = 1; t <= 4; t++) {
+         final long value = t;
+         threads.add(new Thread(() -> {
+            for (int i = 0; i < 100_000; i++) {
+               ring.record(PoolEventRing.FILL, value, value, value, null);
+            }
+         }));
+      }
+      threads.forEach(Thread::start);
+
+      final var pattern = Pattern.compile(".* FILL total=(\\d) idle=(\\d) toAdd=(\\d)");
+      while (threads.stream().anyMatch(Thread::isAlive)) {
+         for (var line : ring.dump()) {
+            final var matcher = pattern.matcher(line);
+            assertTrue(line, matcher.matches());
+            assertEquals(line, matcher.group(1), matcher.group(2));
+            assertEquals(line, matcher.group(1), matcher.group(3));
+         }
+      }
+
+      for (var thread : threads) {
+         thread.join();
+      }
+      assertEquals(64, ring.dump().size());
+   }
+
+   @Test
+   public void testPoolEventsDumped() throws SQLException
+   {
+      final var config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTimeout(250);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (var ds = new HikariDataSource(config);
+           var connection = ds.getConnection()) {
+         try {
+            ds.getConnection();
+         }
+         catch (SQLException e) {
+            // expected
+         }
+
+         final var events = ds.getHikariPoolMXBean().dumpPoolEvents();
+         assertTrue(Arrays.toString(events), events[0].contains(" CONNECTION_CREATED "));
+         assertTrue(Arrays.toString(events), events[events.length - 1].contains(" BORROW_TIMEOUT "));
+      }
+   }
+}
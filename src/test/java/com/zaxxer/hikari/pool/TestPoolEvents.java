@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestPoolEvents
+{
+   @Test
+   public void testLifecycleEventsRecorded() throws Exception
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      final var file = Files.createTempFile("hikari", ".jfr");
+      try (var recording = new Recording()) {
+         recording.enable("com.zaxxer.hikari.ConnectionBorrow");
+         recording.enable("com.zaxxer.hikari.ConnectionReturn");
+         recording.enable("com.zaxxer.hikari.ConnectionCreate");
+         recording.enable("com.zaxxer.hikari.ConnectionEvict");
+         recording.start();
+
+         try (var ds = new HikariDataSource(config)) {
+            for (int i = 0; i < 3; i++) {
+               ds.getConnection().close();
+            }
+         }
+
+         recording.stop();
+         recording.dump(file);
+
+         final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+
+         final var borrows = ofType(events, "com.zaxxer.hikari.ConnectionBorrow");
+         assertEquals(3, borrows.size());
+         for (var event : borrows) {
+            assertEquals("testLifecycleEventsRecorded", event.getString("poolName"));
+            assertTrue(event.getString("source").equals("thread-local") || event.getString("source").equals("shared"));
+            assertTrue(event.getLong("waitTime") >= 0L);
+         }
+
+         final var returns = ofType(events, "com.zaxxer.hikari.ConnectionReturn");
+         assertEquals(3, returns.size());
+         for (var event : returns) {
+            assertTrue(event.getLong("heldTime") >= 0L);
+         }
+
+         assertFalse(ofType(events, "com.zaxxer.hikari.ConnectionCreate").isEmpty());
+         assertFalse(ofType(events, "com.zaxxer.hikari.ConnectionEvict").isEmpty());
+      }
+      finally {
+         Files.deleteIfExists(file);
+      }
+   }
+
+   private static List<RecordedEvent> ofType(final List<RecordedEvent> events, final String name)
+   {
+      return events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.toList());
+   }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestProxyReuse
+{
+   private HikariDataSource ds;
+
+   @Before
+   public void setup()
+   {
+      HikariConfig config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setConnectionTestQuery("VALUES 1");
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      System.setProperty("com.zaxxer.hikari.reuseProxies", "true");
+      try {
+         ds = new HikariDataSource(config);
+      }
+      finally {
+         System.clearProperty("com.zaxxer.hikari.reuseProxies");
+      }
+   }
+
+   @After
+   public void teardown()
+   {
+      ds.close();
+   }
+
+   @Test
+   public void testConnectionProxyReused() throws SQLException
+   {
+      final Connection connection1 = ds.getConnection();
+      final var proxy = ((ConnectionHandle) connection1).getProxyConnection();
+      connection1.setReadOnly(true);
+      connection1.close();
+
+      assertTrue(connection1.isClosed());
+      try {
+         connection1.createStatement();
+         fail("Closed connection was usable");
+      }
+      catch (SQLException e) {
+         assertTrue(e.getMessage().contains("Connection is closed"));
+      }
+
+      try (Connection connection2 = ds.getConnection()) {
+         assertNotSame("Borrows share a handle", connection1, connection2);
+         assertSame(proxy, ((ConnectionHandle) connection2).getProxyConnection());
+         assertFalse(connection2.isClosed());
+         assertFalse("Connection state leaked into the next borrow", connection2.isReadOnly());
+      }
+   }
+
+   @Test
+   public void testStaleConnectionRejected() throws SQLException
+   {
+      final Connection stale = ds.getConnection();
+      stale.close();
+
+      try (Connection connection = ds.getConnection()) {
+         connection.setAutoCommit(false);
+
+         assertTrue(stale.isClosed());
+         assertFalse(stale.isValid(1));
+         for (var call : List.<SqlCall>of(stale::commit, stale::rollback, () -> stale.setAutoCommit(true), stale::createStatement)) {
+            try {
+               call.run();
+               fail("Connection of an earlier borrow acted on the current one");
+            }
+            catch (SQLException e) {
+               assertTrue(e.getMessage().contains("Connection is closed"));
+            }
+         }
+
+         stale.close();
+         ds.evictConnection(stale);
+         assertFalse("Stale close recycled the current borrow", connection.isClosed());
+         assertFalse(connection.getAutoCommit());
+         assertEquals(1, ds.getHikariPoolMXBean().getActiveConnections());
+      }
+      assertEquals(1, ds.getHikariPoolMXBean().getIdleConnections());
+   }
+
+   @Test
+   public void testStaleStatementRejected() throws SQLException
+   {
+      Statement statement;
+      ResultSet resultSet;
+      try (Connection connection = ds.getConnection()) {
+         statement = connection.prepareStatement("SELECT 1");
+         resultSet = statement.executeQuery("SELECT 1");
+         assertSame(connection, statement.getConnection());
+         assertNotSame("Result set proxy was reused", resultSet, statement.executeQuery("SELECT 1"));
+      }
+
+      try (Connection connection = ds.getConnection()) {
+         try {
+            statement.getConnection();
+            fail("Statement of an earlier borrow returned the reused connection");
+         }
+         catch (SQLException e) {
+            assertTrue(e.getMessage().contains("Connection is closed"));
+         }
+
+         try {
+            resultSet.getStatement();
+            fail("Result set of an earlier borrow returned its statement");
+         }
+         catch (SQLException e) {
+            assertTrue(e.getMessage().contains("Connection is closed"));
+         }
+
+         try (var current = connection.createStatement()) {
+            assertSame(connection, current.getConnection());
+         }
+      }
+   }
+
+   @Test
+   public void testBorrowAllocatesOnlyHandle() throws Exception
+   {
+      final var threadId = Thread.currentThread().getId();
+      assumeTrue("Thread allocation counters unavailable", allocatedBytes(threadId) >= 0);
+
+      for (int i = 0; i < 20_000; i++) {
+         ds.getConnection().close();
+      }
+
+      final var cycles = 20_000;
+      final var before = allocatedBytes(threadId);
+      for (int i = 0; i < cycles; i++) {
+         ds.getConnection().close();
+      }
+      final var bytesPerCycle = (allocatedBytes(threadId) - before) / cycles;
+
+      // a handle is an object header, a reference and an int
+      assertTrue("Bytes allocated per borrow: " + bytesPerCycle, bytesPerCycle <= 32);
+   }
+
+   @FunctionalInterface
+   private interface SqlCall
+   {
+      void run() throws SQLException;
+   }
+
+   // com.sun.management.ThreadMXBean is not readable from this module, so go through the platform MBean server
+   private static long allocatedBytes(final long threadId) throws Exception
+   {
+      try {
+         return (Long) ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName(ManagementFactory.THREAD_MXBEAN_NAME),
+            "getThreadAllocatedBytes", new Object[] { threadId }, new String[] { long.class.getName() });
+      }
+      catch (ReflectionException | MBeanException e) {
+         return -1L;
+      }
+   }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.mocks.StubPreparedStatement;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestStatementCache
+{
+   @Before
+   public void setup()
+   {
+      // statements whose settings cannot be read are not cached
+      StubPreparedStatement.maxFieldSizeDisconnects = false;
+   }
+
+   @After
+   public void teardown()
+   {
+      StubPreparedStatement.maxFieldSizeDisconnects = true;
+   }
+
+   @Test
+   public void testStatementReused() throws SQLException
+   {
+      try (var ds = new HikariDataSource(newConfig(2));
+           var connection = ds.getConnection()) {
+         final var statement1 = connection.prepareStatement("SELECT 1");
+         final var delegate1 = statement1.unwrap(PreparedStatement.class);
+         statement1.close();
+         assertTrue(statement1.isClosed());
+         assertFalse("Cached statement was closed", delegate1.isClosed());
+
+         final var statement2 = connection.prepareStatement("SELECT 1");
+         assertSame(delegate1, statement2.unwrap(PreparedStatement.class));
+
+         final var statement3 = connection.prepareStatement("SELECT 1");
+         assertNotSame("Statement in use was handed out twice", delegate1, statement3.unwrap(PreparedStatement.class));
+
+         try {
+            statement1.setInt(1, 1);
+            fail("Closed statement reached the cached statement");
+         }
+         catch (SQLException e) {
+            assertTrue(e.getMessage().contains("Statement is closed"));
+         }
+
+         final var statement4 = connection.prepareStatement("SELECT 1", PreparedStatement.RETURN_GENERATED_KEYS);
+         final var delegate4 = statement4.unwrap(PreparedStatement.class);
+         statement4.close();
+         assertTrue("Uncacheable statement was not closed", delegate4.isClosed());
+      }
+   }
+
+   @Test
+   public void testLeastRecentlyUsedEvicted() throws SQLException
+   {
+      try (var ds = new HikariDataSource(newConfig(2));
+           var connection = ds.getConnection()) {
+         final var delegate1 = prepareAndClose(connection, "SELECT 1");
+         final var delegate2 = prepareAndClose(connection, "SELECT 2");
+         final var delegate3 = prepareAndClose(connection, "SELECT 3");
+
+         assertTrue("Eldest statement was not closed", delegate1.isClosed());
+         assertFalse(delegate2.isClosed());
+         assertFalse(delegate3.isClosed());
+      }
+   }
+
+   @Test
+   public void testOpenStatementsClosedWithConnection() throws SQLException
+   {
+      try (var ds = new HikariDataSource(newConfig(2))) {
+         PreparedStatement delegate;
+         try (var connection = ds.getConnection()) {
+            delegate = connection.prepareStatement("SELECT 1").unwrap(PreparedStatement.class);
+         }
+         assertTrue("Open statement was cached", delegate.isClosed());
+
+         try (var connection = ds.getConnection()) {
+            assertNotSame(delegate, connection.prepareStatement("SELECT 1").unwrap(PreparedStatement.class));
+         }
+      }
+   }
+
+   @Test
+   public void testStatementResetOnRelease() throws SQLException
+   {
+      final var statement = mock(PreparedStatement.class);
+      when(statement.getMaxRows()).thenReturn(0);
+      when(statement.getQueryTimeout()).thenReturn(0);
+      when(statement.getFetchSize()).thenReturn(10);
+      when(statement.getMaxFieldSize()).thenReturn(0);
+      when(statement.isPoolable()).thenReturn(true);
+
+      final var cache = new StatementCache(null, 2);
+      cache.lease(statement, "SELECT 1", 0, 0, StatementCache.DEFAULT_HOLDABILITY);
+      assertTrue(cache.release(statement));
+
+      verify(statement).clearParameters();
+      verify(statement).clearBatch();
+      verify(statement).clearWarnings();
+      verify(statement).setMaxRows(0);
+      verify(statement).setQueryTimeout(0);
+      verify(statement).setFetchSize(10);
+      verify(statement).setMaxFieldSize(0);
+      verify(statement).setEscapeProcessing(true);
+      verify(statement).setPoolable(true);
+   }
+
+   @Test
+   public void testResultSetClosedOnRelease() throws SQLException
+   {
+      try (var ds = new HikariDataSource(newConfig(2));
+           var connection = ds.getConnection()) {
+         final var statement = connection.prepareStatement("SELECT 1");
+         final var delegate = statement.unwrap(PreparedStatement.class);
+         final var resultSet = statement.executeQuery();
+         statement.close();
+         assertTrue("Result set of a cached statement was left open", resultSet.isClosed());
+
+         assertSame(delegate, connection.prepareStatement("SELECT 1").unwrap(PreparedStatement.class));
+      }
+   }
+
+   @Test
+   public void testResultSetCloseFailureNotCached() throws SQLException
+   {
+      final var statement = mock(PreparedStatement.class);
+      final var resultSet = mock(ResultSet.class);
+      when(statement.getResultSet()).thenReturn(resultSet);
+      doThrow(new SQLException("cursor gone")).when(resultSet).close();
+
+      final var cache = new StatementCache(null, 2);
+      cache.lease(statement, "SELECT 1", 0, 0, StatementCache.DEFAULT_HOLDABILITY);
+      assertFalse("Statement whose result set could not be closed was cached", cache.release(statement));
+      assertEquals(0, cache.size());
+   }
+
+   @Test
+   public void testCloseOnCompletionNotCached() throws SQLException
+   {
+      final var statement = mock(PreparedStatement.class);
+
+      final var cache = new StatementCache(null, 2);
+      cache.lease(statement, "SELECT 1", 0, 0, StatementCache.DEFAULT_HOLDABILITY);
+      when(statement.isCloseOnCompletion()).thenReturn(true);
+      assertFalse("Statement that cannot be reset was cached", cache.release(statement));
+      assertEquals(0, cache.size());
+   }
+
+   @Test
+   public void testInvalidCacheSize()
+   {
+      try {
+         new HikariConfig().setPreparedStatementCacheSize(-1);
+         fail("Negative cache size was accepted");
+      }
+      catch (IllegalArgumentException e) {
+         // expected
+      }
+   }
+
+   private static PreparedStatement prepareAndClose(final Connection connection, final String sql) throws SQLException
+   {
+      final var statement = connection.prepareStatement(sql);
+      final var delegate = statement.unwrap(PreparedStatement.class);
+      statement.close();
+      return delegate;
+   }
+
+   private static HikariConfig newConfig(final int cacheSize)
+   {
+      final var config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setPreparedStatementCacheSize(cacheSize);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      return config;
+   }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariStatementStatsMXBean;
+import com.zaxxer.hikari.StatementStats;
+import org.junit.Test;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestStatementStats
+{
+   @Test
+   public void testFingerprint()
+   {
+      assertEquals("select * from t where a = ? and b = ?", SqlFingerprint.of("SELECT *  FROM t\n WHERE a = 42 AND b = 'it''s'"));
+      assertEquals("select * from t where id in (?+)", SqlFingerprint.of("select * from t where id in (1, 2, 3)"));
+      assertEquals("select * from t where id in (?+)", SqlFingerprint.of("select * from t where id in ( ? )"));
+      assertEquals("select t1.a from \"T2\" where x = ?", SqlFingerprint.of("select t1.a /* hint */ from \"T2\" where x = 0x1F -- trailing"));
+      assertEquals("select count(*) from t", SqlFingerprint.of("SELECT COUNT(*) FROM t"));
+   }
+
+   @Test
+   public void testLeastFrequentDisplaced()
+   {
+      final var sketch = new StatementStatsSketch(2);
+      for (int i = 0; i < 5; i++) {
+         sketch.recordExecution("a", 10);
+      }
+      sketch.recordExecution("b", 20);
+      sketch.recordExecution("c", 30);
+
+      final var top = sketch.getTopStatements();
+      assertEquals(2, top.length);
+      assertEquals("a", top[0].getFingerprint());
+      assertEquals(5, top[0].getCount());
+      assertEquals(0, top[0].getCountError());
+      assertEquals(50, top[0].getTotalTimeNanos());
+
+      assertEquals("c", top[1].getFingerprint());
+      assertEquals(1, top[1].getCount());
+      assertEquals(1, top[1].getCountError());
+      assertEquals(30, top[1].getTotalTimeNanos());
+      assertEquals(30, top[1].getMaxTimeNanos());
+   }
+
+   @Test
+   public void testDisplacedInOrderOfEstimate()
+   {
+      final var sketch = new StatementStatsSketch(3);
+      for (int i = 0; i < 3; i++) {
+         sketch.recordExecution("a", 1);
+      }
+      sketch.recordExecution("b", 1);
+      sketch.recordExecution("b", 1);
+      sketch.recordExecution("c", 1);
+
+      // d inherits the estimate of c, then e displaces d and inherits its estimate
+      sketch.recordExecution("d", 1);
+      sketch.recordExecution("e", 1);
+      sketch.recordExecution("e", 1);
+
+      final var top = sketch.getTopStatements();
+      assertEquals(3, top.length);
+      assertEquals("e", top[0].getFingerprint());
+      assertEquals(2, top[0].getCount());
+      assertEquals(2, top[0].getCountError());
+      assertEquals("a", top[1].getFingerprint());
+      assertEquals(3, top[1].getCount());
+      assertEquals("b", top[2].getFingerprint());
+      assertEquals(2, top[2].getCount());
+      assertEquals(0, top[2].getCountError());
+
+      sketch.resetStatementStats();
+      sketch.recordExecution("b", 1);
+      assertEquals(1, sketch.getTopStatements().length);
+      assertEquals(0, sketch.getTopStatements()[0].getCountError());
+   }
+
+   @Test
+   public void testMovedUpBeforeDisplacement()
+   {
+      final var sketch = new StatementStatsSketch(2);
+      sketch.recordExecution("a", 1);
+      sketch.recordExecution("b", 1);
+      for (int i = 0; i < 3; i++) {
+         sketch.recordExecution("b", 1);
+      }
+
+      // b was counted without being moved up, so it must be moved before a is found to be the smallest
+      sketch.recordExecution("c", 1);
+
+      final var top = sketch.getTopStatements();
+      assertEquals("b", top[0].getFingerprint());
+      assertEquals(4, top[0].getCount());
+      assertEquals("c", top[1].getFingerprint());
+      assertEquals(1, top[1].getCountError());
+   }
+
+   @Test
+   public void testConcurrentExecutionsCounted() throws InterruptedException
+   {
+      final var sketch = new StatementStatsSketch(4);
+      final var threads = new Thread[4];
+      for (int t = 0; t < threads.length; t++) {
+         threads[t] = new Thread(() -> {
+            for (int i = 0; i < 10_000; i++) {
+               sketch.recordExecution("f" + (i % 4), 1);
+            }
+         });
+         threads[t].start();
+      }
+      for (var thread : threads) {
+         thread.join();
+      }
+
+      final var top = sketch.getTopStatements();
+      assertEquals(4, top.length);
+      for (var stats : top) {
+         assertEquals(10_000, stats.getCount());
+         assertEquals(10_000, stats.getTotalTimeNanos());
+      }
+   }
+
+   @Test
+   public void testStatementsAggregated() throws Exception
+   {
+      final var config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setStatementStatsSize(10);
+      config.setRegisterMbeans(true);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (var ds = new HikariDataSource(config)) {
+         try (var connection = ds.getConnection();
+              var statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE t SET a = 1 WHERE id = 10");
+            statement.executeUpdate("UPDATE t SET a = 2 WHERE id = 20");
+            statement.executeQuery("SELECT a FROM t WHERE id IN (1, 2)").close();
+         }
+
+         final var name = new ObjectName("com.zaxxer.hikari:type=PoolStatements (testStatementsAggregated)");
+         final var stats = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), name, HikariStatementStatsMXBean.class);
+         final StatementStats[] top = stats.getTopStatements();
+         assertEquals(2, top.length);
+         assertEquals("update t set a = ? where id = ?", top[0].getFingerprint());
+         assertEquals(2, top[0].getCount());
+         assertEquals("select a from t where id in (?+)", top[1].getFingerprint());
+
+         stats.resetStatementStats();
+         assertEquals(0, stats.getTopStatements().length);
+      }
+   }
+
+   @Test
+   public void testBatchAfterExecuteOnPlainStatement() throws Exception
+   {
+      final var config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setStatementStatsSize(10);
+      config.setRegisterMbeans(true);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+
+      try (var ds = new HikariDataSource(config)) {
+         try (var connection = ds.getConnection();
+              var statement = connection.createStatement()) {
+            statement.executeQuery("SELECT a FROM t WHERE id = 5").close();
+            statement.addBatch("UPDATE t SET a = 1 WHERE id = 5");
+            statement.executeBatch();
+         }
+
+         final var name = new ObjectName("com.zaxxer.hikari:type=PoolStatements (testBatchAfterExecuteOnPlainStatement)");
+         final var stats = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), name, HikariStatementStatsMXBean.class);
+         final StatementStats[] top = stats.getTopStatements();
+         assertEquals(2, top.length);
+         for (var entry : top) {
+            assertEquals("Batch was counted under " + entry.getFingerprint(), 1, entry.getCount());
+         }
+         assertTrue(Arrays.stream(top).anyMatch(entry -> entry.getFingerprint().equals("(batch)")));
+      }
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testInvalidSize()
+   {
+      newHikariConfig().setStatementStatsSize(-1);
+   }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.pool;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.zaxxer.hikari.pool.TestElf.newHikariConfig;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TestStatementTiming
+{
+   @Test
+   public void testExecutionsRecorded() throws SQLException
+   {
+      final var tracker = new CountingTracker();
+      final var config = newConfig(tracker);
+      config.setStatementTimingEnabled(true);
+
+      try (var ds = new HikariDataSource(config);
+           var connection = ds.getConnection()) {
+         try (var statement = connection.prepareStatement("SELECT ? FROM t");
+              var resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+               // drain
+            }
+         }
+
+         try (var statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE t SET a = 1");
+            statement.executeQuery("SELECT 1").close();
+         }
+      }
+
+      assertEquals(3, tracker.executions.get());
+      assertEquals(2, tracker.iterations.get());
+   }
+
+   @Test
+   public void testTimingDisabledByDefault() throws SQLException
+   {
+      final var tracker = new CountingTracker();
+
+      try (var ds = new HikariDataSource(newConfig(tracker));
+           var connection = ds.getConnection();
+           var statement = connection.prepareStatement("SELECT ? FROM t")) {
+         statement.executeQuery().close();
+      }
+
+      assertEquals(0, tracker.executions.get());
+      assertEquals(0, tracker.iterations.get());
+   }
+
+   @Test
+   public void testBindParameterCount() throws SQLException
+   {
+      try (var ds = new HikariDataSource(newConfig(new CountingTracker()));
+           var connection = ds.getConnection()) {
+         try (var statement = connection.prepareStatement("SELECT a FROM t WHERE b = ? AND c = '?' AND \"d?\" = ?")) {
+            assertEquals(2, ((ProxyStatement) statement).getBindParameterCount());
+         }
+
+         try (var statement = connection.createStatement()) {
+            assertEquals(0, ((ProxyStatement) statement).getBindParameterCount());
+         }
+      }
+   }
+
+   @Test
+   public void testInvalidSlowQueryThreshold()
+   {
+      try {
+         new HikariConfig().setSlowQueryThreshold(-1);
+         fail("Negative slow query threshold was accepted");
+      }
+      catch (IllegalArgumentException e) {
+         // expected
+      }
+   }
+
+   private static HikariConfig newConfig(final IMetricsTracker tracker)
+   {
+      final var config = newHikariConfig();
+      config.setMinimumIdle(1);
+      config.setMaximumPoolSize(1);
+      config.setMetricsTrackerFactory((poolName, poolStats) -> tracker);
+      config.setDataSourceClassName("com.zaxxer.hikari.mocks.StubDataSource");
+      return config;
+   }
+
+   private static final class CountingTracker implements IMetricsTracker
+   {
+      final AtomicInteger executions = new AtomicInteger();
+      final AtomicInteger iterations = new AtomicInteger();
+
+      @Override
+      public void recordStatementExecutionNanos(final long elapsedExecutionNanos)
+      {
+         executions.incrementAndGet();
+      }
+
+      @Override
+      public void recordResultSetIterationNanos(final long elapsedIterationNanos)
+      {
+         iterations.incrementAndGet();
+      }
+   }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.util;
+
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class SuspendResumeLockTest
+{
+   @Test
+   public void testAcquireWaitsForResume() throws Exception
+   {
+      final var lock = new SuspendResumeLock();
+      lock.suspend();
+
+      final var acquired = new CountDownLatch(1);
+      final var thread = new Thread(() -> {
+         try {
+            lock.acquire();
+            lock.release();
+            acquired.countDown();
+         }
+         catch (SQLException e) {
+            // not counted down
+         }
+      });
+      thread.start();
+
+      assertFalse("Acquired while suspended", acquired.await(200, MILLISECONDS));
+
+      lock.resume();
+      assertTrue("Not acquired after resume", acquired.await(5, SECONDS));
+      thread.join();
+   }
+
+   @Test
+   public void testSuspendDrainsInFlight() throws Exception
+   {
+      final var lock = new SuspendResumeLock();
+
+      final var held = new CountDownLatch(1);
+      final var releasing = new CountDownLatch(1);
+      final var holder = new Thread(() -> {
+         try {
+            lock.acquire();
+            held.countDown();
+            releasing.await();
+            lock.release();
+         }
+         catch (SQLException | InterruptedException e) {
+            // the suspender never returns
+         }
+      });
+      holder.start();
+      assertTrue(held.await(5, SECONDS));
+
+      final var suspended = new CountDownLatch(1);
+      final var suspender = new Thread(() -> {
+         lock.suspend();
+         suspended.countDown();
+      });
+      suspender.start();
+
+      assertFalse("Suspended with an acquisition in flight", suspended.await(200, MILLISECONDS));
+      assertFalse("Acquired while suspending", lock.tryAcquire());
+
+      releasing.countDown();
+      assertTrue("Not suspended after the acquisition was released", suspended.await(5, SECONDS));
+
+      lock.resume();
+      assertTrue(lock.tryAcquire());
+      lock.release();
+      holder.join();
+      suspender.join();
+   }
+
+   @Test
+   public void testTaskRunOnResume() throws Exception
+   {
+      final var lock = new SuspendResumeLock();
+      final var ran = new AtomicBoolean();
+
+      lock.suspend();
+      assertFalse(lock.tryAcquire());
+      lock.whenResumed(() -> ran.set(true));
+      assertFalse("Task ran while suspended", ran.get());
+
+      lock.resume();
+      assertTrue("Task did not run on resume", ran.get());
+
+      ran.set(false);
+      lock.whenResumed(() -> ran.set(true));
+      assertTrue("Task did not run while not suspended", ran.get());
+   }
+
+   @Test
+   public void testFauxLockNeverSuspends() throws Exception
+   {
+      final var lock = SuspendResumeLock.FAUX_LOCK;
+      lock.suspend();
+      assertTrue(lock.tryAcquire());
+      lock.release();
+   }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013, 2014 Brett Wooldridge
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.zaxxer.hikari.util;
+
+import com.zaxxer.hikari.util.UtilityElf.DefaultThreadFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Brett Wooldridge
+ */
+public class TimerWheelTest
+{
+   private ExecutorService dispatcher;
+   private TimerWheel wheel;
+
+   @Before
+   public void before()
+   {
+      dispatcher = Executors.newSingleThreadExecutor();
+      wheel = new TimerWheel(dispatcher, new DefaultThreadFactory("timer"), 10, MILLISECONDS, 8);
+   }
+
+   @After
+   public void after() throws InterruptedException
+   {
+      wheel.shutdownNow();
+      assertTrue(wheel.awaitTermination(5, SECONDS));
+      dispatcher.shutdownNow();
+   }
+
+   @Test
+   public void testTimerFiresAfterDelay() throws Exception
+   {
+      final var start = System.nanoTime();
+      final var future = wheel.schedule(() -> System.nanoTime() - start, 250, MILLISECONDS);
+
+      // 250ms is several revolutions of an 8 bucket, 10ms wheel
+      final long elapsed = future.get(5, SECONDS);
+      assertTrue("Timer fired early", elapsed >= MILLISECONDS.toNanos(250));
+   }
+
+   @Test
+   public void testCancelledTimerDoesNotFire() throws Exception
+   {
+      final var fired = new AtomicInteger();
+      final var future = wheel.schedule(fired::incrementAndGet, 50, MILLISECONDS);
+      final var latch = new CountDownLatch(1);
+      wheel.schedule(latch::countDown, 150, MILLISECONDS);
+
+      assertTrue(future.cancel(false));
+      assertTrue(latch.await(5, SECONDS));
+      assertEquals(0, fired.get());
+      assertTrue(future.isCancelled());
+   }
+
+   @Test
+   public void testFixedDelayRepeats() throws Exception
+   {
+      final var latch = new CountDownLatch(5);
+      final var future = wheel.scheduleWithFixedDelay(latch::countDown, 10, 20, MILLISECONDS);
+
+      assertTrue(latch.await(5, SECONDS));
+      assertFalse(future.isDone());
+      assertTrue(future.cancel(false));
+   }
+}